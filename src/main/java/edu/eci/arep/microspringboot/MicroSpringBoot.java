@@ -1,30 +1,74 @@
 package edu.eci.arep.microspringboot;
 
+import edu.eci.arep.microspringboot.classes.TaskManager;
 import edu.eci.arep.microspringboot.httpserver.HttpServer;
+import edu.eci.arep.microspringboot.httpserver.ServerEngine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  *
  * @author andrea.torres-g
  */
 public class MicroSpringBoot {
-    public static void main(String[] args) throws InterruptedException {
+    private static final AtomicBoolean cachedTasksWatched = new AtomicBoolean();
+
+    public static void main(String[] args) throws InterruptedException, IOException {
         System.out.println("Starting microspringboot");
+        TaskManager.getTaskManager().open(getDataDirectory());
+        invalidateCachedTasks();
         HttpServer server = new HttpServer(
                 getPort(),
                 Math.max(4, Runtime.getRuntime().availableProcessors() * 2),
                 200,
                 "static",
-                "edu.eci.arep.microspringboot"
+                "edu.eci.arep.microspringboot",
+                getEngine()
                 );
-        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            //after the server, so no request saves a task once the log is closed
+            try {
+                TaskManager.getTaskManager().close();
+            } catch (IOException e) {
+                System.err.println("Could not close the task log: " + e.getMessage());
+            }
+        }));
         Thread t = server.startAsync();
         t.join();
     }
 
+    /**
+     * Drops the cached {@code GET /task/{id}} response of a task each time the shared
+     * {@link TaskManager} saves, updates or deletes it. The other cached tasks are kept.
+     * Only the first call registers the listener.
+     */
+    static void invalidateCachedTasks() {
+        if (!cachedTasksWatched.compareAndSet(false, true)) return;
+        TaskManager.getTaskManager().addChangeListener(task ->
+                HttpServer.responses.invalidateResource("/task/{id}", String.valueOf(task.getId())));
+    }
+
     private static int getPort() {
         if (System.getenv("PORT") != null) {
             return Integer.parseInt(System.getenv("PORT"));
         }
         return 35000;
     }
+
+    private static Path getDataDirectory() {
+        if (System.getenv("TASKS_DATA_DIR") != null) {
+            return Path.of(System.getenv("TASKS_DATA_DIR"));
+        }
+        return Path.of("data");
+    }
+
+    private static ServerEngine getEngine() {
+        if (System.getenv("SERVER_ENGINE") != null) {
+            return ServerEngine.valueOf(System.getenv("SERVER_ENGINE").toUpperCase());
+        }
+        return ServerEngine.BLOCKING;
+    }
 }
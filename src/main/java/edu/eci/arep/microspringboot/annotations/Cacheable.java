@@ -0,0 +1,17 @@
+package edu.eci.arep.microspringboot.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a GET handler whose response only depends on its path variables and request parameters,
+ * so the server can answer repeated requests with the response it already produced.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Cacheable {
+    /** Seconds a response is reused before the handler is called again. */
+    int ttlSeconds() default 60;
+}
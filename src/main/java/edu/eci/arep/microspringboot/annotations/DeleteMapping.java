@@ -0,0 +1,15 @@
+package edu.eci.arep.microspringboot.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Maps DELETE requests to a handler, the path is relative to the controller {@link RequestMapping}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface DeleteMapping {
+    String value() default "/";
+}
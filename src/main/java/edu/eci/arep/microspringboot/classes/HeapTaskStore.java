@@ -0,0 +1,93 @@
+package edu.eci.arep.microspringboot.classes;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Tasks kept as objects in a concurrent map ordered by id, names indexed by {@link TaskNameIndex}.
+ * Removed and replaced tasks stay in the index, which is rebuilt from the stored tasks once
+ * they are more than a quarter of its entries: its memory stays proportional to the number of
+ * tasks under any mix of updates and deletes.
+ */
+final class HeapTaskStore implements TaskStore {
+    /** Stale entries tolerated whatever the number of tasks, so small stores are not rebuilt on every change. */
+    static final int MIN_STALE_ENTRIES = 1024;
+    private final ConcurrentSkipListMap<Integer, Task> tasks = new ConcurrentSkipListMap<>();
+    private volatile TaskNameIndex nameIndex = new TaskNameIndex();
+    /** Shared by the changes, exclusive while the index is rebuilt so no change is left out of it. */
+    private final ReadWriteLock rebuild = new ReentrantReadWriteLock();
+
+    @Override
+    public void put(Task task) {
+        TaskNameIndex index;
+        rebuild.readLock().lock();
+        try {
+            index = nameIndex;
+            if (tasks.put(task.getId(), task) != null) index.invalidate();
+            index.add(task);
+        } finally {
+            rebuild.readLock().unlock();
+        }
+        rebuildIfStale(index);
+    }
+
+    @Override
+    public Task get(int id) {
+        return tasks.get(id);
+    }
+
+    @Override
+    public void remove(int id) {
+        TaskNameIndex index;
+        rebuild.readLock().lock();
+        try {
+            index = nameIndex;
+            if (tasks.remove(id) != null) index.invalidate();
+        } finally {
+            rebuild.readLock().unlock();
+        }
+        rebuildIfStale(index);
+    }
+
+    @Override
+    public Collection<Task> after(int afterId) {
+        return Collections.unmodifiableCollection(tasks.tailMap(afterId, false).values());
+    }
+
+    @Override
+    public List<Task> search(String query) {
+        TaskNameIndex index = nameIndex;
+        List<Task> matches = index.search(query);
+        //skip the tasks removed or replaced since they were indexed
+        if (index.staleCount() > 0) matches.removeIf(task -> tasks.get(task.getId()) != task);
+        return matches;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return tasks.isEmpty();
+    }
+
+    private void rebuildIfStale(TaskNameIndex index) {
+        if (!isStale(index)) return;
+        rebuild.writeLock().lock();
+        try {
+            //another change may have rebuilt it already
+            if (index != nameIndex || !isStale(index)) return;
+            TaskNameIndex fresh = new TaskNameIndex();
+            for (Task task : tasks.values()) fresh.add(task);
+            nameIndex = fresh;
+        } finally {
+            rebuild.writeLock().unlock();
+        }
+    }
+
+    private static boolean isStale(TaskNameIndex index) {
+        int stale = index.staleCount();
+        return stale > MIN_STALE_ENTRIES && stale > index.size() / 4;
+    }
+}
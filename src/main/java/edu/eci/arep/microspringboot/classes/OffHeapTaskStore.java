@@ -0,0 +1,253 @@
+package edu.eci.arep.microspringboot.classes;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Tasks stored as records in memory-mapped segments of a temporary file, outside the heap.
+ * <p>
+ * A record is {@code [id][name][folded name][description]}, each string a length followed by
+ * its UTF-8 bytes, -1 for null; the folded name is omitted (length -1) when it has the same
+ * bytes as the name. Records are appended and never moved: replacing or removing a task only
+ * changes the id&rarr;offset index, a {@code long[]} the collector never has to trace. Each
+ * read decodes a new {@link Task}, so changing a task returned by the store does not change
+ * the stored one.
+ * <p>
+ * Appends are serialized. Readers take no lock: an offset is published with release semantics
+ * after its record is written, and read with acquire semantics.
+ */
+final class OffHeapTaskStore implements TaskStore {
+    /** Size of a mapped segment, larger records get a segment of their own. */
+    static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final VarHandle OFFSETS = MethodHandles.arrayElementVarHandle(long[].class);
+    private final FileChannel file;
+    //guarded by this
+    private long fileSize;
+    private int position;
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    /** Offset of each task by id, {@code segment << 32 | position} plus one, 0 if absent. */
+    private volatile long[] offsets = new long[1024];
+    private volatile int maxId;
+    private volatile int count;
+
+    OffHeapTaskStore() {
+        try {
+            Path path = Files.createTempFile("tasks-", ".bin");
+            file = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                //the mappings stay valid, the space is released once they are unmapped
+                Files.delete(path);
+            } catch (IOException e) {
+                path.toFile().deleteOnExit();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create the task storage file", e);
+        }
+    }
+
+    @Override
+    public synchronized void put(Task task) {
+        byte[] name = bytes(task.getName());
+        byte[] folded = bytes(TaskNameIndex.fold(task.getName() == null ? "" : task.getName()));
+        if (Arrays.equals(folded, name == null ? new byte[0] : name)) folded = null;
+        byte[] description = bytes(task.getDescription());
+        int size = 4 + length(name) + length(folded) + length(description);
+        MappedByteBuffer segment = reserve(size);
+        int start = position;
+        segment.putInt(start, task.getId());
+        int at = put(segment, start + 4, name);
+        at = put(segment, at, folded);
+        position = put(segment, at, description);
+        int id = task.getId();
+        long[] index = offsets;
+        if (id >= index.length) {
+            index = Arrays.copyOf(index, Math.max(id + 1, index.length * 2));
+            offsets = index;
+        }
+        long previous = (long) OFFSETS.getAcquire(index, id);
+        OFFSETS.setRelease(index, id, ((long) (segments.length - 1) << 32 | start) + 1);
+        if (previous == 0) count++;
+        if (id > maxId) maxId = id;
+    }
+
+    @Override
+    public Task get(int id) {
+        long[] index = offsets;
+        if (id <= 0 || id >= index.length) return null;
+        long offset = (long) OFFSETS.getAcquire(index, id);
+        return offset == 0 ? null : read(offset);
+    }
+
+    @Override
+    public synchronized void remove(int id) {
+        long[] index = offsets;
+        if (id <= 0 || id >= index.length || (long) OFFSETS.getAcquire(index, id) == 0) return;
+        OFFSETS.setRelease(index, id, 0L);
+        count--;
+    }
+
+    @Override
+    public Collection<Task> after(int afterId) {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Task> iterator() {
+                return new Iterator<>() {
+                    private int id = Math.max(afterId, 0);
+                    private long next;
+
+                    @Override
+                    public boolean hasNext() {
+                        if (next != 0) return true;
+                        long[] index = offsets;
+                        int last = Math.min(maxId, index.length - 1);
+                        while (id < last) {
+                            next = (long) OFFSETS.getAcquire(index, ++id);
+                            if (next != 0) return true;
+                        }
+                        return false;
+                    }
+
+                    @Override
+                    public Task next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        long offset = next;
+                        next = 0;
+                        return read(offset);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                //counts the offsets, no record is decoded
+                long[] index = offsets;
+                int size = 0;
+                for (int id = Math.max(afterId, 0) + 1, last = Math.min(maxId, index.length - 1); id <= last; id++) {
+                    if ((long) OFFSETS.getAcquire(index, id) != 0) size++;
+                }
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Scans the folded names in place, only the matching tasks are decoded.
+     */
+    @Override
+    public List<Task> search(String query) {
+        byte[] pattern = TaskNameIndex.fold(query).getBytes(StandardCharsets.UTF_8);
+        List<Task> matches = new ArrayList<>();
+        long[] index = offsets;
+        MappedByteBuffer[] mapped = segments;
+        for (int id = 1, last = Math.min(maxId, index.length - 1); id <= last; id++) {
+            long offset = (long) OFFSETS.getAcquire(index, id);
+            if (offset == 0) continue;
+            int segmentIndex = (int) (offset - 1 >>> 32);
+            //a segment mapped after the read of the array
+            if (segmentIndex >= mapped.length) mapped = segments;
+            MappedByteBuffer segment = mapped[segmentIndex];
+            int at = (int) (offset - 1) + 4;
+            int nameLength = segment.getInt(at);
+            int folded = at + 4 + Math.max(nameLength, 0);
+            int foldedLength = segment.getInt(folded);
+            //a substring of the UTF-8 bytes is a substring of the text: no character starts mid-sequence
+            boolean match = foldedLength >= 0
+                    ? contains(segment, folded + 4, foldedLength, pattern)
+                    : contains(segment, at + 4, Math.max(nameLength, 0), pattern);
+            if (match) matches.add(read(offset));
+        }
+        return matches;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Makes room for a record in the last segment, mapping a new one if it does not fit.
+     */
+    private MappedByteBuffer reserve(int size) {
+        MappedByteBuffer[] mapped = segments;
+        if (mapped.length > 0 && mapped[mapped.length - 1].capacity() - position >= size) {
+            return mapped[mapped.length - 1];
+        }
+        int segmentSize = Math.max(SEGMENT_SIZE, size);
+        try {
+            MappedByteBuffer segment = file.map(FileChannel.MapMode.READ_WRITE, fileSize, segmentSize);
+            fileSize += segmentSize;
+            mapped = Arrays.copyOf(mapped, mapped.length + 1);
+            mapped[mapped.length - 1] = segment;
+            segments = mapped;
+            position = 0;
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not grow the task storage file", e);
+        }
+    }
+
+    private Task read(long offset) {
+        MappedByteBuffer segment = segments[(int) (offset - 1 >>> 32)];
+        int at = (int) (offset - 1);
+        int id = segment.getInt(at);
+        at += 4;
+        String name = string(segment, at);
+        at += 4 + Math.max(segment.getInt(at), 0);
+        at += 4 + Math.max(segment.getInt(at), 0);
+        return new Task(name, string(segment, at), id);
+    }
+
+    private static boolean contains(MappedByteBuffer segment, int from, int length, byte[] pattern) {
+        int end = from + length - pattern.length;
+        if (pattern.length == 0) return true;
+        byte first = pattern[0];
+        for (int i = from; i <= end; i++) {
+            if (segment.get(i) != first) continue;
+            int j = 1;
+            while (j < pattern.length && segment.get(i + j) == pattern[j]) j++;
+            if (j == pattern.length) return true;
+        }
+        return false;
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] value) {
+        return 4 + (value == null ? 0 : value.length);
+    }
+
+    private static int put(MappedByteBuffer segment, int at, byte[] value) {
+        if (value == null) {
+            segment.putInt(at, -1);
+            return at + 4;
+        }
+        segment.putInt(at, value.length);
+        segment.put(at + 4, value);
+        return at + 4 + value.length;
+    }
+
+    private static String string(MappedByteBuffer segment, int at) {
+        int length = segment.getInt(at);
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        segment.get(at + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
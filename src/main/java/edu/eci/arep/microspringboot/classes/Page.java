@@ -0,0 +1,47 @@
+package edu.eci.arep.microspringboot.classes;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a listing, serialized as {@code {"items":[...],"nextCursor":"..."}}.
+ * The cursor is opaque to clients: they send it back to get the next page, and it is null on
+ * the last page.
+ * @param <T> type of the items
+ */
+public class Page<T> {
+    List<T> items;
+    String nextCursor;
+
+    public Page(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Takes the first items of an ordered sequence, reading one more to know if a next page exists.
+     * @param items  the items from the requested position on
+     * @param limit  maximum number of items of the page
+     * @param cursor gives the cursor of the position right after an item
+     * @param <T>    type of the items
+     * @return the page
+     */
+    public static <T> Page<T> of(Iterable<T> items, int limit, Function<T, String> cursor) {
+        List<T> page = new ArrayList<>(Math.min(limit, 1024));
+        Iterator<T> it = items.iterator();
+        while (page.size() < limit && it.hasNext()) {
+            page.add(it.next());
+        }
+        String next = it.hasNext() && !page.isEmpty() ? cursor.apply(page.get(page.size() - 1)) : null;
+        return new Page<>(page, next);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
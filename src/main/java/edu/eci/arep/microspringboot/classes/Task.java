@@ -5,6 +5,11 @@ public class Task {
     String name;
     String description;
 
+    /**
+     * Empty task, filled from the JSON body of a request.
+     */
+    Task() {
+    }
     public Task(String name, String description, int id) {
         this.name = name;
         this.description = description;
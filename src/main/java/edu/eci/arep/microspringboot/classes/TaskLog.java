@@ -0,0 +1,465 @@
+package edu.eci.arep.microspringboot.classes;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Append-only write-ahead log of the task mutations, with snapshots.
+ * <p>
+ * Each mutation is a frame {@code [length][crc32][type][id][name][description]} appended to the
+ * current log file and forced to disk before the mutation is applied in memory. With group
+ * commit the first writer to reach the disk writes and forces the frames of every writer
+ * waiting behind it, so concurrent requests share one fsync.
+ * <p>
+ * Log files are numbered by generation. Every {@code snapshotEvery} records the log moves to a
+ * new generation and a snapshot of the tasks in memory is written in the background, replacing
+ * the sealed generations. A mutation holds the read side of a lock from its append until it
+ * is applied, and the generation switch takes the write side, so every record of a sealed
+ * generation is already in memory when the snapshot reads it. On startup the snapshot is
+ * loaded and the newer generations are replayed; a frame cut by a crash, or whose length does
+ * not fit in the file, ends the replay and is truncated.
+ */
+class TaskLog implements Closeable {
+    /** Creates or replaces a task. */
+    static final byte PUT = 1;
+    /** Removes a task. */
+    static final byte DELETE = 2;
+    static final int DEFAULT_SNAPSHOT_EVERY = 100_000;
+    /** Largest frame payload written or read, a larger length read from the disk is corrupt. */
+    static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+    private static final int SNAPSHOT_MAGIC = 0x54534E50;
+    private static final String SNAPSHOT = "tasks.snapshot";
+
+    /**
+     * When a mutation is considered durable.
+     */
+    enum Sync {
+        /** Frames of concurrent writers are forced together, one fsync per batch. */
+        GROUP,
+        /** Every frame is written and forced on its own. */
+        PER_RECORD
+    }
+
+    /**
+     * Receives the mutations read from the disk on startup.
+     */
+    interface Replay {
+        void put(int id, String name, String description);
+
+        void delete(int id);
+
+        /** The last id allocated when the snapshot was written, deleted tasks included. */
+        void lastId(int id);
+    }
+
+    private final Path directory;
+    private final Sync sync;
+    private final int snapshotEvery;
+    private final ReadWriteLock mutations = new ReentrantReadWriteLock();
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private final Object appendLock = new Object();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "task-log-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final Supplier<Iterable<Task>> tasks;
+    private final IntSupplier lastId;
+    //guarded by appendLock
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long appended;
+    private int sinceSnapshot;
+    //guarded by commitLock
+    private FileChannel channel;
+    private long generation;
+    private IOException failure;
+    private volatile long durable;
+
+    /**
+     * Opens the log of a directory, replaying its content.
+     * @param directory     directory of the log files, created if missing
+     * @param sync          when a mutation is durable
+     * @param snapshotEvery records between snapshots
+     * @param replay        receives the stored mutations, in order
+     * @param tasks         gives the tasks in memory, for the snapshots
+     * @param lastId        gives the last id allocated, for the snapshots
+     * @return the log, ready to append
+     * @throws IOException if the directory or its files cannot be read
+     */
+    static TaskLog open(Path directory, Sync sync, int snapshotEvery, Replay replay,
+                        Supplier<Iterable<Task>> tasks, IntSupplier lastId) throws IOException {
+        Files.createDirectories(directory);
+        TaskLog log = new TaskLog(directory, sync, snapshotEvery, tasks, lastId);
+        long covered = log.loadSnapshot(replay);
+        long last = covered;
+        for (long generation : log.generations()) {
+            if (generation <= covered) {
+                //sealed by a snapshot that was written, but not deleted before the process stopped
+                Files.deleteIfExists(log.logFile(generation));
+                continue;
+            }
+            log.replay(generation, replay);
+            last = generation;
+        }
+        log.generation = last + 1;
+        log.channel = FileChannel.open(log.logFile(log.generation), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        //the records forced into the new file are lost if its directory entry is not on disk
+        forceDirectory(directory);
+        return log;
+    }
+
+    private TaskLog(Path directory, Sync sync, int snapshotEvery, Supplier<Iterable<Task>> tasks, IntSupplier lastId) {
+        this.directory = directory;
+        this.sync = sync;
+        this.snapshotEvery = snapshotEvery;
+        this.tasks = tasks;
+        this.lastId = lastId;
+    }
+
+    /**
+     * Makes a mutation durable, then applies it.
+     * @param type  {@link #PUT} or {@link #DELETE}
+     * @param task  the task written, or removed
+     * @param apply changes the tasks in memory once the record is on disk
+     * @throws IOException if the record cannot be written; the log then refuses every later record
+     */
+    void record(byte type, Task task, Runnable apply) throws IOException {
+        byte[] frame = frame(type, task);
+        if (frame.length - 8 > MAX_FRAME_SIZE) throw new IOException("Task too large for the task log: " + task.getId());
+        boolean snapshot;
+        mutations.readLock().lock();
+        try {
+            long sequence;
+            synchronized (appendLock) {
+                if (sync == Sync.GROUP) pending.write(frame, 0, frame.length);
+                sequence = ++appended;
+                snapshot = ++sinceSnapshot >= snapshotEvery;
+                if (snapshot) sinceSnapshot = 0;
+            }
+            if (sync == Sync.GROUP) commit(sequence);
+            else write(frame);
+            apply.run();
+        } finally {
+            mutations.readLock().unlock();
+        }
+        if (snapshot && compacting.compareAndSet(false, true)) {
+            compactor.execute(() -> {
+                try {
+                    snapshot();
+                } catch (IOException e) {
+                    //the sealed generations stay on disk and are replayed instead
+                    System.err.println("Could not write the task snapshot: " + e.getMessage());
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes and forces the pending frames up to a sequence number, unless another writer
+     * already did it while this one waited.
+     */
+    private void commit(long sequence) throws IOException {
+        commitLock.lock();
+        try {
+            if (durable >= sequence) return;
+            byte[] batch;
+            long upTo;
+            synchronized (appendLock) {
+                batch = pending.toByteArray();
+                pending.reset();
+                upTo = appended;
+            }
+            writeAndForce(batch);
+            durable = upTo;
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    /**
+     * Writes and forces one frame on its own.
+     */
+    private void write(byte[] frame) throws IOException {
+        commitLock.lock();
+        try {
+            writeAndForce(frame);
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    private void writeAndForce(byte[] bytes) throws IOException {
+        if (failure != null) throw new IOException("Task log unusable after a failed write", failure);
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(false);
+        } catch (IOException e) {
+            //what reached the disk is unknown, later records could follow a torn frame
+            failure = e;
+            throw e;
+        }
+    }
+
+    /**
+     * Moves the log to a new generation and replaces the sealed ones by a snapshot of the tasks
+     * in memory.
+     * @throws IOException if the snapshot cannot be written
+     */
+    void snapshot() throws IOException {
+        long sealed;
+        //no mutation is between its append and its apply while the generation changes
+        mutations.writeLock().lock();
+        try {
+            commitLock.lock();
+            try {
+                if (failure != null) throw new IOException("Task log unusable after a failed write", failure);
+                sealed = generation;
+                FileChannel next = FileChannel.open(logFile(sealed + 1), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                try {
+                    forceDirectory(directory);
+                } catch (IOException e) {
+                    next.close();
+                    throw e;
+                }
+                channel.close();
+                channel = next;
+                generation = sealed + 1;
+            } finally {
+                commitLock.unlock();
+            }
+        } finally {
+            mutations.writeLock().unlock();
+        }
+        //records of the new generation may already be in memory: replaying them again is harmless
+        writeSnapshot(sealed);
+        //only once the snapshot is durable, its move included
+        for (long generation : generations()) {
+            if (generation <= sealed) Files.deleteIfExists(logFile(generation));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (failure == null) snapshot();
+        } finally {
+            commitLock.lock();
+            try {
+                channel.close();
+            } finally {
+                commitLock.unlock();
+            }
+        }
+    }
+
+    private Path logFile(long generation) {
+        return directory.resolve(String.format("tasks-%016x.log", generation));
+    }
+
+    private List<Long> generations() throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (var files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.matches("tasks-[0-9a-f]{16}\\.log"))
+                    .forEach(name -> generations.add(Long.parseLong(name.substring(6, 22), 16)));
+        }
+        generations.sort(null);
+        return generations;
+    }
+
+    private static byte[] frame(byte type, Task task) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try {
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeByte(type);
+            out.writeInt(task.getId());
+            if (type == PUT) {
+                writeString(out, task.getName());
+                writeString(out, task.getDescription());
+            }
+        } catch (IOException e) {
+            //a memory stream does not fail
+            throw new IllegalStateException(e);
+        }
+        byte[] frame = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(frame, 8, frame.length - 8);
+        ByteBuffer.wrap(frame).putInt(frame.length - 8).putInt((int) crc.getValue());
+        return frame;
+    }
+
+    private void replay(long generation, Replay replay) throws IOException {
+        Path file = logFile(generation);
+        long size = Files.size(file);
+        long valid = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                int crc = in.readInt();
+                //a torn or corrupt length, reading it would allocate up to 2 GB
+                if (length < 5 || length > MAX_FRAME_SIZE || length > size - valid - 8) break;
+                byte[] payload = new byte[length];
+                try {
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 check = new CRC32();
+                check.update(payload);
+                if ((int) check.getValue() != crc) break;
+                apply(payload, replay);
+                valid += 8 + length;
+            }
+        } catch (EOFException e) {
+            //a header cut by a crash
+        }
+        if (valid < size) {
+            //the frame the process was writing when it stopped was never acknowledged
+            System.err.println("Truncating the task log " + file.getFileName() + " at byte " + valid);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(valid);
+                channel.force(true);
+            }
+        }
+    }
+
+    private static void apply(byte[] payload, Replay replay) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        int id = in.readInt();
+        if (type == PUT) replay.put(id, readString(in), readString(in));
+        else if (type == DELETE) replay.delete(id);
+    }
+
+    /**
+     * Writes the snapshot to a temporary file and moves it over the previous one, so a crash
+     * leaves either snapshot complete. The directory is forced after the move, which is only
+     * durable once the directory entry is on disk.
+     */
+    private void writeSnapshot(long covered) throws IOException {
+        Path temporary = directory.resolve(SNAPSHOT + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream file = Files.newOutputStream(temporary);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(file, crc)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(covered);
+            out.writeInt(lastId.getAsInt());
+            for (Task task : tasks.get()) {
+                out.writeBoolean(true);
+                out.writeInt(task.getId());
+                writeString(out, task.getName());
+                writeString(out, task.getDescription());
+            }
+            out.writeBoolean(false);
+            out.flush();
+            new DataOutputStream(file).writeInt((int) crc.getValue());
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(directory);
+    }
+
+    /**
+     * Forces the entries of a directory, its created, renamed and deleted files, to disk.
+     * Windows cannot open a directory as a file; NTFS journals those changes itself.
+     */
+    private static void forceDirectory(Path directory) throws IOException {
+        if (File.separatorChar == '\\') return;
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * @return the last generation the snapshot covers, 0 without snapshot
+     */
+    private long loadSnapshot(Replay replay) throws IOException {
+        Path file = directory.resolve(SNAPSHOT);
+        if (!Files.exists(file)) return 0;
+        CRC32 crc = new CRC32();
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(file))) {
+            DataInputStream in = new DataInputStream(new CheckedInputStream(raw, crc));
+            if (in.readInt() != SNAPSHOT_MAGIC) throw new IOException("Not a task snapshot: " + file);
+            long covered = in.readLong();
+            int lastId = in.readInt();
+            while (in.readBoolean()) {
+                replay.put(in.readInt(), readString(in), readString(in));
+            }
+            int expected = new DataInputStream(raw).readInt();
+            if (expected != (int) crc.getValue()) throw new IOException("Corrupted task snapshot: " + file);
+            replay.lastId(lastId);
+            return covered;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        if (length > MAX_FRAME_SIZE) throw new IOException("Corrupted string length: " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,34 +1,190 @@
 package edu.eci.arep.microspringboot.classes;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
+/**
+ * In-memory task store shared by every worker thread.
+ * Ids come from an atomic counter and tasks are kept in a concurrent {@link TaskStore} ordered
+ * by id, on the heap or off it depending on the {@link TaskStorage}, so tasks saved at the same
+ * time never share an id or get lost, and readers never block writers. On the heap names are
+ * indexed by {@link TaskNameIndex} each time a task is saved or updated; the entry of its
+ * previous version, or of a deleted task, stays in the index as a stale entry that searches
+ * filter out, until more than a quarter of the entries, and over
+ * {@link HeapTaskStore#MIN_STALE_ENTRIES}, are stale and the index is rebuilt from the live
+ * tasks. Once {@link #open} is called every saved task is written to a {@link TaskLog} before
+ * it becomes visible, and the tasks saved before a restart are loaded back.
+ * The shared instance uses the storage named by the environment variable {@code TASKS_STORAGE},
+ * {@link TaskStorage#HEAP} by default.
+ */
 public class TaskManager {
-    List<Task> tasks;
-    int lastId;
-    static TaskManager taskManager;
+    final TaskStore tasks;
+    final AtomicInteger lastId;
+    private volatile TaskLog log;
+    private final List<Consumer<Task>> changeListeners = new CopyOnWriteArrayList<>();
+
+    //initialized by the class loader the first time getTaskManager is called, without locking
+    private static final class Holder {
+        static final TaskManager INSTANCE = new TaskManager(System.getenv("TASKS_STORAGE") != null
+                ? TaskStorage.valueOf(System.getenv("TASKS_STORAGE").toUpperCase()) : TaskStorage.HEAP);
+    }
+
     public TaskManager() {
-        this.tasks = new ArrayList<Task>();
-        this.lastId = 0;
+        this(TaskStorage.HEAP);
+    }
+    /**
+     * @param storage where the tasks are kept
+     */
+    public TaskManager(TaskStorage storage) {
+        this.tasks = storage == TaskStorage.OFF_HEAP ? new OffHeapTaskStore() : new HeapTaskStore();
+        this.lastId = new AtomicInteger();
     }
     public static TaskManager getTaskManager(){
-        if(taskManager == null){
-            taskManager = new TaskManager();
-        }
-        return taskManager;
+        return Holder.INSTANCE;
     }
+    /**
+     * Registers code to run after every task saved, updated or deleted, for instance to drop
+     * the responses that showed the previous version of the task.
+     * @param listener called by the thread that changed the tasks with the task saved, updated
+     *                 or deleted, once the change is visible
+     */
+    public void addChangeListener(Consumer<Task> listener) {
+        changeListeners.add(listener);
+    }
+    /**
+     * Loads the tasks stored in a directory and keeps every new task there, with group commit.
+     * @param directory directory of the task log, created if missing
+     * @throws IOException if the stored tasks cannot be read
+     */
+    public void open(Path directory) throws IOException {
+        open(directory, true);
+    }
+    /**
+     * Loads the tasks stored in a directory and keeps every new task there.
+     * @param directory   directory of the task log, created if missing
+     * @param groupCommit whether concurrent saves share one fsync, or each save forces its own
+     * @throws IOException if the stored tasks cannot be read
+     */
+    public synchronized void open(Path directory, boolean groupCommit) throws IOException {
+        if (log != null || !tasks.isEmpty()) throw new IllegalStateException("The task manager already has tasks");
+        log = TaskLog.open(directory, groupCommit ? TaskLog.Sync.GROUP : TaskLog.Sync.PER_RECORD,
+                TaskLog.DEFAULT_SNAPSHOT_EVERY, new TaskLog.Replay() {
+                    @Override
+                    public void put(int id, String name, String description) {
+                        tasks.put(new Task(name, description, id));
+                        lastId.accumulateAndGet(id, Math::max);
+                    }
+                    @Override
+                    public void delete(int id) {
+                        tasks.remove(id);
+                    }
+                    @Override
+                    public void lastId(int id) {
+                        lastId.accumulateAndGet(id, Math::max);
+                    }
+                }, () -> tasks.after(0), lastId::get);
+    }
+    /**
+     * Writes a snapshot of the tasks and closes the task log, new tasks are then only kept in memory.
+     * @throws IOException if the snapshot cannot be written
+     */
+    public synchronized void close() throws IOException {
+        TaskLog current = log;
+        if (current == null) return;
+        log = null;
+        current.close();
+    }
+    /**
+     * Saves a task. With a task log the task is on disk when this method returns.
+     * @throws UncheckedIOException if the task cannot be written to the task log
+     */
     public Task addTask(String name, String description) {
-        lastId++;
-        Task task = new Task(name, description, lastId);
-        this.tasks.add(task);
+        Task task = new Task(name, description, lastId.incrementAndGet());
+        apply(TaskLog.PUT, task, () -> tasks.put(task));
         return task;
-
     }
+    /**
+     * Replaces the name and description of a task, which keeps its id.
+     * With a task log the change is on disk when this method returns.
+     * @return the updated task, or null if there is no task with the id
+     * @throws UncheckedIOException if the change cannot be written to the task log
+     */
+    public synchronized Task updateTask(int id, String name, String description) {
+        //synchronized with deleteTask, a task deleted meanwhile is never put back
+        if (tasks.get(id) == null) return null;
+        Task task = new Task(name, description, id);
+        apply(TaskLog.PUT, task, () -> tasks.put(task));
+        return task;
+    }
+    /**
+     * Removes a task. With a task log the removal is on disk when this method returns.
+     * @return true if the task existed
+     * @throws UncheckedIOException if the removal cannot be written to the task log
+     */
+    public synchronized boolean deleteTask(int id) {
+        Task task = tasks.get(id);
+        if (task == null) return false;
+        apply(TaskLog.DELETE, task, () -> tasks.remove(id));
+        return true;
+    }
+    //the change is applied once it is in the task log, if there is one
+    private void apply(byte type, Task task, Runnable change) {
+        TaskLog current = log;
+        if (current == null) {
+            change.run();
+        } else {
+            try {
+                current.record(type, task, change);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not save task " + task.getId(), e);
+            }
+        }
+        for (Consumer<Task> listener : changeListeners) listener.accept(task);
+    }
+    /**
+     * @return the tasks ordered by id, a copy unaffected by tasks saved while it is used
+     */
     public List<Task> getTasks() {
-        return tasks;
+        return List.copyOf(tasks.after(0));
     }
+    /**
+     * @param afterId id the tasks must be greater than, 0 for the first task
+     * @return a live view of the tasks after the id, ordered by id; reading its first elements
+     *         does not depend on how many tasks are stored
+     */
+    public Collection<Task> getTasksAfter(int afterId) {
+        return tasks.after(afterId);
+    }
+    public Task getTask(int id) {
+        return this.tasks.get(id);
+    }
+    /**
+     * @param name text the task names must contain, ignoring case
+     * @return the matching tasks ordered by id
+     */
     public List<Task> getTasksByName(String name) {
-        return this.tasks.stream().filter(x -> x.getName().toLowerCase().contains(name.toLowerCase())).collect(Collectors.toList());
+        return tasks.search(name);
+    }
+    /**
+     * @param name    text the task names must contain, ignoring case
+     * @param afterId id the tasks must be greater than, 0 for the first task
+     * @return the matching tasks after the id, ordered by id
+     */
+    public List<Task> getTasksByName(String name, int afterId) {
+        List<Task> matches = tasks.search(name);
+        int from = 0;
+        //the matches are ordered by id: skip the ones up to the cursor with a binary search
+        for (int to = matches.size(); from < to; ) {
+            int mid = (from + to) >>> 1;
+            if (matches.get(mid).getId() <= afterId) from = mid + 1;
+            else to = mid;
+        }
+        return matches.subList(from, matches.size());
     }
 }
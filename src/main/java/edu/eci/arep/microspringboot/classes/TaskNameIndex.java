@@ -0,0 +1,140 @@
+package edu.eci.arep.microspringboot.classes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Trigram inverted index of the task names, for substring search.
+ * Each name is case-folded once, when the task is saved, and every run of three characters of
+ * the folded name points to the tasks containing it. A query only verifies the tasks of its
+ * rarest trigram instead of scanning every task. Queries shorter than a trigram scan the
+ * folded names, which are never folded again.
+ * <p>
+ * Entries are only ever added: a task removed or replaced stays indexed until the owner of the
+ * index builds a new one, {@link #staleCount} tells how many such entries it holds.
+ */
+class TaskNameIndex {
+    private static final int GRAM = 3;
+    private final Map<Long, Postings> postings = new ConcurrentHashMap<>();
+    /** Every indexed task, for queries shorter than a trigram. */
+    private final Postings all = new Postings();
+    private final AtomicInteger stale = new AtomicInteger();
+
+    /**
+     * A task with its folded name, so verifying a candidate needs no lookup.
+     */
+    private record Entry(Task task, String folded) {
+    }
+
+    /**
+     * @param text a name or a query
+     * @return the text in the case used by the index
+     */
+    static String fold(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Indexes the name of a saved task.
+     * @param task the task
+     */
+    void add(Task task) {
+        Entry entry = new Entry(task, task.getName() == null ? "" : fold(task.getName()));
+        all.add(entry);
+        long[] grams = trigrams(entry.folded());
+        Arrays.sort(grams);
+        for (int i = 0; i < grams.length; i++) {
+            //a trigram repeated in the name is indexed once
+            if (i > 0 && grams[i] == grams[i - 1]) continue;
+            postings.computeIfAbsent(grams[i], k -> new Postings()).add(entry);
+        }
+    }
+
+    /**
+     * Records that an indexed task was removed or replaced, its entries no longer match the stored task.
+     */
+    void invalidate() {
+        stale.incrementAndGet();
+    }
+
+    /**
+     * @return number of entries of tasks removed or replaced since they were indexed
+     */
+    int staleCount() {
+        return stale.get();
+    }
+
+    /**
+     * @return number of tasks indexed, stale ones included
+     */
+    int size() {
+        return all.size;
+    }
+
+    /**
+     * Finds the tasks whose name contains the query, ignoring case.
+     * @param query the substring to find
+     * @return the matching tasks ordered by id
+     */
+    List<Task> search(String query) {
+        String folded = fold(query);
+        Postings candidates = all;
+        if (folded.length() >= GRAM) {
+            candidates = null;
+            for (long gram : trigrams(folded)) {
+                Postings tasks = postings.get(gram);
+                //a trigram no name contains: nothing can match
+                if (tasks == null) return new ArrayList<>();
+                if (candidates == null || tasks.size < candidates.size) candidates = tasks;
+            }
+        }
+        int size = candidates.size;
+        Entry[] entries = candidates.entries;
+        List<Task> matches = new ArrayList<>();
+        boolean ordered = true;
+        int lastId = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            Entry entry = entries[i];
+            if (!entry.folded().contains(folded)) continue;
+            int id = entry.task().getId();
+            ordered &= id > lastId;
+            lastId = id;
+            matches.add(entry.task());
+        }
+        //tasks saved concurrently may be indexed out of order
+        if (!ordered) matches.sort(Comparator.comparingInt(Task::getId));
+        return matches;
+    }
+
+    private static long[] trigrams(String folded) {
+        int count = Math.max(0, folded.length() - GRAM + 1);
+        long[] grams = new long[count];
+        for (int i = 0; i < count; i++) {
+            grams[i] = (long) folded.charAt(i) << 32 | (long) folded.charAt(i + 1) << 16 | folded.charAt(i + 2);
+        }
+        return grams;
+    }
+
+    /**
+     * Tasks containing one trigram. Appends are serialized, reads take no lock: {@link #size}
+     * is written after the array, so a reader that sees a size also sees an array holding at
+     * least that many entries.
+     */
+    private static final class Postings {
+        private Entry[] entries = new Entry[4];
+        private volatile int size;
+
+        synchronized void add(Entry entry) {
+            int n = size;
+            if (n == entries.length) entries = Arrays.copyOf(entries, n * 2);
+            entries[n] = entry;
+            size = n + 1;
+        }
+    }
+}
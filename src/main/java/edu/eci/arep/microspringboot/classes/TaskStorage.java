@@ -0,0 +1,17 @@
+package edu.eci.arep.microspringboot.classes;
+
+/**
+ * Where a {@link TaskManager} keeps its tasks.
+ */
+public enum TaskStorage {
+    /**
+     * One {@link Task} object per task in a concurrent map, with a trigram index of the names.
+     */
+    HEAP,
+    /**
+     * Compact records in memory-mapped segments outside the heap, so millions of tasks add
+     * almost nothing for the garbage collector to trace. {@link Task} objects are decoded
+     * on every read, and names are searched by scanning the records.
+     */
+    OFF_HEAP
+}
@@ -0,0 +1,40 @@
+package edu.eci.arep.microspringboot.classes;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Tasks of a {@link TaskManager}, safe for concurrent readers and writers.
+ */
+interface TaskStore {
+    /**
+     * Saves a task, replacing the task with the same id.
+     * @param task the task
+     */
+    void put(Task task);
+
+    /**
+     * @param id the task id
+     * @return the task, or null if there is no task with the id
+     */
+    Task get(int id);
+
+    /**
+     * @param id id of the task to remove
+     */
+    void remove(int id);
+
+    /**
+     * @param afterId id the tasks must be greater than, 0 for the first task
+     * @return a live view of the tasks after the id, ordered by id
+     */
+    Collection<Task> after(int afterId);
+
+    /**
+     * @param query text the task names must contain, ignoring case
+     * @return the matching tasks ordered by id
+     */
+    List<Task> search(String query);
+
+    boolean isEmpty();
+}
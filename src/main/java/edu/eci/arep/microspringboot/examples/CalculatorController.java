@@ -1,5 +1,6 @@
 package edu.eci.arep.microspringboot.examples;
 
+import edu.eci.arep.microspringboot.annotations.Cacheable;
 import edu.eci.arep.microspringboot.annotations.GetMapping;
 import edu.eci.arep.microspringboot.annotations.RequestMapping;
 import edu.eci.arep.microspringboot.annotations.RequestParam;
@@ -9,10 +10,9 @@ import edu.eci.arep.microspringboot.annotations.RestController;
 @RequestMapping("/v1/calculate/maths")
 public class CalculatorController {
 
+    @Cacheable
     @GetMapping
-    public static String calculate(@RequestParam(value = "operation", defaultValue = "+") String operation, @RequestParam(value = "a", defaultValue = "1") String a, @RequestParam(value = "b", defaultValue = "1") String b){
-        int numbera = Integer.parseInt(a);
-        int numberb = Integer.parseInt(b);
+    public static String calculate(@RequestParam(value = "operation", defaultValue = "+") String operation, @RequestParam(value = "a", defaultValue = "1") int numbera, @RequestParam(value = "b", defaultValue = "1") int numberb){
         String result = "Result: ";
         return switch (operation) {
             case "+" -> result + (numbera + numberb);
@@ -21,8 +21,9 @@ public class CalculatorController {
             default -> result + (numberb > 0 ? numbera / numberb : "Cannot divide");
         };
     }
+    @Cacheable
     @GetMapping("/square")
-    public static String getSquare(@RequestParam(value = "number", defaultValue = "1") String number){
-        return "Square of "+number+" : "+Integer.parseInt(number)*Integer.parseInt(number);
+    public static String getSquare(@RequestParam(value = "number", defaultValue = "1") int number){
+        return "Square of "+number+" : "+number*number;
     }
 }
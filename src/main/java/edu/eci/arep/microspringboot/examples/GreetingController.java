@@ -4,6 +4,7 @@
  */
 package edu.eci.arep.microspringboot.examples;
 
+import edu.eci.arep.microspringboot.annotations.Cacheable;
 import edu.eci.arep.microspringboot.annotations.GetMapping;
 import edu.eci.arep.microspringboot.annotations.RequestParam;
 import edu.eci.arep.microspringboot.annotations.RestController;
@@ -16,6 +17,7 @@ import edu.eci.arep.microspringboot.annotations.RestController;
 @RestController
 public class GreetingController {
 
+	@Cacheable
 	@GetMapping("/greeting")
 	public static String greeting(@RequestParam(value = "name", defaultValue = "World") String name) {
 		return "Hello " + name;
@@ -1,10 +1,18 @@
 package edu.eci.arep.microspringboot.examples;
 
+import edu.eci.arep.microspringboot.annotations.Cacheable;
+import edu.eci.arep.microspringboot.annotations.DeleteMapping;
 import edu.eci.arep.microspringboot.annotations.GetMapping;
+import edu.eci.arep.microspringboot.annotations.PathVariable;
+import edu.eci.arep.microspringboot.annotations.PostMapping;
+import edu.eci.arep.microspringboot.annotations.PutMapping;
+import edu.eci.arep.microspringboot.annotations.RequestBody;
 import edu.eci.arep.microspringboot.annotations.RequestMapping;
 import edu.eci.arep.microspringboot.annotations.RequestParam;
 import edu.eci.arep.microspringboot.annotations.RestController;
+import edu.eci.arep.microspringboot.classes.Page;
 import edu.eci.arep.microspringboot.classes.Task;
+import edu.eci.arep.microspringboot.httpserver.HttpResponse;
 
 import java.util.List;
 
@@ -13,9 +21,70 @@ import static edu.eci.arep.microspringboot.classes.TaskManager.getTaskManager;
 @RestController
 @RequestMapping("/task")
 public class TaskController {
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * Lists the tasks. Without limit or cursor the whole list is returned; with any of them
+     * the response is one page with the cursor of the next one, so listing the first tasks
+     * costs the same however many tasks exist.
+     * @param name   text the task names must contain, "All" for every task
+     * @param limit  tasks per page, from 1 to {@value #MAX_PAGE_SIZE}, {@value #DEFAULT_PAGE_SIZE} when only the cursor is sent
+     * @param cursor nextCursor of the previous page, absent for the first page
+     * @return the tasks, or 400 if limit or cursor are invalid
+     */
     @GetMapping
-    public static List<Task> getTasks(@RequestParam(value = "name", defaultValue = "All") String name) {
-        if(name.equals("All")) return getTaskManager().getTasks();
-        return getTaskManager().getTasksByName(name);
+    public static HttpResponse getTasks(@RequestParam(value = "name", defaultValue = "All") String name,
+                                        @RequestParam("limit") Integer limit,
+                                        @RequestParam("cursor") Integer cursor) {
+        if(limit == null && cursor == null) {
+            List<Task> tasks = name.equals("All") ? getTaskManager().getTasks() : getTaskManager().getTasksByName(name);
+            return new HttpResponse().json(tasks);
+        }
+        int size = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        int afterId = cursor != null ? cursor : 0;
+        if(size < 1 || size > MAX_PAGE_SIZE) return new HttpResponse(400, "limit must be between 1 and " + MAX_PAGE_SIZE);
+        if(afterId < 0) return new HttpResponse(400, "Invalid cursor: " + cursor);
+        Iterable<Task> tasks = name.equals("All") ? getTaskManager().getTasksAfter(afterId) : getTaskManager().getTasksByName(name, afterId);
+        return new HttpResponse().json(Page.of(tasks, size, task -> String.valueOf(task.getId())));
+    }
+    @Cacheable
+    @GetMapping("/{id}")
+    public static HttpResponse getTask(@PathVariable("id") int id) {
+        Task task = getTaskManager().getTask(id);
+        if(task == null) return new HttpResponse(404, "Task "+id+" not found");
+        return new HttpResponse(200, task);
+    }
+    /**
+     * Saves a task sent as {@code {"name":"...","description":"..."}}.
+     * @return the saved task with its id, or 400 if the name or the description is missing
+     */
+    @PostMapping
+    public static HttpResponse saveTask(@RequestBody Task task) {
+        if(isBlank(task.getName()) || isBlank(task.getDescription())) {
+            return new HttpResponse(400,"Missing values, Task Name and Task Description are required");
+        }
+        return new HttpResponse(200, getTaskManager().addTask(task.getName(), task.getDescription()));
+    }
+    /**
+     * Replaces the name and description of a task.
+     * @return the updated task, 404 if it does not exist or 400 if the name or the description is missing
+     */
+    @PutMapping("/{id}")
+    public static HttpResponse updateTask(@PathVariable("id") int id, @RequestBody Task task) {
+        if(isBlank(task.getName()) || isBlank(task.getDescription())) {
+            return new HttpResponse(400,"Missing values, Task Name and Task Description are required");
+        }
+        Task updated = getTaskManager().updateTask(id, task.getName(), task.getDescription());
+        if(updated == null) return new HttpResponse(404, "Task "+id+" not found");
+        return new HttpResponse(200, updated);
+    }
+    @DeleteMapping("/{id}")
+    public static HttpResponse deleteTask(@PathVariable("id") int id) {
+        if(!getTaskManager().deleteTask(id)) return new HttpResponse(404, "Task "+id+" not found");
+        return new HttpResponse().status(204);
+    }
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
     }
 }
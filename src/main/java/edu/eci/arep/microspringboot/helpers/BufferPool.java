@@ -0,0 +1,197 @@
+package edu.eci.arep.microspringboot.helpers;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of the buffers the request/response path borrows for the duration of a connection or
+ * of a response, instead of allocating them every time.
+ * Buffers come in size classes, powers of two from {@link #MIN_SIZE} to {@link #MAX_SIZE}: a
+ * request is served with a buffer of the smallest class that holds it, larger requests are
+ * allocated and never kept. Each class keeps at most {@link #MAX_POOLED_BYTES} of idle buffers
+ * in a bounded queue shared by every thread; there are no per-thread caches because a virtual
+ * thread lives for a single connection, its cache would never be reused.
+ * <p>
+ * A buffer must be released exactly once, and not used after that. With the system property
+ * {@value #LEAK_DETECTION_PROPERTY} set (the tests set it), every borrower gets its own view of
+ * the pooled buffer: a view garbage collected without being released is reported as a leak
+ * with the stack trace of its acquisition, and releasing a view twice, or a buffer that does
+ * not come from the pool, throws an {@link IllegalStateException}.
+ */
+public final class BufferPool {
+    public static final String LEAK_DETECTION_PROPERTY = "microspringboot.buffers.leakDetection";
+    static final int MIN_SIZE = 4 * 1024;
+    static final int MAX_SIZE = 64 * 1024;
+    static final int MAX_POOLED_BYTES = 4 * 1024 * 1024;
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_SIZE);
+    private static final int CLASSES = Integer.numberOfTrailingZeros(MAX_SIZE) - MIN_SHIFT + 1;
+    private static final boolean LEAK_DETECTION = Boolean.getBoolean(LEAK_DETECTION_PROPERTY);
+
+    /** Heap buffers, for the code that works on arrays. */
+    public static final BufferPool HEAP = new BufferPool(false);
+    /** Direct buffers, written to channels without being copied first. */
+    public static final BufferPool DIRECT = new BufferPool(true);
+
+    private final boolean direct;
+    private final ArrayBlockingQueue<ByteBuffer>[] idle;
+    private final ReferenceQueue<ByteBuffer> collected = new ReferenceQueue<>();
+    /** Views not released yet, by identity hash code. */
+    private final ConcurrentHashMap<Integer, Tracker> borrowed = new ConcurrentHashMap<>();
+    private final AtomicLong leaks = new AtomicLong();
+
+    /**
+     * View of a pooled buffer handed out with leak detection on.
+     */
+    private static final class Tracker extends WeakReference<ByteBuffer> {
+        final ByteBuffer pooled;
+        final int hash;
+        final Throwable acquiredAt = new Throwable("Buffer acquired here");
+        /** Next view with the same identity hash code. */
+        Tracker next;
+
+        Tracker(ByteBuffer view, ByteBuffer pooled, ReferenceQueue<ByteBuffer> queue) {
+            super(view, queue);
+            this.pooled = pooled;
+            this.hash = System.identityHashCode(view);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private BufferPool(boolean direct) {
+        this.direct = direct;
+        idle = new ArrayBlockingQueue[CLASSES];
+        for (int i = 0; i < CLASSES; i++) {
+            idle[i] = new ArrayBlockingQueue<>(MAX_POOLED_BYTES / (MIN_SIZE << i));
+        }
+    }
+
+    /**
+     * Borrows a buffer.
+     * @param size number of bytes needed
+     * @return a cleared buffer of at least {@code size} bytes, to {@link #release} once it is no longer used
+     */
+    public ByteBuffer acquire(int size) {
+        int index = classOf(size);
+        if (index < 0) return allocate(size);
+        ByteBuffer buffer = idle[index].poll();
+        if (buffer == null) buffer = allocate(MIN_SIZE << index);
+        buffer.clear();
+        return LEAK_DETECTION ? track(buffer) : buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool. Buffers larger than {@link #MAX_SIZE} are left to the garbage collector.
+     * @param buffer a buffer obtained from {@link #acquire}
+     * @throws IllegalStateException with leak detection on, if the buffer was already released or is not from this pool
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer.capacity() > MAX_SIZE) return;
+        if (LEAK_DETECTION) buffer = untrack(buffer);
+        int index = classOf(buffer.capacity());
+        if (buffer.isDirect() != direct || MIN_SIZE << index != buffer.capacity()) return;
+        idle[index].offer(buffer);
+    }
+
+    /**
+     * Gives up a buffer that cannot be returned safely, because a thread may still be using it:
+     * it is left to the garbage collector instead of being handed to another borrower.
+     * @param buffer a buffer obtained from {@link #acquire}
+     * @throws IllegalStateException with leak detection on, if the buffer was already released or is not from this pool
+     */
+    public void discard(ByteBuffer buffer) {
+        if (LEAK_DETECTION && buffer.capacity() <= MAX_SIZE) untrack(buffer);
+    }
+
+    /**
+     * @return number of buffers found garbage collected without being released, always 0 without leak detection
+     */
+    public long leakCount() {
+        if (LEAK_DETECTION) reclaimLeaks();
+        return leaks.get();
+    }
+
+    /**
+     * @return true if the pool is checking the buffers for leaks
+     */
+    public static boolean isLeakDetectionEnabled() {
+        return LEAK_DETECTION;
+    }
+
+    private ByteBuffer allocate(int size) {
+        return direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    }
+
+    /**
+     * @return index of the smallest size class holding {@code size} bytes, -1 if it is larger than every class
+     */
+    private static int classOf(int size) {
+        if (size <= MIN_SIZE) return 0;
+        if (size > MAX_SIZE) return -1;
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+    }
+
+    private ByteBuffer track(ByteBuffer pooled) {
+        reclaimLeaks();
+        ByteBuffer view = pooled.duplicate();
+        Tracker tracker = new Tracker(view, pooled, collected);
+        borrowed.compute(tracker.hash, (hash, head) -> {
+            tracker.next = head;
+            return tracker;
+        });
+        return view;
+    }
+
+    private ByteBuffer untrack(ByteBuffer view) {
+        Tracker[] found = new Tracker[1];
+        borrowed.computeIfPresent(System.identityHashCode(view), (hash, head) -> {
+            Tracker previous = null;
+            for (Tracker tracker = head; tracker != null; previous = tracker, tracker = tracker.next) {
+                if (tracker.get() == view) {
+                    found[0] = tracker;
+                    if (previous == null) return tracker.next;
+                    previous.next = tracker.next;
+                    return head;
+                }
+            }
+            return head;
+        });
+        if (found[0] == null) throw new IllegalStateException("Buffer released twice or not acquired from this pool");
+        found[0].clear();
+        return found[0].pooled;
+    }
+
+    /**
+     * Reports the views collected without being released, and puts their buffers back in the pool.
+     */
+    private void reclaimLeaks() {
+        Tracker leaked;
+        while ((leaked = (Tracker) collected.poll()) != null) {
+            Tracker tracker = leaked;
+            boolean[] removed = {false};
+            borrowed.computeIfPresent(tracker.hash, (hash, head) -> {
+                if (head == tracker) {
+                    removed[0] = true;
+                    return head.next;
+                }
+                for (Tracker t = head; t.next != null; t = t.next) {
+                    if (t.next == tracker) {
+                        removed[0] = true;
+                        t.next = tracker.next;
+                        break;
+                    }
+                }
+                return head;
+            });
+            if (!removed[0]) continue;
+            leaks.incrementAndGet();
+            System.err.println("LEAK: " + (direct ? "direct" : "heap") + " buffer of " + tracker.pooled.capacity()
+                    + " bytes garbage collected without being released");
+            tracker.acquiredAt.printStackTrace();
+            idle[classOf(tracker.pooled.capacity())].offer(tracker.pooled);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package edu.eci.arep.microspringboot.helpers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads the runtime annotations of a class straight from its class file, without loading it.
+ * Only the constant pool and the class attributes are decoded; fields and methods are skipped
+ * by their lengths. Most classes are rejected while the constant pool is read, as soon as it
+ * turns out not to hold the annotation descriptor.
+ */
+final class ClassFileAnnotations {
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final byte[] RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations".getBytes(StandardCharsets.UTF_8);
+
+    private ClassFileAnnotations() {
+    }
+
+    /**
+     * @param classFile  the bytes of a class file
+     * @param descriptor the annotation type descriptor, as {@code Lpkg/Name;}
+     * @return true if the class itself carries the annotation
+     * @throws IllegalArgumentException if the bytes are not a valid class file
+     */
+    static boolean isAnnotated(byte[] classFile, byte[] descriptor) {
+        try {
+            return find(ByteBuffer.wrap(classFile), descriptor);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid class file", e);
+        }
+    }
+
+    private static boolean find(ByteBuffer in, byte[] descriptor) {
+        if (in.getInt() != MAGIC) throw new IllegalArgumentException("Not a class file");
+        in.getInt();
+        int count = in.getShort() & 0xFFFF;
+        int annotationIndex = -1;
+        int attributeIndex = -1;
+        for (int i = 1; i < count; i++) {
+            int tag = in.get();
+            switch (tag) {
+                case 1 -> {
+                    int length = in.getShort() & 0xFFFF;
+                    if (equals(in, length, descriptor)) annotationIndex = i;
+                    else if (equals(in, length, RUNTIME_VISIBLE_ANNOTATIONS)) attributeIndex = i;
+                    in.position(in.position() + length);
+                }
+                case 7, 8, 16, 19, 20 -> in.position(in.position() + 2);
+                case 15 -> in.position(in.position() + 3);
+                case 3, 4, 9, 10, 11, 12, 17, 18 -> in.position(in.position() + 4);
+                case 5, 6 -> {
+                    //long and double take two entries
+                    in.position(in.position() + 8);
+                    i++;
+                }
+                default -> throw new IllegalArgumentException("Unknown constant pool tag " + tag);
+            }
+        }
+        if (annotationIndex < 0 || attributeIndex < 0) return false;
+        //access flags, this class, super class, interfaces
+        in.position(in.position() + 6);
+        int interfaces = in.getShort() & 0xFFFF;
+        in.position(in.position() + 2 * interfaces);
+        skipMembers(in);
+        skipMembers(in);
+        int attributes = in.getShort() & 0xFFFF;
+        for (int i = 0; i < attributes; i++) {
+            int name = in.getShort() & 0xFFFF;
+            int length = in.getInt();
+            if (name != attributeIndex) {
+                in.position(in.position() + length);
+                continue;
+            }
+            int annotations = in.getShort() & 0xFFFF;
+            for (int a = 0; a < annotations; a++) {
+                if ((in.getShort() & 0xFFFF) == annotationIndex) return true;
+                skipPairs(in);
+            }
+            return false;
+        }
+        return false;
+    }
+
+    private static boolean equals(ByteBuffer in, int length, byte[] expected) {
+        return length == expected.length
+                && Arrays.equals(in.array(), in.position(), in.position() + length, expected, 0, length);
+    }
+
+    /**
+     * Skips the fields or the methods: flags, name, descriptor and attributes.
+     */
+    private static void skipMembers(ByteBuffer in) {
+        int members = in.getShort() & 0xFFFF;
+        for (int i = 0; i < members; i++) {
+            in.position(in.position() + 6);
+            int attributes = in.getShort() & 0xFFFF;
+            for (int a = 0; a < attributes; a++) {
+                in.position(in.position() + 2);
+                int length = in.getInt();
+                in.position(in.position() + length);
+            }
+        }
+    }
+
+    /**
+     * Skips the element-value pairs of an annotation whose type was already read.
+     */
+    private static void skipPairs(ByteBuffer in) {
+        int pairs = in.getShort() & 0xFFFF;
+        for (int i = 0; i < pairs; i++) {
+            in.position(in.position() + 2);
+            skipValue(in);
+        }
+    }
+
+    private static void skipValue(ByteBuffer in) {
+        int tag = in.get();
+        switch (tag) {
+            case 'B', 'C', 'D', 'F', 'I', 'J', 'S', 'Z', 's', 'c' -> in.position(in.position() + 2);
+            case 'e' -> in.position(in.position() + 4);
+            case '@' -> {
+                in.position(in.position() + 2);
+                skipPairs(in);
+            }
+            case '[' -> {
+                int values = in.getShort() & 0xFFFF;
+                for (int i = 0; i < values; i++) skipValue(in);
+            }
+            default -> throw new IllegalArgumentException("Unknown element value tag " + tag);
+        }
+    }
+}
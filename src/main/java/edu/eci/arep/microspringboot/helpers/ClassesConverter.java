@@ -1,20 +1,58 @@
 package edu.eci.arep.microspringboot.helpers;
 
+import edu.eci.arep.microspringboot.processor.RestControllerProcessor;
+
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
 import java.net.JarURLConnection;
 import java.net.URL;
 import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
 public class ClassesConverter {
 
+    /**
+     * Loads the controllers listed in the indexes written at compile time by
+     * {@link RestControllerProcessor}, only the ones under the given base package.
+     * No other class is loaded and no directory or jar is scanned.
+     * @param basePackage the package the controllers must belong to
+     * @return the controllers, or null if no index is on the classpath
+     * @throws ClassNotFoundException if an index lists a class that no longer exists
+     */
+    public static Set<Class<?>> findIndexedClasses(String basePackage) throws IOException, ClassNotFoundException {
+        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        Enumeration<URL> indexes = cl.getResources(RestControllerProcessor.INDEX);
+        if (!indexes.hasMoreElements()) return null;
+        Set<Class<?>> classes = new HashSet<>();
+        while (indexes.hasMoreElements()) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(indexes.nextElement().openStream(), StandardCharsets.UTF_8))) {
+                String className;
+                while ((className = reader.readLine()) != null) {
+                    if (className.startsWith(basePackage + ".")) classes.add(Class.forName(className, false, cl));
+                }
+            }
+        }
+        return classes;
+    }
+
     /**
      * Scans the classpath for all .class files under the given base package and
      * loads them into a Set<Class<?>>.
@@ -65,6 +103,106 @@ public class ClassesConverter {
         return classes;
     }
 
+    /**
+     * Finds the classes of a package carrying an annotation, loading only those.
+     * The class files are read as bytes and their annotations checked with
+     * {@link ClassFileAnnotations}, in parallel on the common fork-join pool: every
+     * directory is a task, and the entries of a jar are split among the workers.
+     * @param basePackage the package to scan
+     * @param annotation  the annotation the classes must carry, retained at runtime
+     * @return the annotated classes
+     * @throws IOException if a directory or a jar cannot be read
+     */
+    public static Set<Class<?>> findAnnotatedClasses(String basePackage, Class<? extends Annotation> annotation)
+            throws IOException, ClassNotFoundException {
+        byte[] descriptor = ("L" + annotation.getName().replace('.', '/') + ";").getBytes(StandardCharsets.UTF_8);
+        String packagePath = basePackage.replace('.', '/');
+        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        Set<String> names = ConcurrentHashMap.newKeySet();
+        Enumeration<URL> resources = cl.getResources(packagePath);
+        try {
+            while (resources.hasMoreElements()) {
+                URL url = resources.nextElement();
+                if ("file".equals(url.getProtocol())) {
+                    Path dir = Path.of(URLDecoder.decode(url.getFile(), StandardCharsets.UTF_8));
+                    if (Files.isDirectory(dir)) {
+                        ForkJoinPool.commonPool().invoke(new DirectoryScan(dir, packagePath.replace('/', '.'), descriptor, names));
+                    }
+                } else if ("jar".equals(url.getProtocol())) {
+                    JarURLConnection conn = (JarURLConnection) url.openConnection();
+                    try (JarFile jar = conn.getJarFile()) {
+                        //reads and inflates the entries concurrently, a ZipFile serves parallel readers
+                        jar.stream().parallel()
+                                .filter(e -> e.getName().startsWith(packagePath) && e.getName().endsWith(".class") && !e.isDirectory())
+                                .forEach(e -> {
+                                    try (InputStream in = jar.getInputStream(e)) {
+                                        if (isAnnotated(in.readAllBytes(), descriptor)) {
+                                            names.add(e.getName().replace('/', '.').substring(0, e.getName().length() - 6));
+                                        }
+                                    } catch (IOException ex) {
+                                        throw new UncheckedIOException(ex);
+                                    }
+                                });
+                    }
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Set<Class<?>> classes = new HashSet<>();
+        for (String name : names) {
+            Class<?> cls = Class.forName(name, false, cl);
+            if (cls.isAnnotationPresent(annotation)) classes.add(cls);
+        }
+        return classes;
+    }
+
+    /**
+     * @return true if the class carries the annotation, or its file cannot be read and it must be loaded to know
+     */
+    private static boolean isAnnotated(byte[] classFile, byte[] descriptor) {
+        try {
+            return ClassFileAnnotations.isAnnotated(classFile, descriptor);
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Checks the class files of a directory and forks a task for each subdirectory.
+     */
+    private static final class DirectoryScan extends RecursiveAction {
+        private final Path dir;
+        private final String packageName;
+        private final byte[] descriptor;
+        private final Set<String> names;
+
+        DirectoryScan(Path dir, String packageName, byte[] descriptor, Set<String> names) {
+            this.dir = dir;
+            this.packageName = packageName;
+            this.descriptor = descriptor;
+            this.names = names;
+        }
+
+        @Override
+        protected void compute() {
+            List<DirectoryScan> subdirectories = new ArrayList<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    if (Files.isDirectory(file)) {
+                        subdirectories.add(new DirectoryScan(file, packageName + "." + name, descriptor, names));
+                    } else if (name.endsWith(".class") && isAnnotated(Files.readAllBytes(file), descriptor)) {
+                        names.add(packageName + "." + name.substring(0, name.length() - 6));
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            invokeAll(subdirectories);
+        }
+    }
+
     /**
      * Converts a filesystem path to a compiled .class file into a fully-qualified
      * Java class name that Class.forName can load.
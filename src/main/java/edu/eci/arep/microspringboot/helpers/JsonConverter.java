@@ -1,79 +1,307 @@
 package edu.eci.arep.microspringboot.helpers;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.Function;
 
 public class JsonConverter {
+    static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+    /** Buffers above this size are not kept by the thread once the value is serialized. */
+    private static final int MAX_RETAINED_BUFFER = 256 * 1024;
+    private static final int STREAM_BUFFER_SIZE = 8192;
+    private static final ThreadLocal<JsonWriter> WRITERS = ThreadLocal.withInitial(() -> new JsonWriter(1024));
+
+    /**
+     * Writes one value of a given class into a {@link JsonWriter}.
+     */
+    @FunctionalInterface
+    interface Serializer {
+        void write(Object value, JsonWriter out);
+    }
+
+    //compiled once per class, the first time an instance of the class is serialized
+    private static final ClassValue<Serializer> SERIALIZERS = new ClassValue<>() {
+        @Override
+        protected Serializer computeValue(Class<?> type) {
+            return compile(type);
+        }
+    };
+
     /**
      * Serializes an object into its JSON string representation.
      * @param obj object to convert
      * @return JSON string representation
      */
     public static String toJson(Object obj) {
-        if(obj instanceof String) return quote((String) obj);
-        if(obj instanceof Number) return obj.toString();
-        if(obj instanceof List<?>) {
-            return arrayToJson(obj);
+        return new String(toJsonBytes(obj), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Serializes an object into UTF-8 encoded JSON.
+     * The value is written into a buffer reused by the calling thread, only the result is copied.
+     * @param obj object to convert, may be null
+     * @return the JSON bytes
+     */
+    public static byte[] toJsonBytes(Object obj) {
+        JsonWriter writer = WRITERS.get();
+        writer.reset();
+        try {
+            writer.writeValue(obj);
+            return writer.toByteArray();
+        } finally {
+            if (writer.capacity() > MAX_RETAINED_BUFFER) WRITERS.remove();
         }
-        return objectToJson(obj);
     }
 
     /**
-     * Converts a list into a JSON array string.
-     * @param array the list to convert
-     * @return JSON array as a string
+     * Serializes an object as UTF-8 encoded JSON straight into a stream, through a fixed-size
+     * buffer borrowed from {@link BufferPool#HEAP}: the memory used does not depend on the size
+     * of the object graph.
+     * @param obj object to convert, may be null
+     * @param out the destination stream
+     * @throws IOException if the stream cannot be written
      */
-    private static String arrayToJson(Object array) {
-        StringBuilder sb = new StringBuilder("[");
-        List<?> list = (List<?>) array;
-        for (int i = 0; i < list.size(); i++) {
-            Object item = list.get(i);
-            sb.append(toJson(item));
-            if(i < list.size() - 1) sb.append(",");
+    public static void writeJson(Object obj, OutputStream out) throws IOException {
+        ByteBuffer buffer = BufferPool.HEAP.acquire(STREAM_BUFFER_SIZE);
+        try {
+            JsonWriter writer = new JsonWriter(buffer.array(), out);
+            try {
+                writer.writeValue(obj);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.flush();
+        } finally {
+            BufferPool.HEAP.release(buffer);
         }
-        sb.append("]");
-        return sb.toString();
     }
 
     /**
-     * Serializes a generic Java object into a JSON object string.
-     * @param obj the object to serialize
-     * @return JSON object as a string
+     * Reads a JSON text into a value of a given class.
+     * @param json the JSON text
+     * @param type class of the value, see {@link #parserFor}
+     * @return the value, null if the text is {@code null}
+     * @throws IllegalArgumentException if the text is not valid JSON or does not fit the class
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T fromJson(String json, Class<T> type) {
+        return (T) parserFor(type).apply(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Builds the parser of a type, to be resolved once and reused for every text of that type.
+     * Objects are created with their constructor without parameters, of any visibility, and
+     * their fields set by name; records are created with their canonical constructor.
+     * Collections, maps with string keys, arrays, enums, strings, numbers and booleans are
+     * read as well, and members with no matching field are ignored.
+     * @param type a class, or a parameterized type such as {@code List<Task>}
+     * @return a function reading one UTF-8 encoded JSON value of the type, with nothing after it
+     * @throws IllegalArgumentException if values of the type cannot be created; the function
+     *                                  throws it as well for texts that are not valid JSON or do not fit the type
+     */
+    public static Function<byte[], Object> parserFor(Type type) {
+        JsonDeserializers.Deserializer deserializer = JsonDeserializers.forType(type);
+        return json -> {
+            JsonReader in = new JsonReader(json);
+            Object value = deserializer.read(in);
+            in.endDocument();
+            return value;
+        };
+    }
+
+    /**
+     * @param type the runtime class of a value
+     * @return the serializer of the class, compiled on first use
      */
-    private static String objectToJson(Object obj) {
-        StringBuilder sb = new StringBuilder("{");
-        Field[] fields = obj.getClass().getDeclaredFields();
+    static Serializer serializerFor(Class<?> type) {
+        return SERIALIZERS.get(type);
+    }
+
+    private static Serializer compile(Class<?> type) {
+        if (type == String.class || CharSequence.class.isAssignableFrom(type)) {
+            return (value, out) -> out.writeString((CharSequence) value);
+        }
+        if (type == Integer.class || type == Long.class || type == Short.class || type == Byte.class) {
+            return (value, out) -> out.writeLong(((Number) value).longValue());
+        }
+        if (type == Double.class) return (value, out) -> out.writeDouble((Double) value);
+        if (type == Float.class) return (value, out) -> out.writeFloat((Float) value);
+        if (type == BigDecimal.class || type == BigInteger.class || Number.class.isAssignableFrom(type)) {
+            return (value, out) -> out.writeAscii(value.toString());
+        }
+        if (type == Boolean.class) return (value, out) -> out.writeBoolean((Boolean) value);
+        if (type == Character.class || type.isEnum() || (type.getSuperclass() != null && type.getSuperclass().isEnum())) {
+            return (value, out) -> out.writeString(value.toString());
+        }
+        if (Map.class.isAssignableFrom(type)) return JsonConverter::writeMap;
+        if (List.class.isAssignableFrom(type) && RandomAccess.class.isAssignableFrom(type)) return JsonConverter::writeList;
+        if (Iterable.class.isAssignableFrom(type)) return JsonConverter::writeIterable;
+        if (type.isArray()) {
+            return type.getComponentType().isPrimitive() ? JsonConverter::writePrimitiveArray : JsonConverter::writeArray;
+        }
+        //fields of platform classes (dates, optionals...) are not accessible, their text form is used instead
+        if (type.getModule().isNamed() && type.getPackageName().startsWith("java.")) {
+            return (value, out) -> out.writeString(value.toString());
+        }
+        return compileObject(type);
+    }
+
+    private static void writeMap(Object value, JsonWriter out) {
+        out.writeByte('{');
         boolean first = true;
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+            if (!first) out.writeByte(',');
+            out.writeString(String.valueOf(entry.getKey()));
+            out.writeByte(':');
+            out.writeValue(entry.getValue());
+            first = false;
+        }
+        out.writeByte('}');
+    }
 
-        for (Field field : fields) {
-            if (java.lang.reflect.Modifier.isStatic(field.getModifiers())) {
-                continue;
-            }
-            try {
-                field.setAccessible(true);
-                Object value = field.get(obj);
+    private static void writeList(Object value, JsonWriter out) {
+        List<?> list = (List<?>) value;
+        out.writeByte('[');
+        for (int i = 0; i < list.size(); i++) {
+            if (i > 0) out.writeByte(',');
+            out.writeValue(list.get(i));
+        }
+        out.writeByte(']');
+    }
 
-                if (!first) sb.append(",");
-                sb.append("\"").append(field.getName()).append("\":");
-                sb.append(toJson(value));
-                first = false;
-            } catch (IllegalAccessException e) {}
+    private static void writeIterable(Object value, JsonWriter out) {
+        out.writeByte('[');
+        boolean first = true;
+        for (Object item : (Iterable<?>) value) {
+            if (!first) out.writeByte(',');
+            out.writeValue(item);
+            first = false;
+        }
+        out.writeByte(']');
+    }
+
+    private static void writeArray(Object value, JsonWriter out) {
+        Object[] array = (Object[]) value;
+        out.writeByte('[');
+        for (int i = 0; i < array.length; i++) {
+            if (i > 0) out.writeByte(',');
+            out.writeValue(array[i]);
         }
-        sb.append("}");
-        return sb.toString();
+        out.writeByte(']');
+    }
+
+    private static void writePrimitiveArray(Object value, JsonWriter out) {
+        out.writeByte('[');
+        int length = Array.getLength(value);
+        for (int i = 0; i < length; i++) {
+            if (i > 0) out.writeByte(',');
+            if (value instanceof int[] a) out.writeLong(a[i]);
+            else if (value instanceof long[] a) out.writeLong(a[i]);
+            else if (value instanceof double[] a) out.writeDouble(a[i]);
+            else if (value instanceof boolean[] a) out.writeBoolean(a[i]);
+            else out.writeValue(Array.get(value, i));
+        }
+        out.writeByte(']');
     }
 
     /**
-     * Escapes and wraps a string in double quotes to produce a valid JSON string value.
-     * @param s the input string to escape
-     * @return the JSON-safe string wrapped in double quotes
+     * Compiles the accessor plan of a plain object: one getter handle per non-static field,
+     * typed to the field's primitive kind so numbers and booleans are written without boxing.
      */
-    private static String quote(String s) {
-        return "\"" + s
-                .replace("\\", "\\\\")
-                .replace("\"", "\\\"")
-                .replace("\n", "\\n")
-                .replace("\r", "\\r")
-                .replace("\t", "\\t") + "\"";
+    private static Serializer compileObject(Class<?> type) {
+        List<FieldWriter> writers = new ArrayList<>();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (Field field : type.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) continue;
+            try {
+                field.setAccessible(true);
+                writers.add(FieldWriter.of(field, lookup.unreflectGetter(field), writers.isEmpty()));
+            } catch (IllegalAccessException | RuntimeException e) {
+                //fields that cannot be read are left out, as before
+            }
+        }
+        FieldWriter[] plan = writers.toArray(new FieldWriter[0]);
+        return (value, out) -> {
+            out.writeByte('{');
+            for (FieldWriter writer : plan) {
+                writer.write(value, out);
+            }
+            out.writeByte('}');
+        };
+    }
+
+    private static final class FieldWriter {
+        private static final int OBJECT = 0, LONG = 1, DOUBLE = 2, FLOAT = 3, BOOLEAN = 4;
+        /** {@code "name":}, preceded by a comma for every field but the first. */
+        private final byte[] prefix;
+        private final int kind;
+        private final MethodHandle getter;
+
+        private FieldWriter(byte[] prefix, int kind, MethodHandle getter) {
+            this.prefix = prefix;
+            this.kind = kind;
+            this.getter = getter;
+        }
+
+        static FieldWriter of(Field field, MethodHandle getter, boolean first) {
+            JsonWriter name = new JsonWriter(field.getName().length() + 4);
+            if (!first) name.writeByte(',');
+            name.writeString(field.getName());
+            name.writeByte(':');
+            Class<?> t = field.getType();
+            int kind;
+            Class<?> returned;
+            if (t == int.class || t == long.class || t == short.class || t == byte.class) {
+                kind = LONG;
+                returned = long.class;
+            } else if (t == double.class) {
+                kind = DOUBLE;
+                returned = double.class;
+            } else if (t == float.class) {
+                kind = FLOAT;
+                returned = float.class;
+            } else if (t == boolean.class) {
+                kind = BOOLEAN;
+                returned = boolean.class;
+            } else {
+                kind = OBJECT;
+                returned = Object.class;
+            }
+            return new FieldWriter(name.toByteArray(), kind, getter.asType(MethodType.methodType(returned, Object.class)));
+        }
+
+        void write(Object target, JsonWriter out) {
+            out.writeRaw(prefix);
+            try {
+                switch (kind) {
+                    case LONG -> out.writeLong((long) getter.invokeExact(target));
+                    case DOUBLE -> out.writeDouble((double) getter.invokeExact(target));
+                    case FLOAT -> out.writeFloat((float) getter.invokeExact(target));
+                    case BOOLEAN -> out.writeBoolean((boolean) getter.invokeExact(target));
+                    default -> out.writeValue((Object) getter.invokeExact(target));
+                }
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
     }
 }
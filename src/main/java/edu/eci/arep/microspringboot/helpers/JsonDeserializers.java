@@ -0,0 +1,403 @@
+package edu.eci.arep.microspringboot.helpers;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Readers of JSON values into Java types, the counterpart of the serializers of {@link JsonConverter}.
+ * The reading plan of a class is compiled once: a handle creating the instance and one setter
+ * handle per field, typed to the field's primitive kind so numbers and booleans are stored
+ * without boxing. Member names are matched against the encoded field names without being
+ * decoded, starting with the field declared after the last one read, so members sent in
+ * declaration order are each matched with a single comparison. Unknown members are skipped.
+ */
+final class JsonDeserializers {
+
+    /**
+     * Reads one value of a given type from a {@link JsonReader}.
+     */
+    @FunctionalInterface
+    interface Deserializer {
+        Object read(JsonReader in);
+    }
+
+    //compiled once per class, the first time a value of the class is read
+    private static final ClassValue<Deserializer> DESERIALIZERS = new ClassValue<>() {
+        @Override
+        protected Deserializer computeValue(Class<?> type) {
+            return compile(type);
+        }
+    };
+
+    private JsonDeserializers() {
+    }
+
+    /**
+     * @param type a class, or a parameterized collection or map type
+     * @return the reader of the type; the plans of classes are cached, the ones of parameterized
+     *         types are built by each call
+     * @throws IllegalArgumentException if values of the type cannot be created
+     */
+    static Deserializer forType(Type type) {
+        if (type instanceof Class<?> c) return DESERIALIZERS.get(c);
+        return readerFor(type);
+    }
+
+    /**
+     * @return the reader of a type nested in another one; classes with a plan of their own are
+     *         looked up when a value is read, so a class may refer to itself
+     */
+    private static Deserializer readerFor(Type type) {
+        if (type instanceof Class<?> c) {
+            Deserializer leaf = leaf(c);
+            return leaf != null ? leaf : in -> DESERIALIZERS.get(c).read(in);
+        }
+        if (type instanceof ParameterizedType p && p.getRawType() instanceof Class<?> raw) {
+            Type[] arguments = p.getActualTypeArguments();
+            if (Map.class.isAssignableFrom(raw)) return mapReader(readerFor(arguments[1]));
+            if (Collection.class.isAssignableFrom(raw) || raw == Iterable.class) {
+                return collectionReader(Set.class.isAssignableFrom(raw), readerFor(arguments[0]));
+            }
+            return readerFor(raw);
+        }
+        if (type instanceof GenericArrayType a) {
+            Class<?> component = rawClass(a.getGenericComponentType());
+            return arrayReader(component, readerFor(a.getGenericComponentType()));
+        }
+        //type variables and wildcards
+        return JsonReader::readValue;
+    }
+
+    private static Class<?> rawClass(Type type) {
+        if (type instanceof Class<?> c) return c;
+        if (type instanceof ParameterizedType p && p.getRawType() instanceof Class<?> c) return c;
+        if (type instanceof GenericArrayType a) return Array.newInstance(rawClass(a.getGenericComponentType()), 0).getClass();
+        return Object.class;
+    }
+
+    private static Deserializer compile(Class<?> type) {
+        Deserializer leaf = leaf(type);
+        if (leaf != null) return leaf;
+        if (type.isArray()) return arrayReader(type.getComponentType(), readerFor(type.getComponentType()));
+        if (Map.class.isAssignableFrom(type)) return mapReader(JsonReader::readValue);
+        if (Collection.class.isAssignableFrom(type) || type == Iterable.class) {
+            return collectionReader(Set.class.isAssignableFrom(type), JsonReader::readValue);
+        }
+        if (type.isRecord()) return compileRecord(type);
+        return compileObject(type);
+    }
+
+    /**
+     * @return the reader of a type read from a single token, null for structured types
+     */
+    private static Deserializer leaf(Class<?> type) {
+        if (type == String.class || type == CharSequence.class) return JsonReader::readString;
+        if (type == Object.class) return JsonReader::readValue;
+        if (type == int.class || type == Integer.class) return integer(type, Integer.MIN_VALUE, Integer.MAX_VALUE, v -> (int) v);
+        if (type == long.class || type == Long.class) return integer(type, Long.MIN_VALUE, Long.MAX_VALUE, v -> v);
+        if (type == short.class || type == Short.class) return integer(type, Short.MIN_VALUE, Short.MAX_VALUE, v -> (short) v);
+        if (type == byte.class || type == Byte.class) return integer(type, Byte.MIN_VALUE, Byte.MAX_VALUE, v -> (byte) v);
+        if (type == double.class || type == Double.class) {
+            return in -> nullable(in, type) ? null : in.readDouble();
+        }
+        if (type == float.class || type == Float.class) {
+            return in -> nullable(in, type) ? null : (float) in.readDouble();
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return in -> nullable(in, type) ? null : in.readBoolean();
+        }
+        if (type == BigDecimal.class) return in -> nullable(in, type) ? null : new BigDecimal(in.readNumberText());
+        if (type == BigInteger.class) return in -> nullable(in, type) ? null : new BigInteger(in.readNumberText());
+        if (type == char.class || type == Character.class) {
+            return in -> {
+                if (nullable(in, type)) return null;
+                String s = in.readString();
+                if (s == null || s.length() != 1) throw new IllegalArgumentException("Expected a single character");
+                return s.charAt(0);
+            };
+        }
+        if (type.isEnum()) {
+            Object[] constants = type.getEnumConstants();
+            return in -> {
+                String s = in.readString();
+                if (s == null) return null;
+                for (Object constant : constants) {
+                    if (((Enum<?>) constant).name().equals(s)) return constant;
+                }
+                for (Object constant : constants) {
+                    if (((Enum<?>) constant).name().equalsIgnoreCase(s)) return constant;
+                }
+                throw new IllegalArgumentException("Invalid value " + s + " for " + type.getSimpleName());
+            };
+        }
+        return null;
+    }
+
+    private interface Narrowing {
+        Object box(long value);
+    }
+
+    private static Deserializer integer(Class<?> type, long min, long max, Narrowing narrowing) {
+        return in -> {
+            if (nullable(in, type)) return null;
+            return narrowing.box(checked(in.readLong(), min, max, type));
+        };
+    }
+
+    private static long checked(long value, long min, long max, Class<?> type) {
+        if (value < min || value > max) throw new IllegalArgumentException("Value " + value + " out of range for " + type.getName());
+        return value;
+    }
+
+    /**
+     * Consumes a null, which only boxed types accept.
+     */
+    private static boolean nullable(JsonReader in, Class<?> type) {
+        if (!in.readNull()) return false;
+        if (type.isPrimitive()) throw new IllegalArgumentException("Expected a " + type.getName() + ", found null");
+        return true;
+    }
+
+    private static Deserializer collectionReader(boolean set, Deserializer element) {
+        return in -> {
+            if (in.readNull()) return null;
+            Collection<Object> values = set ? new LinkedHashSet<>() : new ArrayList<>();
+            if (in.beginArray()) {
+                do {
+                    values.add(element.read(in));
+                } while (in.hasNext());
+            }
+            return values;
+        };
+    }
+
+    private static Deserializer arrayReader(Class<?> component, Deserializer element) {
+        Deserializer list = collectionReader(false, element);
+        return in -> {
+            List<?> values = (List<?>) list.read(in);
+            if (values == null) return null;
+            Object array = Array.newInstance(component, values.size());
+            for (int i = 0; i < values.size(); i++) {
+                Array.set(array, i, values.get(i));
+            }
+            return array;
+        };
+    }
+
+    private static Deserializer mapReader(Deserializer value) {
+        return in -> {
+            if (in.readNull()) return null;
+            Map<String, Object> map = new LinkedHashMap<>();
+            if (in.beginObject()) {
+                do {
+                    in.readName();
+                    map.put(in.name(), value.read(in));
+                } while (in.hasNext());
+            }
+            return map;
+        };
+    }
+
+    /**
+     * Compiles the reading plan of a record: the members are collected, then passed to the
+     * canonical constructor. Missing members are null, or zero for primitive components.
+     */
+    private static Deserializer compileRecord(Class<?> type) {
+        RecordComponent[] components = type.getRecordComponents();
+        byte[][] names = new byte[components.length][];
+        Deserializer[] readers = new Deserializer[components.length];
+        Object[] defaults = new Object[components.length];
+        Class<?>[] types = new Class<?>[components.length];
+        for (int i = 0; i < components.length; i++) {
+            names[i] = components[i].getName().getBytes(StandardCharsets.UTF_8);
+            readers[i] = readerFor(components[i].getGenericType());
+            types[i] = components[i].getType();
+            if (types[i].isPrimitive()) defaults[i] = Array.get(Array.newInstance(types[i], 1), 0);
+        }
+        MethodHandle constructor;
+        try {
+            Constructor<?> canonical = type.getDeclaredConstructor(types);
+            canonical.setAccessible(true);
+            constructor = MethodHandles.lookup().unreflectConstructor(canonical)
+                    .asSpreader(Object[].class, components.length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalArgumentException("Cannot create " + type.getName() + " from JSON: " + e.getMessage(), e);
+        }
+        return in -> {
+            if (in.readNull()) return null;
+            Object[] arguments = defaults.clone();
+            if (in.beginObject()) {
+                int next = 0;
+                do {
+                    in.readName();
+                    int i = find(in, names, next);
+                    if (i < 0) {
+                        in.skipValue();
+                        continue;
+                    }
+                    Object value = readers[i].read(in);
+                    if (value != null || !types[i].isPrimitive()) arguments[i] = value;
+                    next = i + 1;
+                } while (in.hasNext());
+            }
+            try {
+                return (Object) constructor.invokeExact(arguments);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        };
+    }
+
+    /**
+     * Compiles the reading plan of a plain object, created with its constructor without parameters.
+     */
+    private static Deserializer compileObject(Class<?> type) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle constructor;
+        try {
+            Constructor<?> noArguments = type.getDeclaredConstructor();
+            noArguments.setAccessible(true);
+            constructor = lookup.unreflectConstructor(noArguments).asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("Cannot create " + type.getName() + " from JSON: no constructor without parameters");
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new IllegalArgumentException("Cannot create " + type.getName() + " from JSON: " + e.getMessage(), e);
+        }
+        List<FieldReader> fields = new ArrayList<>();
+        for (Field field : type.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) continue;
+            try {
+                field.setAccessible(true);
+                fields.add(FieldReader.of(field, lookup.unreflectSetter(field)));
+            } catch (IllegalAccessException | RuntimeException e) {
+                //fields that cannot be written are skipped like unknown members
+            }
+        }
+        FieldReader[] plan = fields.toArray(new FieldReader[0]);
+        byte[][] names = new byte[plan.length][];
+        for (int i = 0; i < plan.length; i++) names[i] = plan[i].name;
+        return in -> {
+            if (in.readNull()) return null;
+            Object target;
+            try {
+                target = (Object) constructor.invokeExact();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+            if (in.beginObject()) {
+                int next = 0;
+                do {
+                    in.readName();
+                    int i = find(in, names, next);
+                    if (i < 0) {
+                        in.skipValue();
+                        continue;
+                    }
+                    plan[i].read(in, target);
+                    next = i + 1;
+                } while (in.hasNext());
+            }
+            return target;
+        };
+    }
+
+    /**
+     * @return the index of the last name read, looked for from the expected index on, -1 if unknown
+     */
+    private static int find(JsonReader in, byte[][] names, int from) {
+        for (int n = 0; n < names.length; n++) {
+            int i = (from + n) % names.length;
+            if (in.nameIs(names[i])) return i;
+        }
+        return -1;
+    }
+
+    private static final class FieldReader {
+        private static final int OBJECT = 0, LONG = 1, DOUBLE = 2, BOOLEAN = 3;
+        final byte[] name;
+        private final int kind;
+        private final MethodHandle setter;
+        private final Deserializer reader;
+        private final Class<?> type;
+        private final long min;
+        private final long max;
+
+        private FieldReader(byte[] name, int kind, MethodHandle setter, Deserializer reader, Class<?> type, long min, long max) {
+            this.name = name;
+            this.kind = kind;
+            this.setter = setter;
+            this.reader = reader;
+            this.type = type;
+            this.min = min;
+            this.max = max;
+        }
+
+        static FieldReader of(Field field, MethodHandle setter) {
+            byte[] name = field.getName().getBytes(StandardCharsets.UTF_8);
+            Class<?> t = field.getType();
+            int kind;
+            Class<?> accepted;
+            long min = 0, max = 0;
+            if (t == int.class || t == long.class || t == short.class || t == byte.class) {
+                kind = LONG;
+                accepted = long.class;
+                min = t == int.class ? Integer.MIN_VALUE : t == short.class ? Short.MIN_VALUE : t == byte.class ? Byte.MIN_VALUE : Long.MIN_VALUE;
+                max = t == int.class ? Integer.MAX_VALUE : t == short.class ? Short.MAX_VALUE : t == byte.class ? Byte.MAX_VALUE : Long.MAX_VALUE;
+            } else if (t == double.class || t == float.class) {
+                kind = DOUBLE;
+                accepted = double.class;
+            } else if (t == boolean.class) {
+                kind = BOOLEAN;
+                accepted = boolean.class;
+            } else {
+                kind = OBJECT;
+                accepted = Object.class;
+            }
+            //the range is checked before a long is narrowed to the field type
+            MethodHandle typed = MethodHandles.explicitCastArguments(setter, MethodType.methodType(void.class, Object.class, accepted));
+            return new FieldReader(name, kind, typed, kind == OBJECT ? readerFor(field.getGenericType()) : null, t, min, max);
+        }
+
+        void read(JsonReader in, Object target) {
+            //a null leaves a primitive field at its default value
+            if (kind != OBJECT && in.readNull()) return;
+            try {
+                switch (kind) {
+                    case LONG -> setter.invokeExact(target, checked(in.readLong(), min, max, type));
+                    case DOUBLE -> setter.invokeExact(target, in.readDouble());
+                    case BOOLEAN -> setter.invokeExact(target, in.readBoolean());
+                    default -> setter.invokeExact(target, reader.read(in));
+                }
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+    }
+}
@@ -0,0 +1,440 @@
+package edu.eci.arep.microspringboot.helpers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single-pass tokenizer of UTF-8 encoded JSON.
+ * Values are read straight from the bytes, in the order the caller asks for them: a string
+ * without escapes is decoded once from its bytes, integers are accumulated digit by digit, and
+ * member names can be compared with {@link #nameIs} without being decoded at all. Malformed
+ * input is rejected with an {@link IllegalArgumentException} giving the offset of the error.
+ */
+public final class JsonReader {
+    /** Deepest nesting of objects and arrays accepted, deeper input is rejected instead of overflowing the stack. */
+    static final int MAX_DEPTH = 512;
+    private final byte[] buf;
+    private final int end;
+    private int pos;
+    private int depth;
+    //closing byte of each open object or array, innermost last
+    private byte[] closers = new byte[16];
+    //last member name read, a range of buf or of the decoded copy of an escaped name
+    private byte[] name;
+    private int nameFrom;
+    private int nameTo;
+
+    /**
+     * @param json the UTF-8 encoded JSON text
+     */
+    public JsonReader(byte[] json) {
+        this(json, 0, json.length);
+    }
+
+    /**
+     * @param json   buffer holding the UTF-8 encoded JSON text
+     * @param offset index of the first byte of the text
+     * @param length number of bytes of the text
+     */
+    public JsonReader(byte[] json, int offset, int length) {
+        this.buf = json;
+        this.pos = offset;
+        this.end = offset + length;
+    }
+
+    /**
+     * @return the first byte of the next value, after any whitespace: {@code { [ " t f n}, a digit or {@code -}
+     * @throws IllegalArgumentException if the text ends before the value
+     */
+    public byte peek() {
+        skipWhitespace();
+        if (pos >= end) throw error("Unexpected end of input");
+        return buf[pos];
+    }
+
+    /**
+     * Starts reading an object.
+     * @return true if the object has members, false if it is empty and was read entirely
+     */
+    public boolean beginObject() {
+        expect('{');
+        return open('}');
+    }
+
+    /**
+     * Starts reading an array.
+     * @return true if the array has elements, false if it is empty and was read entirely
+     */
+    public boolean beginArray() {
+        expect('[');
+        return open(']');
+    }
+
+    /**
+     * Moves past a member or an element.
+     * @return true if another one follows, false if the object or array was read entirely
+     */
+    public boolean hasNext() {
+        skipWhitespace();
+        if (depth == 0) throw error("No object or array is open");
+        byte close = closers[depth - 1];
+        byte b = pos < end ? buf[pos] : 0;
+        if (b != ',' && b != close) throw error("Expected ',' or '" + (char) close + "'");
+        pos++;
+        if (b == ',') return true;
+        depth--;
+        return false;
+    }
+
+    /**
+     * Reads the name of the next member and the colon after it, the value comes next.
+     */
+    public void readName() {
+        expect('"');
+        int from = pos;
+        while (pos < end && buf[pos] != '"' && buf[pos] != '\\') pos++;
+        if (pos < end && buf[pos] == '"') {
+            name = buf;
+            nameFrom = from;
+            nameTo = pos++;
+        } else {
+            pos = from - 1;
+            name = readString().getBytes(StandardCharsets.UTF_8);
+            nameFrom = 0;
+            nameTo = name.length;
+        }
+        expect(':');
+    }
+
+    /**
+     * @param expected the UTF-8 bytes of a name
+     * @return true if the last name read is the expected one
+     */
+    public boolean nameIs(byte[] expected) {
+        return Arrays.equals(name, nameFrom, nameTo, expected, 0, expected.length);
+    }
+
+    /**
+     * @return the last name read
+     */
+    public String name() {
+        return new String(name, nameFrom, nameTo - nameFrom, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Consumes a null if it is the next value.
+     * @return true if the next value was null
+     */
+    public boolean readNull() {
+        if (peek() != 'n') return false;
+        literal("null");
+        return true;
+    }
+
+    /**
+     * @return the next value, a string or null
+     */
+    public String readString() {
+        if (readNull()) return null;
+        expect('"');
+        int from = pos;
+        while (pos < end) {
+            byte b = buf[pos];
+            if (b == '"') return new String(buf, from, pos++ - from, StandardCharsets.UTF_8);
+            if (b == '\\') break;
+            if ((b & 0xFF) < 0x20) throw error("Control character in string");
+            pos++;
+        }
+        //escaped string: the bytes up to the first escape are copied as they are
+        StringBuilder sb = new StringBuilder(pos - from + 16).append(new String(buf, from, pos - from, StandardCharsets.UTF_8));
+        int run = pos;
+        while (pos < end) {
+            byte b = buf[pos];
+            if (b == '"' || b == '\\') {
+                sb.append(new String(buf, run, pos - run, StandardCharsets.UTF_8));
+                pos++;
+                if (b == '"') return sb.toString();
+                sb.append(escape());
+                run = pos;
+            } else if ((b & 0xFF) < 0x20) {
+                throw error("Control character in string");
+            } else {
+                pos++;
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    private char escape() {
+        if (pos >= end) throw error("Unterminated string");
+        byte b = buf[pos++];
+        switch (b) {
+            case '"': return '"';
+            case '\\': return '\\';
+            case '/': return '/';
+            case 'b': return '\b';
+            case 'f': return '\f';
+            case 'n': return '\n';
+            case 'r': return '\r';
+            case 't': return '\t';
+            case 'u':
+                if (pos + 4 > end) throw error("Unterminated string");
+                int c = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(buf[pos++], 16);
+                    if (digit < 0) {
+                        pos--;
+                        throw error("Invalid unicode escape");
+                    }
+                    c = c << 4 | digit;
+                }
+                //surrogate pairs arrive as two escapes and are joined by the StringBuilder
+                return (char) c;
+            default:
+                pos--;
+                throw error("Invalid escape");
+        }
+    }
+
+    /**
+     * @return the next value, an integer
+     * @throws IllegalArgumentException if the value is not an integer or does not fit a long
+     */
+    public long readLong() {
+        peek();
+        int start = pos;
+        boolean negative = buf[pos] == '-';
+        if (negative) pos++;
+        int first = pos;
+        long value = 0;
+        while (pos < end && buf[pos] >= '0' && buf[pos] <= '9') {
+            int digit = buf[pos] - '0';
+            //accumulated as a negative number, whose range includes Long.MIN_VALUE
+            if (value < (Long.MIN_VALUE + digit) / 10) {
+                pos = start;
+                throw error("Integer out of range");
+            }
+            value = value * 10 - digit;
+            pos++;
+        }
+        if (pos == first) throw error("Expected a number");
+        if (pos < end && (buf[pos] == '.' || buf[pos] == 'e' || buf[pos] == 'E')) {
+            pos = start;
+            throw error("Expected an integer");
+        }
+        if (negative) return value;
+        if (value == Long.MIN_VALUE) {
+            pos = start;
+            throw error("Integer out of range");
+        }
+        return -value;
+    }
+
+    /**
+     * @return the next value, a number
+     */
+    public double readDouble() {
+        int start = number();
+        return Double.parseDouble(new String(buf, start, pos - start, StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * @return the text of the next value, a number, as it was sent
+     */
+    public String readNumberText() {
+        int start = number();
+        return new String(buf, start, pos - start, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Moves past a number.
+     * @return the offset where the number starts
+     */
+    private int number() {
+        peek();
+        int start = pos;
+        if (buf[pos] == '-') pos++;
+        int digits = digits();
+        if (pos < end && buf[pos] == '.') {
+            pos++;
+            if (digits() == 0) throw error("Expected a digit");
+        }
+        if (pos < end && (buf[pos] == 'e' || buf[pos] == 'E')) {
+            pos++;
+            if (pos < end && (buf[pos] == '+' || buf[pos] == '-')) pos++;
+            if (digits() == 0) throw error("Expected a digit");
+        }
+        if (digits == 0) {
+            pos = start;
+            throw error("Expected a number");
+        }
+        return start;
+    }
+
+    private int digits() {
+        int from = pos;
+        while (pos < end && buf[pos] >= '0' && buf[pos] <= '9') pos++;
+        return pos - from;
+    }
+
+    /**
+     * @return the next value, a boolean
+     */
+    public boolean readBoolean() {
+        if (peek() == 't') {
+            literal("true");
+            return true;
+        }
+        if (buf[pos] == 'f') {
+            literal("false");
+            return false;
+        }
+        throw error("Expected a boolean");
+    }
+
+    /**
+     * Reads the next value without a target type.
+     * @return a map, list, string, long (double for fractions and larger integers), boolean or null
+     */
+    public Object readValue() {
+        switch (peek()) {
+            case '{': {
+                Map<String, Object> map = new LinkedHashMap<>();
+                if (beginObject()) {
+                    do {
+                        readName();
+                        map.put(name(), readValue());
+                    } while (hasNext());
+                }
+                return map;
+            }
+            case '[': {
+                List<Object> list = new ArrayList<>();
+                if (beginArray()) {
+                    do {
+                        list.add(readValue());
+                    } while (hasNext());
+                }
+                return list;
+            }
+            case '"':
+                return readString();
+            case 't':
+            case 'f':
+                return readBoolean();
+            case 'n':
+                literal("null");
+                return null;
+            default:
+                int start = number();
+                String number = new String(buf, start, pos - start, StandardCharsets.ISO_8859_1);
+                if (number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0) {
+                    try {
+                        return Long.parseLong(number);
+                    } catch (NumberFormatException e) {
+                        //integers beyond the range of a long
+                    }
+                }
+                return Double.parseDouble(number);
+        }
+    }
+
+    /**
+     * Moves past the next value, whatever it is.
+     */
+    public void skipValue() {
+        switch (peek()) {
+            case '{':
+                if (beginObject()) {
+                    do {
+                        readName();
+                        skipValue();
+                    } while (hasNext());
+                }
+                break;
+            case '[':
+                if (beginArray()) {
+                    do {
+                        skipValue();
+                    } while (hasNext());
+                }
+                break;
+            case '"':
+                skipString();
+                break;
+            case 't':
+            case 'f':
+                readBoolean();
+                break;
+            case 'n':
+                literal("null");
+                break;
+            default:
+                number();
+        }
+    }
+
+    private void skipString() {
+        expect('"');
+        while (pos < end) {
+            byte b = buf[pos++];
+            if (b == '"') return;
+            if (b == '\\') escape();
+            else if ((b & 0xFF) < 0x20) {
+                pos--;
+                throw error("Control character in string");
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    /**
+     * Checks that nothing but whitespace follows the value read.
+     */
+    public void endDocument() {
+        skipWhitespace();
+        if (pos < end) throw error("Unexpected content after the value");
+    }
+
+    private boolean open(char close) {
+        if (depth == MAX_DEPTH) throw error("Nesting deeper than " + MAX_DEPTH);
+        if (depth == closers.length) closers = Arrays.copyOf(closers, Math.min(depth * 2, MAX_DEPTH));
+        closers[depth++] = (byte) close;
+        skipWhitespace();
+        if (pos < end && buf[pos] == close) {
+            pos++;
+            depth--;
+            return false;
+        }
+        return true;
+    }
+
+    private void expect(char c) {
+        skipWhitespace();
+        if (pos >= end || buf[pos] != c) throw error("Expected '" + c + "'");
+        pos++;
+    }
+
+    private void literal(String literal) {
+        for (int i = 0; i < literal.length(); i++) {
+            if (pos >= end || buf[pos] != literal.charAt(i)) throw error("Expected " + literal);
+            pos++;
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < end) {
+            byte b = buf[pos];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') return;
+            pos++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Invalid JSON at offset " + pos + ": " + message);
+    }
+}
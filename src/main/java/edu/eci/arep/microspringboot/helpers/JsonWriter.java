@@ -0,0 +1,249 @@
+package edu.eci.arep.microspringboot.helpers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Growable UTF-8 buffer JSON tokens are written into.
+ * Strings are escaped and encoded straight into the buffer, and integers are written digit by
+ * digit, so serializing a value creates no intermediate String. A writer created with a sink
+ * does not grow: it passes its bytes to the sink every time the buffer fills up.
+ */
+public final class JsonWriter {
+    private static final byte[] DIGITS = "0123456789abcdef".getBytes();
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes();
+    private byte[] buf;
+    private int count;
+    private final OutputStream sink;
+
+    /**
+     * @param initialCapacity initial size of the buffer in bytes
+     */
+    public JsonWriter(int initialCapacity) {
+        this(initialCapacity, null);
+    }
+
+    /**
+     * @param capacity size of the buffer in bytes
+     * @param sink     stream receiving the bytes each time the buffer fills up, null to grow the buffer instead
+     */
+    public JsonWriter(int capacity, OutputStream sink) {
+        this(new byte[capacity], sink);
+    }
+
+    /**
+     * @param buffer array to write into, borrowed by the writer until it is no longer used
+     * @param sink   stream receiving the bytes each time the buffer fills up, null to grow the buffer instead
+     */
+    public JsonWriter(byte[] buffer, OutputStream sink) {
+        buf = buffer;
+        this.sink = sink;
+    }
+
+    /**
+     * Discards the written bytes, keeping the buffer for the next value.
+     */
+    public void reset() {
+        count = 0;
+    }
+
+    /**
+     * @return number of bytes written
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return length of the underlying buffer
+     */
+    public int capacity() {
+        return buf.length;
+    }
+
+    /**
+     * @return a copy of the written bytes
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, count);
+    }
+
+    /**
+     * Writes the buffered bytes to the stream.
+     * @param out the destination stream
+     * @throws IOException if the stream cannot be written
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buf, 0, count);
+    }
+
+    /**
+     * Passes the buffered bytes to the sink.
+     * @throws IOException if the sink cannot be written
+     */
+    public void flush() throws IOException {
+        if (sink != null && count > 0) {
+            sink.write(buf, 0, count);
+            count = 0;
+        }
+    }
+
+    /**
+     * Serializes any value with the serializer of its class.
+     * @param value the value, may be null
+     */
+    public void writeValue(Object value) {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        JsonConverter.serializerFor(value.getClass()).write(value, this);
+    }
+
+    public void writeByte(char c) {
+        ensure(1);
+        buf[count++] = (byte) c;
+    }
+
+    public void writeRaw(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buf, count, bytes.length);
+        count += bytes.length;
+    }
+
+    public void writeNull() {
+        ensure(4);
+        buf[count++] = 'n';
+        buf[count++] = 'u';
+        buf[count++] = 'l';
+        buf[count++] = 'l';
+    }
+
+    public void writeBoolean(boolean value) {
+        writeRaw(value ? JsonConverter.TRUE : JsonConverter.FALSE);
+    }
+
+    public void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeRaw(MIN_LONG);
+            return;
+        }
+        ensure(20);
+        if (value < 0) {
+            buf[count++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) digits++;
+        int pos = count + digits;
+        do {
+            buf[--pos] = DIGITS[(int) (value % 10)];
+            value /= 10;
+        } while (value != 0);
+        count += digits;
+    }
+
+    /**
+     * Writes a floating point number, NaN and infinities have no JSON form and are written as null.
+     */
+    public void writeDouble(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            writeNull();
+            return;
+        }
+        writeAscii(Double.toString(value));
+    }
+
+    /**
+     * Writes a float with its own shortest form, not the one of the widened double.
+     */
+    public void writeFloat(float value) {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            writeNull();
+            return;
+        }
+        writeAscii(Float.toString(value));
+    }
+
+    /**
+     * Writes characters known to be ASCII without escaping them, e.g. a number's toString.
+     */
+    public void writeAscii(String s) {
+        int length = s.length();
+        ensure(length);
+        for (int i = 0; i < length; i++) {
+            buf[count++] = (byte) s.charAt(i);
+        }
+    }
+
+    /**
+     * Writes a quoted JSON string, escaping quotes, backslashes and control characters.
+     * Unpaired surrogates are written as '?', as {@link String#getBytes} does.
+     */
+    public void writeString(CharSequence s) {
+        int length = s.length();
+        //worst case: every char escaped as \\u00XX
+        ensure(length * 6 + 2);
+        byte[] b = buf;
+        int n = count;
+        b[n++] = '"';
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    b[n++] = (byte) c;
+                    continue;
+                }
+                b[n++] = '\\';
+                switch (c) {
+                    case '"' -> b[n++] = '"';
+                    case '\\' -> b[n++] = '\\';
+                    case '\n' -> b[n++] = 'n';
+                    case '\r' -> b[n++] = 'r';
+                    case '\t' -> b[n++] = 't';
+                    case '\b' -> b[n++] = 'b';
+                    case '\f' -> b[n++] = 'f';
+                    default -> {
+                        b[n++] = 'u';
+                        b[n++] = '0';
+                        b[n++] = '0';
+                        b[n++] = DIGITS[c >> 4];
+                        b[n++] = DIGITS[c & 0xF];
+                    }
+                }
+            } else if (c < 0x800) {
+                b[n++] = (byte) (0xC0 | (c >> 6));
+                b[n++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                b[n++] = (byte) (0xF0 | (cp >> 18));
+                b[n++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                b[n++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                b[n++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                b[n++] = '?';
+            } else {
+                b[n++] = (byte) (0xE0 | (c >> 12));
+                b[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                b[n++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        b[n++] = '"';
+        count = n;
+    }
+
+    private void ensure(int bytes) {
+        if (count + bytes > buf.length && sink != null) {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (count + bytes > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + bytes));
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package edu.eci.arep.microspringboot.httpserver;
+
+/**
+ * Signals a request the server cannot understand, answered with 400 Bad Request, or that uses
+ * a feature of HTTP the server does not implement, answered with 501 Not Implemented.
+ */
+public class BadRequestException extends RuntimeException {
+    private final int status;
+
+    public BadRequestException(String message) {
+        this(400, message);
+    }
+
+    /**
+     * @param status  status code of the response, 400 or 501
+     * @param message text sent as the body of the response
+     */
+    public BadRequestException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    /**
+     * @return the status code the request is answered with
+     */
+    public int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,16 @@
+package edu.eci.arep.microspringboot.httpserver;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Produces a response body while it is being sent, instead of holding it in memory.
+ */
+@FunctionalInterface
+public interface BodyWriter {
+    /**
+     * @param out stream connected to the client, the server frames the bytes written to it
+     * @throws IOException if the client connection fails
+     */
+    void writeTo(OutputStream out) throws IOException;
+}
@@ -0,0 +1,93 @@
+package edu.eci.arep.microspringboot.httpserver;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An inclusive range of bytes of a representation, as requested by the Range header.
+ * @param first offset of the first byte
+ * @param last  offset of the last byte
+ */
+record ByteRange(long first, long last) {
+    /** Requests asking for more ranges than this get the whole representation. */
+    static final int MAX_RANGES = 16;
+
+    long length() {
+        return last - first + 1;
+    }
+
+    /**
+     * @param total length of the whole representation
+     * @return the value of the Content-Range header of this range
+     */
+    String contentRange(long total) {
+        return "bytes " + first + "-" + last + "/" + total;
+    }
+
+    /**
+     * Parses a Range header against a representation of a known length. Ranges past the end
+     * are dropped, ranges running past the end are shortened, and overlapping or adjacent
+     * ranges are merged so a client cannot make the server send the same bytes many times.
+     * @param header the Range header, may be null
+     * @param length length of the representation
+     * @return the ranges to send, an empty list if none can be satisfied, or null if the header
+     *         must be ignored and the whole representation sent: absent, not in bytes, invalid,
+     *         or asking for too many ranges
+     */
+    static List<ByteRange> parse(String header, long length) {
+        if (header == null) return null;
+        header = header.trim();
+        if (!header.regionMatches(true, 0, "bytes=", 0, 6)) return null;
+        String[] specs = header.substring(6).split(",");
+        if (specs.length > MAX_RANGES) return null;
+        List<ByteRange> ranges = new ArrayList<>(specs.length);
+        try {
+            for (String spec : specs) {
+                spec = spec.trim();
+                int dash = spec.indexOf('-');
+                if (dash < 0) return null;
+                String start = spec.substring(0, dash).trim();
+                String end = spec.substring(dash + 1).trim();
+                if (start.isEmpty()) {
+                    //suffix range: the last N bytes
+                    long suffix = Long.parseLong(end);
+                    if (suffix < 0) return null;
+                    if (suffix > 0 && length > 0) ranges.add(new ByteRange(Math.max(0, length - suffix), length - 1));
+                    continue;
+                }
+                long first = Long.parseLong(start);
+                long last = end.isEmpty() ? Long.MAX_VALUE : Long.parseLong(end);
+                if (first < 0 || last < first) return null;
+                if (first < length) ranges.add(new ByteRange(first, Math.min(last, length - 1)));
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return ranges.size() > 1 ? coalesce(ranges) : ranges;
+    }
+
+    private static List<ByteRange> coalesce(List<ByteRange> ranges) {
+        List<ByteRange> sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparingLong(ByteRange::first));
+        boolean overlapping = false;
+        for (int i = 1; i < sorted.size() && !overlapping; i++) {
+            overlapping = sorted.get(i).first() <= sorted.get(i - 1).last() + 1;
+        }
+        //ranges that do not touch keep the order the client asked for
+        if (!overlapping) return ranges;
+        List<ByteRange> merged = new ArrayList<>(sorted.size());
+        ByteRange current = sorted.get(0);
+        for (int i = 1; i < sorted.size(); i++) {
+            ByteRange next = sorted.get(i);
+            if (next.first() <= current.last() + 1) {
+                current = new ByteRange(current.first(), Math.max(current.last(), next.last()));
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+}
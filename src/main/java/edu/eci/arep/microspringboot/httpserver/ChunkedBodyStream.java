@@ -0,0 +1,163 @@
+package edu.eci.arep.microspringboot.httpserver;
+
+import edu.eci.arep.microspringboot.helpers.BufferPool;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Body stream of a response produced by a {@link BodyWriter}.
+ * The first {@link #BUFFER_SIZE} bytes are held back: a body that ends within them is sent
+ * with a Content-Length like any other response. A longer body commits the head with
+ * {@code Transfer-Encoding: chunked} and is then sent one chunk per filled buffer, so the
+ * memory used does not depend on the body size. When the response has a content coding,
+ * bodies from {@link ContentEncoding#MIN_SIZE} bytes are compressed, the held back bytes
+ * included, before they are framed in chunks. Both buffers are borrowed from
+ * {@link BufferPool#HEAP} and given back by {@link #release}.
+ */
+class ChunkedBodyStream extends OutputStream {
+    static final int BUFFER_SIZE = 16 * 1024;
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private final HttpResponse response;
+    private final OutputStream out;
+    private final int remaining;
+    private final ByteBuffer pooled = BufferPool.HEAP.acquire(BUFFER_SIZE);
+    private final byte[] buf = pooled.array();
+    private int count;
+    /** Destination of the bytes once the head is sent: the chunk framer, or the encoder in front of it. */
+    private OutputStream body;
+    private ChunkFramer chunks;
+
+    /**
+     * @param response  the response whose head is sent before the body
+     * @param out       the connection stream
+     * @param remaining number of requests the connection may still serve, 0 if it will be closed
+     */
+    ChunkedBodyStream(HttpResponse response, OutputStream out, int remaining) {
+        this.response = response;
+        this.out = out;
+        this.remaining = remaining;
+    }
+
+    /**
+     * @return true once the head has been sent and the response can no longer be replaced
+     */
+    boolean isCommitted() {
+        return body != null;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (body == null) {
+            if (count < buf.length) {
+                buf[count++] = (byte) b;
+                return;
+            }
+            commit();
+        }
+        body.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (body == null && count + len <= buf.length) {
+            System.arraycopy(b, off, buf, count, len);
+            count += len;
+            return;
+        }
+        if (body == null) commit();
+        body.write(b, off, len);
+    }
+
+    /**
+     * Ends the body: sends the whole response if it fitted in the buffer, otherwise the last chunks.
+     */
+    void finish() throws IOException {
+        if (body == null) {
+            if (count == 0 && response.getStatusCode() == 200) response.setStatusCode(204);
+            byte[] bytes = buf;
+            int length = count;
+            ContentEncoding encoding = response.getContentEncoding();
+            if (encoding != null && count >= ContentEncoding.MIN_SIZE) {
+                bytes = encoding.encode(Arrays.copyOf(buf, count), ContentEncoding.DYNAMIC_LEVEL);
+                length = bytes.length;
+                response.header("Content-Encoding", encoding.token);
+            }
+            HttpServer.writeHead(response, response.getStatusCode() != 204 ? length : -1, out, remaining);
+            out.write(bytes, 0, length);
+        } else {
+            //closing the encoder writes its trailer, the framer itself is never closed
+            if (body != chunks) body.close();
+            chunks.flushChunk();
+            out.write(LAST_CHUNK);
+        }
+        out.flush();
+    }
+
+    /**
+     * Gives the buffers back to the pool, once the response is finished or has failed.
+     */
+    void release() {
+        BufferPool.HEAP.release(pooled);
+        if (chunks != null) BufferPool.HEAP.release(chunks.pooled);
+    }
+
+    /**
+     * Sends the head and moves the held back bytes into the chunked body.
+     */
+    private void commit() throws IOException {
+        response.header("Transfer-Encoding", "chunked");
+        ContentEncoding encoding = response.getContentEncoding();
+        if (encoding != null) response.header("Content-Encoding", encoding.token);
+        HttpServer.writeHead(response, -1, out, remaining);
+        chunks = new ChunkFramer();
+        body = encoding != null ? encoding.open(chunks, ContentEncoding.DYNAMIC_LEVEL) : chunks;
+        body.write(buf, 0, count);
+        count = 0;
+    }
+
+    /**
+     * Frames the bytes written into it as chunks of up to {@link #BUFFER_SIZE} bytes.
+     */
+    private final class ChunkFramer extends OutputStream {
+        private final ByteBuffer pooled = BufferPool.HEAP.acquire(BUFFER_SIZE);
+        private final byte[] chunk = pooled.array();
+        private int size;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (size == chunk.length) flushChunk();
+            chunk[size++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (size == chunk.length) flushChunk();
+                int n = Math.min(len, chunk.length - size);
+                System.arraycopy(b, off, chunk, size, n);
+                size += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        void flushChunk() throws IOException {
+            if (size == 0) return;
+            out.write(Integer.toHexString(size).getBytes(StandardCharsets.US_ASCII));
+            out.write(CRLF);
+            out.write(chunk, 0, size);
+            out.write(CRLF);
+            size = 0;
+        }
+
+        @Override
+        public void close() {
+            //the last chunk is written by finish
+        }
+    }
+}
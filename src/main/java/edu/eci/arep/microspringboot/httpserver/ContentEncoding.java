@@ -0,0 +1,125 @@
+package edu.eci.arep.microspringboot.httpserver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content codings the server can apply to a response body.
+ */
+enum ContentEncoding {
+    GZIP("gzip"),
+    DEFLATE("deflate");
+
+    /** Bodies smaller than this are sent as they are, compressing them saves almost nothing. */
+    static final int MIN_SIZE = 1024;
+    /**
+     * Level of the bodies compressed on every request. Repetitive JSON compresses almost as
+     * well at the fastest level, at a fraction of the CPU of the default one.
+     */
+    static final int DYNAMIC_LEVEL = Deflater.BEST_SPEED;
+    private static final int BUFFER_SIZE = 8192;
+    /** Value of the Content-Encoding header. */
+    final String token;
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    /**
+     * Chooses the coding the client prefers from its Accept-Encoding header, following the
+     * q-values and the {@code *} wildcard. Gzip wins a tie because every client decodes it.
+     * @param acceptEncoding the header value, may be null
+     * @return the coding to apply, or null to send the body as it is
+     */
+    static ContentEncoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) return null;
+        double gzip = -1, deflate = -1, any = -1;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            switch (coding) {
+                case "gzip", "x-gzip" -> gzip = q;
+                case "deflate" -> deflate = q;
+                case "*" -> any = q;
+                default -> {}
+            }
+        }
+        if (gzip < 0) gzip = any;
+        if (deflate < 0) deflate = any;
+        if (gzip <= 0 && deflate <= 0) return null;
+        return gzip >= deflate ? GZIP : DEFLATE;
+    }
+
+    /**
+     * @param contentType the Content-Type of a body, null for the text/plain default
+     * @return true if the body is text that compresses well, images and archives are already compressed
+     */
+    static boolean isCompressible(String contentType) {
+        if (contentType == null) return true;
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith("text/") || type.startsWith("application/json") || type.startsWith("application/javascript")
+                || type.contains("xml") || type.startsWith("image/svg");
+    }
+
+    /**
+     * Wraps a stream with this coding. Closing the returned stream finishes the coding and
+     * closes the wrapped stream.
+     * @param out   the stream receiving the encoded bytes
+     * @param level the {@link Deflater} compression level
+     * @return the encoding stream
+     * @throws IOException if the gzip header cannot be written
+     */
+    DeflaterOutputStream open(OutputStream out, int level) throws IOException {
+        if (this == GZIP) {
+            return new GZIPOutputStream(out, BUFFER_SIZE) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        }
+        return new DeflaterOutputStream(out, new Deflater(level), BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    //a deflater given to the constructor is not released by close
+                    def.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Encodes a whole body.
+     * @param data  the body
+     * @param level the {@link Deflater} compression level
+     * @return the encoded body
+     */
+    byte[] encode(byte[] data, int level) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (OutputStream out = open(bytes, level)) {
+            out.write(data);
+        } catch (IOException e) {
+            //a memory stream does not fail
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,11 @@
+package edu.eci.arep.microspringboot.httpserver;
+
+import java.nio.file.Path;
+
+/**
+ * Part of a file sent as a response body without being read into the heap.
+ * @param path     the file
+ * @param position offset of the first byte to send
+ * @param count    number of bytes to send
+ */
+record FileRegion(Path path, long position, long count) {}
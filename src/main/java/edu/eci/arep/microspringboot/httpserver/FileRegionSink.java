@@ -0,0 +1,19 @@
+package edu.eci.arep.microspringboot.httpserver;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Connection stream able to send file bytes straight from the file system cache to the
+ * socket with {@link FileChannel#transferTo}, without copying them through the heap.
+ */
+interface FileRegionSink {
+    /**
+     * Sends the bytes written so far followed by a region of the file.
+     * @param file     the open file
+     * @param position offset of the first byte to send
+     * @param count    number of bytes to send
+     * @throws IOException if the file shrank or the connection failed
+     */
+    void transferFrom(FileChannel file, long position, long count) throws IOException;
+}
@@ -0,0 +1,80 @@
+package edu.eci.arep.microspringboot.httpserver;
+
+/**
+ * Approximate access counts of the cache keys, a count-min sketch of 4-bit counters.
+ * Each key has one counter in each of four rows, all rows packed in a single {@code long[]}
+ * (16 counters per long); its frequency is the smallest of the four. Once the number of
+ * increments reaches ten times the width every counter is halved, so keys popular long ago
+ * lose their weight. Not thread safe, used under the lock of {@link ResponseCache}.
+ */
+final class FrequencySketch {
+    private static final long[] SEEDS = {0x97CB3127L, 0xD6E8FEB86659FD93L, 0x85EBCA77C2B2AE63L, 0xC2B2AE3D27D4EB4FL};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private final long[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int size;
+
+    /**
+     * @param maximum number of keys the cache holds
+     */
+    FrequencySketch(int maximum) {
+        int length = Integer.highestOneBit(Math.max(16, maximum - 1)) << 1;
+        table = new long[length];
+        mask = length - 1;
+        sampleSize = 10 * length;
+    }
+
+    /**
+     * @return the estimated number of accesses of the key, at most 15
+     */
+    int frequency(int hash) {
+        int h = spread(hash);
+        int min = 15;
+        for (int row = 0; row < 4; row++) {
+            min = Math.min(min, (int) (table[index(h, row)] >>> offset(h, row) & 0xF));
+        }
+        return min;
+    }
+
+    /**
+     * Counts an access of the key.
+     */
+    void increment(int hash) {
+        int h = spread(hash);
+        boolean added = false;
+        for (int row = 0; row < 4; row++) {
+            int i = index(h, row);
+            int offset = offset(h, row);
+            if ((table[i] >>> offset & 0xF) != 0xF) {
+                table[i] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++size == sampleSize) reset();
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = table[i] >>> 1 & RESET_MASK;
+        }
+        size /= 2;
+    }
+
+    private int index(int h, int row) {
+        long hash = (h + SEEDS[row]) * SEEDS[row];
+        hash += hash >>> 32;
+        return (int) hash & mask;
+    }
+
+    /** Bit offset of the counter of the row in its long, one of the 16 4-bit counters. */
+    private static int offset(int h, int row) {
+        return (h >>> (row << 3) & 0xF) << 2;
+    }
+
+    private static int spread(int x) {
+        x = (x >>> 16 ^ x) * 0x45D9F3B;
+        x = (x >>> 16 ^ x) * 0x45D9F3B;
+        return x >>> 16 ^ x;
+    }
+}
@@ -0,0 +1,159 @@
+package edu.eci.arep.microspringboot.httpserver;
+
+import edu.eci.arep.microspringboot.annotations.PathVariable;
+import edu.eci.arep.microspringboot.annotations.RequestBody;
+import edu.eci.arep.microspringboot.annotations.RequestParam;
+import edu.eci.arep.microspringboot.helpers.JsonConverter;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Calls a controller method bound once, when its route is registered.
+ * The parameter annotations are read a single time and each parameter gets a handle reading its
+ * value from the request and converting it with {@link ParameterConverters}; the method handle
+ * is combined with them into one handle taking the request, so serving a request does no
+ * annotation scanning, no reflective call, and no boxing of primitive parameters. A
+ * {@link RequestBody} parameter is read with a JSON parser built for its type at the same time.
+ * A parameter that cannot be converted, or a body that is not valid JSON, is answered with
+ * 400 Bad Request.
+ */
+public final class HandlerInvoker {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodHandle QUERY_VALUE;
+    private static final MethodHandle QUERY_VALUES;
+    private static final MethodHandle PATH_VARIABLE;
+    private static final MethodHandle BODY;
+    private static final MethodHandle BODY_TEXT;
+    private static final MethodHandle JSON_BODY;
+    static {
+        try {
+            QUERY_VALUE = LOOKUP.findStatic(HandlerInvoker.class, "queryValue",
+                    MethodType.methodType(String.class, String.class, String.class, HttpRequest.class));
+            QUERY_VALUES = LOOKUP.findStatic(HandlerInvoker.class, "queryValues",
+                    MethodType.methodType(List.class, String.class, List.class, HttpRequest.class));
+            PATH_VARIABLE = LOOKUP.findVirtual(HttpRequest.class, "getPathVariable",
+                    MethodType.methodType(String.class, String.class));
+            BODY = LOOKUP.findVirtual(HttpRequest.class, "getBody", MethodType.methodType(byte[].class));
+            BODY_TEXT = LOOKUP.findVirtual(HttpRequest.class, "getBodyAsString", MethodType.methodType(String.class));
+            JSON_BODY = LOOKUP.findStatic(HandlerInvoker.class, "jsonBody",
+                    MethodType.methodType(Object.class, Function.class, HttpRequest.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    /** The handler, as {@code (HttpRequest)Object}. */
+    private final MethodHandle handle;
+
+    private HandlerInvoker(MethodHandle handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * Binds a static controller method.
+     * @param m the handler method
+     * @return the invoker of the method
+     * @throws IllegalArgumentException if the method is not static, cannot be accessed or has a
+     *                                  parameter of a type that cannot be bound
+     */
+    static HandlerInvoker of(Method m) {
+        if (!Modifier.isStatic(m.getModifiers())) {
+            throw new IllegalArgumentException("Handler " + m + " must be static");
+        }
+        try {
+            m.setAccessible(true);
+            MethodHandle target = LOOKUP.unreflect(m);
+            Annotation[][] annotations = m.getParameterAnnotations();
+            int n = annotations.length;
+            for (int i = 0; i < n; i++) {
+                target = MethodHandles.filterArguments(target, i,
+                        argument(m.getParameterTypes()[i], m.getGenericParameterTypes()[i], annotations[i]));
+            }
+            //every argument is read from the same request
+            MethodHandle handle = n == 0 ? MethodHandles.dropArguments(target, 0, HttpRequest.class)
+                    : MethodHandles.permuteArguments(target, MethodType.methodType(target.type().returnType(), HttpRequest.class), new int[n]);
+            return new HandlerInvoker(handle.asType(MethodType.methodType(Object.class, HttpRequest.class)));
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new IllegalArgumentException("Cannot bind handler " + m + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return a handle reading one argument from the request, as {@code (HttpRequest)type}
+     */
+    private static MethodHandle argument(Class<?> type, Type genericType, Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof RequestParam r) {
+                //"Default" is the value of an unset defaultValue, only String parameters take it literally
+                String defaultValue = type != String.class && r.defaultValue().equals("Default") ? null : r.defaultValue();
+                if (type == List.class) {
+                    if (!(genericType instanceof ParameterizedType p) || p.getActualTypeArguments()[0] != String.class) {
+                        throw new IllegalArgumentException("List parameter " + r.value() + " must be a List<String>");
+                    }
+                    return MethodHandles.insertArguments(QUERY_VALUES, 0, r.value(), defaultValue == null ? List.of() : List.of(defaultValue));
+                }
+                return MethodHandles.filterReturnValue(MethodHandles.insertArguments(QUERY_VALUE, 0, r.value(), defaultValue),
+                        ParameterConverters.forType(type, r.value()));
+            }
+            if (annotation instanceof RequestBody) {
+                if (type == byte[].class) return BODY;
+                if (type == String.class) return BODY_TEXT;
+                //the parser of the type is built once, with the handler
+                return MethodHandles.insertArguments(JSON_BODY, 0, JsonConverter.parserFor(genericType))
+                        .asType(MethodType.methodType(type, HttpRequest.class));
+            }
+            if (annotation instanceof PathVariable p) {
+                return MethodHandles.filterReturnValue(MethodHandles.insertArguments(PATH_VARIABLE, 1, p.value()),
+                        ParameterConverters.forType(type, p.value()));
+            }
+        }
+        //not bound to the request: null, or zero for primitives
+        return MethodHandles.dropArguments(MethodHandles.zero(type), 0, HttpRequest.class);
+    }
+
+    private static String queryValue(String name, String defaultValue, HttpRequest request) {
+        String value = request.getValues(name);
+        return value != null ? value : defaultValue;
+    }
+
+    private static Object jsonBody(Function<byte[], Object> parser, HttpRequest request) {
+        byte[] body = request.getBody();
+        if (body.length == 0) throw new BadRequestException("Missing request body");
+        try {
+            return parser.apply(body);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid request body: " + e.getMessage());
+        }
+    }
+
+    private static List<String> queryValues(String name, List<String> defaultValues, HttpRequest request) {
+        List<String> values = request.getAllValues(name);
+        return values.isEmpty() ? defaultValues : values;
+    }
+
+    /**
+     * Binds the request values to the handler parameters and calls the handler.
+     * @param request the request, with its path variables already set
+     * @return the value returned by the handler, null for void handlers
+     * @throws BadRequestException if a parameter is missing or cannot be converted
+     * @throws Exception any exception thrown by the handler
+     */
+    public Object invoke(HttpRequest request) throws Exception {
+        try {
+            return (Object) handle.invokeExact(request);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new UndeclaredThrowableException(t);
+        }
+    }
+}
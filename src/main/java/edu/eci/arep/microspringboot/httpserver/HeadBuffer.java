@@ -0,0 +1,18 @@
+package edu.eci.arep.microspringboot.httpserver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Connection stream whose own buffer the response head is encoded into, instead of being
+ * built in an array and then copied.
+ */
+interface HeadBuffer {
+    /**
+     * Makes room for the head, sending the bytes buffered so far if needed.
+     * @param size number of bytes of the head
+     * @return the buffer to write the head into, or null if the head is larger than the buffer
+     * @throws IOException if the connection failed
+     */
+    ByteBuffer reserve(int size) throws IOException;
+}
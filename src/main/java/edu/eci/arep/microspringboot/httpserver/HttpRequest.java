@@ -4,15 +4,14 @@
  */
 package edu.eci.arep.microspringboot.httpserver;
 
-import edu.eci.arep.microspringboot.annotations.RequestParam;
-
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Method;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.Set;
 
 /**
  *
@@ -22,10 +21,98 @@ public class HttpRequest {
 
     URI uri;
     Map<String, String> parameters = new HashMap<>();
+    /** Every value of the parameters sent more than once, null if none was. */
+    Map<String, List<String>> repeated;
+    Map<String, String> pathVariables = Collections.emptyMap();
+    String method = "GET";
+    byte[] head = new byte[0];
+    int[] headerOffsets = new int[0];
+    int headerCount;
+    byte[] body = new byte[0];
+    boolean keepAlive = true;
     public HttpRequest(URI requri){
         this.uri = requri;
         if(uri.getQuery() != null) setParamValues();
     }
+    /**
+     * Builds a request from the bytes read by {@link HttpRequestParser}.
+     * @param method        the request method
+     * @param requri        the request target
+     * @param head          request line and header bytes as received
+     * @param headerOffsets name start, name end, value start and value end of every header inside {@code head}
+     * @param headerCount   number of headers
+     * @param body          the request body, empty if none was sent
+     * @param keepAlive     whether the client allows reusing the connection
+     */
+    HttpRequest(String method, URI requri, byte[] head, int[] headerOffsets, int headerCount, byte[] body, boolean keepAlive){
+        this(requri);
+        this.method = method;
+        this.head = head;
+        this.headerOffsets = headerOffsets;
+        this.headerCount = headerCount;
+        this.body = body;
+        this.keepAlive = keepAlive;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+    public String getPath() {
+        return uri.getPath();
+    }
+    public URI getUri() {
+        return uri;
+    }
+    public byte[] getBody() {
+        return body;
+    }
+    /**
+     * @return the body decoded as UTF-8
+     */
+    public String getBodyAsString() {
+        return new String(body, StandardCharsets.UTF_8);
+    }
+    /**
+     * @return true if the connection may be reused after answering this request
+     */
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+    /**
+     * Retrieves a header value, the name is matched ignoring case.
+     * The value is only decoded when it is requested.
+     * @param name the header name
+     * @return the header value, or null if the client did not send it
+     */
+    public String getHeader(String name) {
+        for (int i = 0; i < headerCount; i++) {
+            int idx = i * 4;
+            int start = headerOffsets[idx], end = headerOffsets[idx + 1];
+            if (end - start == name.length() && nameMatches(start, name)) {
+                return new String(head, headerOffsets[idx + 2], headerOffsets[idx + 3] - headerOffsets[idx + 2], StandardCharsets.ISO_8859_1);
+            }
+        }
+        return null;
+    }
+    /**
+     * @return every header sent by the client, in the order they were received
+     */
+    public Map<String, String> getHeaders() {
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (int i = 0; i < headerCount; i++) {
+            int idx = i * 4;
+            headers.put(new String(head, headerOffsets[idx], headerOffsets[idx + 1] - headerOffsets[idx], StandardCharsets.ISO_8859_1),
+                    new String(head, headerOffsets[idx + 2], headerOffsets[idx + 3] - headerOffsets[idx + 2], StandardCharsets.ISO_8859_1));
+        }
+        return headers;
+    }
+
+    private boolean nameMatches(int start, String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (Character.toLowerCase((char) head[start + i]) != Character.toLowerCase(name.charAt(i))) return false;
+        }
+        return true;
+    }
 
     /**
      * Stores the parameters
@@ -35,64 +122,47 @@ public class HttpRequest {
         for(String value : values){
             String[] keyValue = value.split("=");
             if(keyValue.length > 1){
-                parameters.put(keyValue[0], keyValue[1]);
+                String previous = parameters.put(keyValue[0], keyValue[1]);
+                if(previous != null) {
+                    if(repeated == null) repeated = new HashMap<>();
+                    repeated.computeIfAbsent(keyValue[0], k -> new ArrayList<>(List.of(previous))).add(keyValue[1]);
+                }
             }
         }
     }
     /**
-     * Determines the base path of the current request URI from a set of known paths.
-     * @param paths the set of available base paths
-     * @return the matching base path if found, otherwise null
+     * Stores the values of the {@code {variable}} segments matched by the route
+     * @param pathVariables the variable values by name
      */
-    public String getBasePath(Set<String> paths){
-        String fullPath = uri.getPath();
-        Optional<String> path = paths.stream().filter(x -> fullPath.startsWith(x)).findFirst();
-        if(path.isPresent()){
-            return path.get();
-        }
-        return null;
+    void setPathVariables(Map<String, String> pathVariables){
+        this.pathVariables = pathVariables;
     }
     /**
-     * Extracts the resource path from the request URI by removing the given base path.
-     * @param basePath the base path to strip from the URI
-     * @return the remaining resource path, or "/" if empty
+     * Retrieves the value of a path variable
+     * @param name the name of the variable in the mapping
+     * @return the variable value, or null if the route does not declare it
      */
-    public String getSourcePath(String basePath){
-        String resourcePath = uri.getPath().substring(basePath.length());
-        return resourcePath.isEmpty() ? "/" : resourcePath;
+    public String getPathVariable(String name){
+        return pathVariables.get(name);
     }
 
     /**
      * Retrieves the value of a query parameter
      * @param paraName the name of the parameter to look up
-     * @return the parameter value
+     * @return the parameter value, the last one if it was sent more than once
      */
     public String getValues(String paraName){
         return parameters.get(paraName);
     }
     /**
-     * Retrieves the parameter values for a given method by inspecting its @RequestParam annotations.
-     * @param m the method whose parameters will be analyzed
-     * @return an array of parameter values extracted from the request or their default values
+     * Retrieves every value of a query parameter sent more than once, as in {@code ?tag=a&tag=b}
+     * @param paraName the name of the parameter to look up
+     * @return the values in the order they were sent, empty if the parameter was not sent
      */
-    public String[] getParamValues(Method m){
-        Annotation[][] annotations = m.getParameterAnnotations();
-        String[] argsValues = new String[annotations.length];
-        for (int i = 0; i < annotations.length; i++) {
-            RequestParam requestParam = null;
-            for (Annotation annotation : annotations[i]) {
-                if (annotation instanceof RequestParam r) {
-                    requestParam = r;
-                    break;
-                }
-            }
-            if (requestParam != null) {
-                String value = getValues(requestParam.value());
-                if(value != null) argsValues[i] = value;
-                else argsValues[i] = requestParam.defaultValue();
-            }
-        }
-        if(argsValues.length > 0) return argsValues;
-        return null;
+    public List<String> getAllValues(String paraName){
+        List<String> values = repeated != null ? repeated.get(paraName) : null;
+        if(values != null) return Collections.unmodifiableList(values);
+        String value = parameters.get(paraName);
+        return value != null ? List.of(value) : List.of();
     }
 }
@@ -0,0 +1,237 @@
+package edu.eci.arep.microspringboot.httpserver;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Incremental HTTP/1.1 request parser working directly on bytes.
+ * Bytes are consumed from a reusable {@link ByteBuffer} as they arrive, so a request split
+ * across several reads is parsed without re-scanning. The request line and header block are
+ * copied once into an array handed to the {@link HttpRequest}, which only records offsets:
+ * no String is created for headers the application never asks for. Content-Length and
+ * Connection are recognized while parsing and the body is read as an exact number of bytes,
+ * into an array that grows as they arrive: a large Content-Length alone does not reserve memory.
+ * Content-Length is the only framing understood: a request with Transfer-Encoding is answered
+ * with 501 and one with different Content-Length values with 400, and the connection is
+ * closed, so its body is never read as the next request.
+ */
+public class HttpRequestParser {
+    /** Largest request line plus header block accepted. */
+    static final int MAX_HEADER_SIZE = 16 * 1024;
+    /** Largest request body accepted. */
+    static final int MAX_BODY_SIZE = 1024 * 1024;
+    /** Size of the body array before the body bytes arrive. */
+    static final int INITIAL_BODY_SIZE = 8 * 1024;
+    private static final byte[] CONTENT_LENGTH = "content-length".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRANSFER_ENCODING = "transfer-encoding".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CONNECTION = "connection".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CLOSE = "close".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] KEEP_ALIVE = "keep-alive".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HTTP_1_0 = "http/1.0".getBytes(StandardCharsets.US_ASCII);
+
+    private enum State { REQUEST_LINE, HEADERS, BODY, DONE }
+
+    private State state;
+    private byte[] head;
+    private int headLength;
+    private int lineStart;
+    private int methodEnd, targetStart, targetEnd, versionStart, versionEnd;
+    private int[] headers;
+    private int headerCount;
+    private int connectionHeader;
+    private byte[] body;
+    private int bodyLength;
+    private int bodyRead;
+
+    public HttpRequestParser() {
+        reset();
+    }
+
+    /**
+     * Prepares the parser for the next request of the connection.
+     */
+    public void reset() {
+        state = State.REQUEST_LINE;
+        //the previous arrays now belong to the request built from them
+        head = new byte[512];
+        headers = new int[4 * 16];
+        headLength = 0;
+        lineStart = 0;
+        headerCount = 0;
+        connectionHeader = -1;
+        body = null;
+        bodyLength = -1;
+        bodyRead = 0;
+    }
+
+    /**
+     * @return true if bytes of a request have already been consumed
+     */
+    public boolean isStarted() {
+        return headLength > 0 || state != State.REQUEST_LINE;
+    }
+
+    /**
+     * Consumes bytes from the buffer until the current request is complete or the buffer
+     * is exhausted. Bytes of a following pipelined request are left in the buffer.
+     * @param buffer buffer in read mode
+     * @return true once the whole request, including its body, has been received
+     * @throws BadRequestException if the request is malformed or exceeds the size limits
+     */
+    public boolean parse(ByteBuffer buffer) {
+        while (state != State.DONE && buffer.hasRemaining()) {
+            if (state == State.BODY) {
+                int n = Math.min(buffer.remaining(), bodyLength - bodyRead);
+                if (bodyRead + n > body.length) {
+                    body = Arrays.copyOf(body, Math.min(Math.max(body.length * 2, bodyRead + n), bodyLength));
+                }
+                buffer.get(body, bodyRead, n);
+                bodyRead += n;
+                if (bodyRead == bodyLength) state = State.DONE;
+                continue;
+            }
+            byte b = buffer.get();
+            if (headLength == head.length) {
+                if (head.length >= MAX_HEADER_SIZE) throw new BadRequestException("Request headers too large");
+                byte[] bigger = new byte[Math.min(head.length * 2, MAX_HEADER_SIZE)];
+                System.arraycopy(head, 0, bigger, 0, headLength);
+                head = bigger;
+            }
+            head[headLength++] = b;
+            if (b == '\n') {
+                int end = headLength - 1;
+                if (end > lineStart && head[end - 1] == '\r') end--;
+                lineComplete(lineStart, end);
+                lineStart = headLength;
+            }
+        }
+        return state == State.DONE;
+    }
+
+    private void lineComplete(int start, int end) {
+        if (state == State.REQUEST_LINE) {
+            //empty lines before the request line are ignored
+            if (end == start) {
+                headLength = 0;
+                return;
+            }
+            methodEnd = indexOf(' ', start, end);
+            targetStart = methodEnd + 1;
+            targetEnd = indexOf(' ', targetStart, end);
+            if (methodEnd <= start || targetEnd <= targetStart) throw new BadRequestException("Malformed request line");
+            versionStart = targetEnd + 1;
+            versionEnd = end;
+            state = State.HEADERS;
+            return;
+        }
+        if (end == start) {
+            state = body != null ? State.BODY : State.DONE;
+            return;
+        }
+        int colon = indexOf(':', start, end);
+        if (colon <= start) throw new BadRequestException("Malformed header line");
+        int valueStart = colon + 1;
+        while (valueStart < end && (head[valueStart] == ' ' || head[valueStart] == '\t')) valueStart++;
+        int valueEnd = end;
+        while (valueEnd > valueStart && (head[valueEnd - 1] == ' ' || head[valueEnd - 1] == '\t')) valueEnd--;
+        if (headerCount * 4 == headers.length) {
+            int[] bigger = new int[headers.length * 2];
+            System.arraycopy(headers, 0, bigger, 0, headers.length);
+            headers = bigger;
+        }
+        int idx = headerCount * 4;
+        headers[idx] = start;
+        headers[idx + 1] = colon;
+        headers[idx + 2] = valueStart;
+        headers[idx + 3] = valueEnd;
+        if (equalsIgnoreCase(head, start, colon, CONTENT_LENGTH)) {
+            int length = parseContentLength(valueStart, valueEnd);
+            //repeated with the same value it is harmless, with another one the body has no single end
+            if (bodyLength >= 0 && length != bodyLength) throw new BadRequestException("Conflicting Content-Length headers");
+            if (bodyLength < 0) {
+                bodyLength = length;
+                body = bodyLength > 0 ? new byte[Math.min(bodyLength, INITIAL_BODY_SIZE)] : null;
+            }
+        } else if (equalsIgnoreCase(head, start, colon, TRANSFER_ENCODING)) {
+            throw new BadRequestException(501, "Transfer-Encoding is not supported, send Content-Length");
+        } else if (equalsIgnoreCase(head, start, colon, CONNECTION)) {
+            connectionHeader = headerCount;
+        }
+        headerCount++;
+    }
+
+    private int parseContentLength(int start, int end) {
+        if (start == end) throw new BadRequestException("Invalid Content-Length");
+        long length = 0;
+        for (int i = start; i < end; i++) {
+            byte b = head[i];
+            if (b < '0' || b > '9') throw new BadRequestException("Invalid Content-Length");
+            length = length * 10 + (b - '0');
+            if (length > MAX_BODY_SIZE) throw new BadRequestException("Request body too large");
+        }
+        return (int) length;
+    }
+
+    /**
+     * Builds the request once {@link #parse(ByteBuffer)} returned true.
+     * @return the parsed request, owning the bytes read by this parser
+     * @throws BadRequestException if the request target is not a valid URI
+     */
+    public HttpRequest toRequest() {
+        String method = new String(head, 0, methodEnd, StandardCharsets.US_ASCII);
+        String target = new String(head, targetStart, targetEnd - targetStart, StandardCharsets.US_ASCII);
+        URI uri;
+        try {
+            uri = new URI(target);
+        } catch (URISyntaxException e) {
+            throw new BadRequestException("Invalid request target: " + target);
+        }
+        return new HttpRequest(method, uri, head, headers, headerCount, body == null ? new byte[0] : body, isKeepAlive());
+    }
+
+    /**
+     * HTTP/1.1 connections are persistent unless the client sends {@code Connection: close},
+     * HTTP/1.0 connections are only kept when the client explicitly asks for {@code keep-alive}.
+     */
+    private boolean isKeepAlive() {
+        boolean close = false, keepAlive = false;
+        if (connectionHeader >= 0) {
+            int idx = connectionHeader * 4;
+            close = containsIgnoreCase(headers[idx + 2], headers[idx + 3], CLOSE);
+            keepAlive = containsIgnoreCase(headers[idx + 2], headers[idx + 3], KEEP_ALIVE);
+        }
+        if (close) return false;
+        if (equalsIgnoreCase(head, versionStart, versionEnd, HTTP_1_0)) return keepAlive;
+        return true;
+    }
+
+    private int indexOf(char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (head[i] == c) return i;
+        }
+        return -1;
+    }
+
+    private boolean containsIgnoreCase(int from, int to, byte[] token) {
+        for (int i = from; i + token.length <= to; i++) {
+            if (equalsIgnoreCase(head, i, i + token.length, token)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Compares ASCII bytes with a lower-case token without creating a String.
+     */
+    static boolean equalsIgnoreCase(byte[] data, int from, int to, byte[] lowerCaseToken) {
+        if (to - from != lowerCaseToken.length) return false;
+        for (int i = 0; i < lowerCaseToken.length; i++) {
+            byte b = data[from + i];
+            if (b >= 'A' && b <= 'Z') b += 'a' - 'A';
+            if (b != lowerCaseToken[i]) return false;
+        }
+        return true;
+    }
+}
@@ -5,10 +5,12 @@
 package edu.eci.arep.microspringboot.httpserver;
 
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
-import static edu.eci.arep.microspringboot.helpers.JsonConverter.toJson;
+import static edu.eci.arep.microspringboot.helpers.JsonConverter.toJsonBytes;
+import static edu.eci.arep.microspringboot.helpers.JsonConverter.writeJson;
 
 /**
  *
@@ -19,6 +21,10 @@ public class HttpResponse {
     String statusMessage="OK";
     Map<String, String> headers = new LinkedHashMap<>();
     byte[] body;
+    BodyWriter bodyWriter;
+    FileRegion fileRegion;
+    MultipartByteRanges fileRanges;
+    ContentEncoding contentEncoding;
     public HttpResponse(int statusCode, Object body) {
         this.statusCode = statusCode;
         this.body = toByte(body);
@@ -52,8 +58,58 @@ public class HttpResponse {
      */
     public HttpResponse body(Object body) {
         this.body = toByte(body);
+        this.bodyWriter = null;
+        this.fileRegion = null;
+        this.fileRanges = null;
         return this;
     }
+    /**
+     *Set an object as the JSON body, serialized while it is sent to the client
+     * @param value object to serialize
+     * @return HttpResponse object
+     */
+    public HttpResponse json(Object value) {
+        headers.putIfAbsent("Content-Type","application/json");
+        return stream(out -> writeJson(value, out));
+    }
+    /**
+     *Set a body produced while the response is sent, long bodies use chunked transfer encoding
+     * @param writer the body producer
+     * @return HttpResponse object
+     */
+    public HttpResponse stream(BodyWriter writer) {
+        this.body = null;
+        this.fileRegion = null;
+        this.fileRanges = null;
+        this.bodyWriter = writer;
+        return this;
+    }
+    /**
+     *Set part of a file as the body, sent from the file system without being read into memory
+     * @param path the file
+     * @param position offset of the first byte to send
+     * @param count number of bytes to send
+     * @return HttpResponse object
+     */
+    public HttpResponse file(Path path, long position, long count) {
+        this.body = null;
+        this.bodyWriter = null;
+        this.fileRanges = null;
+        this.fileRegion = new FileRegion(path, position, count);
+        return this;
+    }
+    /**
+     *Set several ranges of a file as a multipart/byteranges body, sent like a file region
+     * @param ranges the ranges and their part headers
+     * @return HttpResponse object
+     */
+    HttpResponse fileRanges(MultipartByteRanges ranges) {
+        this.body = null;
+        this.bodyWriter = null;
+        this.fileRegion = null;
+        this.fileRanges = ranges;
+        return contentType(ranges.contentType());
+    }
 
     public int getStatusCode() {
         return statusCode;
@@ -67,6 +123,30 @@ public class HttpResponse {
     public byte[] getBody() {
         return body;
     }
+    public BodyWriter getBodyWriter() {
+        return bodyWriter;
+    }
+    FileRegion getFileRegion() {
+        return fileRegion;
+    }
+    MultipartByteRanges getFileRanges() {
+        return fileRanges;
+    }
+    ContentEncoding getContentEncoding() {
+        return contentEncoding;
+    }
+    /**
+     *Copy of a response whose body is in memory, the body array is shared with this one
+     * @return a response with the same status, headers and body
+     */
+    HttpResponse copy() {
+        HttpResponse copy = new HttpResponse();
+        copy.statusCode = statusCode;
+        copy.statusMessage = statusMessage;
+        copy.headers.putAll(headers);
+        copy.body = body;
+        return copy;
+    }
     /**
      *Set the value of content-type header
      * @param v content-type value
@@ -90,6 +170,12 @@ public class HttpResponse {
             case 204:
                 statusMessage = "No Content";
                 break;
+            case 206:
+                statusMessage = "Partial Content";
+                break;
+            case 304:
+                statusMessage = "Not Modified";
+                break;
             case 400:
                 statusMessage = "Bad Request";
                 break;
@@ -108,6 +194,15 @@ public class HttpResponse {
             case 406:
                 statusMessage = "Not Acceptable";
                 break;
+            case 416:
+                statusMessage = "Range Not Satisfiable";
+                break;
+            case 501:
+                statusMessage = "Not Implemented";
+                break;
+            case 503:
+                statusMessage = "Service Unavailable";
+                break;
             default:
                 statusMessage = "Internal Server Error";
                 break;
@@ -120,6 +215,7 @@ public class HttpResponse {
      * @return object converted to byte
      */
     private byte[] toByte(Object obj){
+        if(obj == null) return null;
         if(obj instanceof byte[]){
             headers.putIfAbsent("Content-Type","application/octet-stream");
             return (byte[])obj;
@@ -129,7 +225,7 @@ public class HttpResponse {
         }
         //if the object is type json, and does not have content.type header, set application/json automatically
         headers.putIfAbsent("Content-Type","application/json");
-        return toJson(obj).getBytes(StandardCharsets.UTF_8);
+        return toJsonBytes(obj);
     }
     
 }
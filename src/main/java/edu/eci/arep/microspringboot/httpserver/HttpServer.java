@@ -1,34 +1,63 @@
 package edu.eci.arep.microspringboot.httpserver;
 
+import edu.eci.arep.microspringboot.annotations.Cacheable;
+import edu.eci.arep.microspringboot.annotations.DeleteMapping;
 import edu.eci.arep.microspringboot.annotations.GetMapping;
+import edu.eci.arep.microspringboot.annotations.PostMapping;
+import edu.eci.arep.microspringboot.annotations.PutMapping;
 import edu.eci.arep.microspringboot.annotations.RequestMapping;
 import edu.eci.arep.microspringboot.annotations.RestController;
-import edu.eci.arep.microspringboot.classes.Task;
+import edu.eci.arep.microspringboot.helpers.BufferPool;
 
 import java.net.*;
 import java.io.*;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-import static edu.eci.arep.microspringboot.classes.TaskManager.getTaskManager;
-import static edu.eci.arep.microspringboot.helpers.ClassesConverter.findClasses;
+import static edu.eci.arep.microspringboot.helpers.ClassesConverter.findAnnotatedClasses;
+import static edu.eci.arep.microspringboot.helpers.ClassesConverter.findIndexedClasses;
 
 public class HttpServer implements Runnable {
-    public static Map<String,Map<String, Method>> services = new HashMap<>();
+    /** Time a persistent connection may stay idle waiting for its next request. */
+    static final int KEEP_ALIVE_TIMEOUT_MS = 5000;
+    /** Time allowed to receive the rest of a request once its first line arrived. */
+    static final int READ_TIMEOUT_MS = 1500;
+    /** Maximum number of requests served through a single connection. */
+    static final int MAX_KEEP_ALIVE_REQUESTS = 100;
+    /** Pending connections the operating system queues before the acceptor takes them. */
+    static final int BACKLOG = 1024;
+    /** Size of the buffer each connection reads into, reused by all its requests. */
+    static final int BUFFER_SIZE = 8192;
+    /** Handlers of every loaded controller, indexed by path segment. */
+    public static final RouteTable routes = new RouteTable();
+    /** Responses of the {@link Cacheable} handlers, shared like the routes. */
+    public static final ResponseCache responses = new ResponseCache(ResponseCache.DEFAULT_MAX_ENTRIES);
+    /** GET requests whose handler is running, joined by the identical requests that arrive meanwhile. */
+    public static final RequestCoalescer inFlight = new RequestCoalescer();
     final AtomicBoolean running = new AtomicBoolean(false);
-    final ThreadPoolExecutor executor;
+    final Set<Socket> idleConnections = ConcurrentHashMap.newKeySet();
+    final ExecutorService executor;
+    /** Admission limit of the virtual-thread engine, null for the other engines. */
+    final Semaphore admission;
     private ServerSocket serverSocket;
+    private final ServerEngine engine;
+    private volatile NioEngine nioEngine;
     static String dir;
     static String pathBase;
+    static StaticFileCache staticCache;
     private final int port;
     private String classPath = "edu.eci.arep";
     Thread t;
@@ -46,10 +75,31 @@ public class HttpServer implements Runnable {
      * @param classPath  the classpath used for discovering and loading services
      */
     public HttpServer(int portServer,int nThreads, int capacity, String filesPath, String classPath) {
+        this(portServer, nThreads, capacity, filesPath, classPath, ServerEngine.BLOCKING);
+    }
+    /**
+     * Constructs an {@code HttpServer} instance that uses the given I/O engine.
+     *
+     * @param portServer the port number on which the server will listen
+     * @param nThreads   the number of worker threads in the thread pool
+     * @param capacity   the maximum number of pending tasks allowed in the queue, or the maximum
+     *                   number of connections served at once with {@link ServerEngine#VIRTUAL}
+     * @param filesPath  the base path for serving static files
+     * @param classPath  the classpath used for discovering and loading services
+     * @param engine     the engine used to accept connections and read requests
+     */
+    public HttpServer(int portServer,int nThreads, int capacity, String filesPath, String classPath, ServerEngine engine) {
         this.port = portServer;
+        this.engine = engine;
         staticfiles(filesPath);
         setClassPath(classPath);
         preloadServices();
+        if (engine == ServerEngine.VIRTUAL) {
+            this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-vworker-", 1).factory());
+            this.admission = new Semaphore(capacity);
+            return;
+        }
+        this.admission = null;
         this.executor = new ThreadPoolExecutor(
             nThreads, nThreads,
             0L, TimeUnit.MILLISECONDS,
@@ -64,7 +114,8 @@ public class HttpServer implements Runnable {
                     return t;
                 }
             },
-            new ThreadPoolExecutor.CallerRunsPolicy()
+            //a rejected request must not run on an event loop, which would stop serving its other connections
+            engine == ServerEngine.NIO ? new ThreadPoolExecutor.AbortPolicy() : new ThreadPoolExecutor.CallerRunsPolicy()
         );
     }
     /**
@@ -94,34 +145,65 @@ public class HttpServer implements Runnable {
     @Override
     public void run() {
         if (!running.compareAndSet(false, true)) return;
-        try(ServerSocket ss = new ServerSocket(this.port)){
+        try {
+            if (engine == ServerEngine.NIO) {
+                nioEngine = new NioEngine(port, running, executor, Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+                nioEngine.run();
+            } else {
+                acceptConnections();
+            }
+        }catch (IOException ex){
+            System.err.println("Accept failed.");
+        }finally {
+            shutdown();
+            running.set(false);
+            System.out.println("Server stopped");
+        }
+    }
+    /**
+     * Blocking engines: accepts connections and hands each socket to a worker thread.
+     * With virtual threads a connection is only accepted once the admission semaphore
+     * grants a permit, pending clients wait in the operating system backlog meanwhile.
+     * @throws IOException if the server socket cannot be opened
+     */
+    private void acceptConnections() throws IOException {
+        //opened through a channel so the accepted sockets can send files with transferTo
+        try(ServerSocket ss = ServerSocketChannel.open().socket()){
             serverSocket = ss;
             ss.setReuseAddress(true);
+            ss.bind(new InetSocketAddress(this.port), BACKLOG);
             ss.setSoTimeout(1000);
-            System.out.println("Server listening on port " + port);
+            System.out.println("Server listening on port " + port + (admission != null ? " (virtual threads)" : ""));
             while (running.get()) {
+                boolean acquired = false, admitted = false;
                 try{
+                    if (admission != null) {
+                        acquired = admission.tryAcquire(1, TimeUnit.SECONDS);
+                        if (!acquired) continue;
+                    }
                     Socket clientSocket = ss.accept();
-                    clientSocket.setSoTimeout(1500);
                     executor.execute(() -> {
                         try {
                             runServer(clientSocket);
                         } catch (IOException e) {
                             System.err.println("Error running server");
+                        } finally {
+                            if (admission != null) admission.release();
                         }
                     });
+                    admitted = true;
                 }catch (SocketTimeoutException e){}
                 catch(SocketException e){
                     if(!running.get()) break;
                     System.err.println("SocketException: " + e.getMessage());
+                }catch (InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    break;
+                }finally {
+                    //the permit was taken but no worker will release it
+                    if (acquired && !admitted) admission.release();
                 }
             }
-        }catch (IOException ex){
-            System.err.println("Accept failed.");
-        }finally {
-            shutdown();
-            running.set(false);
-            System.out.println("Server stopped");
         }
     }
     /**
@@ -134,6 +216,13 @@ public class HttpServer implements Runnable {
         try {
             if (serverSocket != null && !serverSocket.isClosed()) serverSocket.close();
         } catch (IOException ignored) {}
+        if (nioEngine != null) nioEngine.wakeup();
+        //connections waiting for their next request would otherwise hold a worker until the idle timeout
+        for (Socket socket : idleConnections) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {}
+        }
         shutdown();
     }
     /**
@@ -162,15 +251,24 @@ public class HttpServer implements Runnable {
         }
     }
     /**
-     * Preloads and initializes services by scanning the configured classpath.
-     * This method attempts to discover all classes available in the specified
-     * {@code classPath} and load them as services. For each class found,
-     * the {@link #loadServices(Class)} method is invoked to handle the
+     * Preloads and initializes services found in the configured classpath.
+     * The controllers are read from the index generated at compile time; the classpath is
+     * only scanned when there is no index or it is out of date, and then only the classes
+     * annotated with {@code @RestController} are loaded.
+     * For each class found, the {@link #loadServices(Class)} method is invoked to handle the
      * initialization or registration logic.
      */
     public void preloadServices(){
         try {
-            Set<Class<?>> classes = findClasses(classPath);
+            Set<Class<?>> classes;
+            try {
+                classes = findIndexedClasses(classPath);
+            } catch (ClassNotFoundException e) {
+                System.err.println("Outdated controller index, scanning the classpath: " + e.getMessage());
+                classes = null;
+            }
+            //an empty result may come from the index of another module, the classes of this one were not indexed
+            if (classes == null || classes.isEmpty()) classes = findAnnotatedClasses(classPath, RestController.class);
             for (Class<?> c : classes) {
                 loadServices(c);
             }
@@ -181,56 +279,106 @@ public class HttpServer implements Runnable {
         }
     }
     /**
-     * Starts the server
-     * @throws IOException  if an I/O error occurs during server initialization
+     * Serves every request sent through the connection (HTTP/1.1 persistent connections).
+     * The socket is reused until the client asks for {@code Connection: close}, the connection
+     * stays idle longer than {@link #KEEP_ALIVE_TIMEOUT_MS}, {@link #MAX_KEEP_ALIVE_REQUESTS}
+     * requests have been served or the server is stopping.
+     * @param clientSocket the accepted client connection
+     * @throws IOException  if an I/O error occurs while reading or writing the connection
      */
-    public static void runServer(Socket clientSocket) throws IOException {
-        BufferedReader in = new BufferedReader(
-                new InputStreamReader(
-                        clientSocket.getInputStream()));
-        OutputStream outputStream = clientSocket.getOutputStream();
-        String inputLine, firstLine="";
-        boolean isFirstLine = true;
-        int contentLength = 0;
-        while ((inputLine = in.readLine()) != null) {
-            if (isFirstLine) {
-                isFirstLine = false;
-                firstLine = inputLine;
-            }
-            if (inputLine.toLowerCase().startsWith("content-length:")) {
-                contentLength = Integer.parseInt(inputLine.split(":")[1].trim());
-            }
-            if (inputLine.isEmpty() || inputLine.trim().isEmpty()) {
-                break;
+    public void runServer(Socket clientSocket) throws IOException {
+        //the connection buffers are borrowed from the pools and given back when it ends
+        ByteBuffer buffer = BufferPool.HEAP.acquire(BUFFER_SIZE).flip();
+        try(Socket socket = clientSocket;
+            //headers and body leave in a single segment, a split write stalls on delayed ACKs when the socket is reused
+            OutputStream outputStream = socket.getChannel() != null ? new ResponseWriter(socket.getChannel())
+                    : new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE)) {
+            InputStream in = socket.getInputStream();
+            socket.setTcpNoDelay(true);
+            HttpRequestParser parser = new HttpRequestParser();
+            int served = 0;
+            boolean keepAlive = true;
+            while (keepAlive) {
+                HttpRequest request;
+                try {
+                    if (!readRequest(socket, in, buffer, parser)) break;
+                    request = parser.toRequest();
+                } catch (BadRequestException e) {
+                    writeResponse(new HttpResponse(e.getStatus(), e.getMessage()), outputStream, 0);
+                    break;
+                }
+                parser.reset();
+                served++;
+                keepAlive = request.isKeepAlive() && served < MAX_KEEP_ALIVE_REQUESTS && running.get();
+                manageRequest(request, outputStream, keepAlive ? MAX_KEEP_ALIVE_REQUESTS - served : 0);
             }
+        } finally {
+            BufferPool.HEAP.release(buffer);
         }
-        String body = "";
-        if (contentLength > 0) {
-            char[] bodyChars = new char[contentLength];
-            in.read(bodyChars, 0, contentLength);
-            body = new String(bodyChars);
+    }
+    /**
+     * Reads from the socket into the connection buffer until the parser holds a complete request.
+     * While no byte of the next request has arrived the connection is idle: it waits up to
+     * {@link #KEEP_ALIVE_TIMEOUT_MS} and can be closed by {@link #stop()}.
+     * @return false if the connection was closed or timed out before a complete request arrived
+     */
+    private boolean readRequest(Socket socket, InputStream in, ByteBuffer buffer, HttpRequestParser parser) throws IOException {
+        while (!parser.parse(buffer)) {
+            boolean idle = !parser.isStarted();
+            buffer.compact();
+            int n;
+            if (idle) idleConnections.add(socket);
+            try {
+                if (idle && !running.get()) return false;
+                socket.setSoTimeout(idle ? KEEP_ALIVE_TIMEOUT_MS : READ_TIMEOUT_MS);
+                n = in.read(buffer.array(), buffer.position(), buffer.remaining());
+            } catch (SocketTimeoutException e) {
+                return false;
+            } catch (SocketException e) {
+                //connection closed by stop() while idle
+                if (idle) return false;
+                throw e;
+            } finally {
+                if (idle) idleConnections.remove(socket);
+            }
+            if (n < 0) return false;
+            buffer.position(buffer.position() + n).flip();
         }
-        if(!firstLine.isEmpty()) manageRequest(firstLine,body,outputStream);
-        outputStream.close();
-        in.close();
-        clientSocket.close();
+        return true;
     }
     /**
-     *Loads GET handlers methods from a given class if is annotated with @RestController and @RequestMapping annotations.
+     *Loads the handler methods (GET, POST, PUT and DELETE) from a given class if is annotated with @RestController
+     * and @RequestMapping annotations and registers them in the route table.
      * @param c the class to inspect.
      **/
     public static void loadServices(Class<?> c) {
         if(c.isAnnotationPresent(RestController.class)){
             Method[] methods = c.getDeclaredMethods();
             RequestMapping annotation = (RequestMapping) c.getAnnotation(RequestMapping.class);
-            Map<String,Method> methodValues = new HashMap<>();
+            String basePath = annotation != null ? annotation.value() : "/app";
             for(Method m : methods){
+                String method = null;
+                String mapping = null;
                 if(m.isAnnotationPresent(GetMapping.class)){
-                    String mapping = m.getAnnotation(GetMapping.class).value();
-                    methodValues.put(mapping, m);
+                    method = "GET";
+                    mapping = m.getAnnotation(GetMapping.class).value();
+                }else if(m.isAnnotationPresent(PostMapping.class)){
+                    method = "POST";
+                    mapping = m.getAnnotation(PostMapping.class).value();
+                }else if(m.isAnnotationPresent(PutMapping.class)){
+                    method = "PUT";
+                    mapping = m.getAnnotation(PutMapping.class).value();
+                }else if(m.isAnnotationPresent(DeleteMapping.class)){
+                    method = "DELETE";
+                    mapping = m.getAnnotation(DeleteMapping.class).value();
+                }
+                if(method == null) continue;
+                try {
+                    routes.register(method, basePath, mapping, m);
+                }catch (IllegalArgumentException e){
+                    System.err.println("Could not register handler: "+e.getMessage());
                 }
             }
-            if(!methodValues.isEmpty()) services.put(annotation != null ? annotation.value() : "/app", methodValues);
         }
     }
 
@@ -241,88 +389,219 @@ public class HttpServer implements Runnable {
         this.classPath = path;
     }
     /**
-     * Processes an incoming GET request by resolving the target service and executing it.
-     * @param requri the URI of the requested resource (must start with)
+     * Processes an incoming request by resolving the target service and executing it, and
+     * applies the content coding the client accepts. GET requests to {@link Cacheable} handlers
+     * are answered from {@link #responses} when the same request was already served, and
+     * identical GET requests served at the same time share one call of the handler, see {@link #inFlight}.
+     * @param req the request whose method and URI identify the service
      * @return Response
      */
-    private static HttpResponse invokeService(URI requri) throws InvocationTargetException, IllegalAccessException {
-        HttpRequest req = new HttpRequest(requri);
+    private static HttpResponse invokeService(HttpRequest req) throws Exception {
         HttpResponse res = new HttpResponse();
-        String basePath = req.getBasePath(services.keySet());
-        if(basePath == null) return res.status(404).body("Base path not found");
-        String resourcePath = req.getSourcePath(basePath);
-        Method m = services.get(basePath).get(resourcePath);
-        if(m == null) {
-            return res.status(405).body("Service not found: "+ basePath+resourcePath);
+        String path = req.getPath();
+        String acceptEncoding = req.getHeader("Accept-Encoding");
+        RouteTable.RouteMatch match = routes.match(req.getMethod(), path);
+        if(match == null) {
+            if(!routes.hasBasePath(path)) return compress(res.status(404).body("Base path not found"), acceptEncoding);
+            Set<String> allowed = routes.allowedMethods(path);
+            if(allowed.isEmpty()) return compress(res.status(405).body("Service not found: "+ path), acceptEncoding);
+            return compress(res.status(405).header("Allow", String.join(", ", allowed))
+                    .body("Method "+req.getMethod()+" "+path+" not supported"), acceptEncoding);
         }
-        String[] values = req.getParamValues(m);
-
-        Object o = m.invoke(null,values);
+        req.setPathVariables(match.pathVariables());
+        Route route = match.route();
+        if(!req.getMethod().equals("GET")) return compress(call(route, req), acceptEncoding);
+        String resource = route.resourceKey(req);
+        String key = route.cacheKey(resource, req, ContentEncoding.negotiate(acceptEncoding));
+        if(route.isCacheable()) {
+            HttpResponse cached = responses.get(key);
+            if(cached != null) return cached;
+        }
+        //read before the handler runs, an invalidation meanwhile discards the response
+        long version = responses.version(route.getPattern(), resource);
+        return inFlight.execute(key, version, () -> {
+            HttpResponse response = compress(call(route, req), acceptEncoding);
+            if(route.isCacheable()) responses.put(key, route.getPattern(), resource, version, response, route.getCacheTtlNanos());
+            return response;
+        });
+    }
+    /**
+     * Calls the handler of a route and turns its result into a response.
+     */
+    private static HttpResponse call(Route route, HttpRequest req) throws Exception {
+        HttpResponse res = new HttpResponse();
+        Object o = route.getInvoker().invoke(req);
         if(o == null){
             return res.status(204);
         }
-        return res.status(200).body(o);
+        //handlers that need another status build the response themselves
+        if(o instanceof HttpResponse response) return response;
+        if(o instanceof String || o instanceof byte[]) return res.status(200).body(o);
+        //objects are serialized while they are sent, a large list is never held in memory as text
+        return res.status(200).json(o);
+    }
+    /**
+     * Applies the content coding the client accepts to a text response of a service.
+     * Bodies shorter than {@link ContentEncoding#MIN_SIZE} are sent as they are; a streamed body
+     * is compressed while it is written, once it is known to reach that size.
+     * @param response       the response of the service
+     * @param acceptEncoding the Accept-Encoding header of the request, may be null
+     * @return the same response
+     */
+    static HttpResponse compress(HttpResponse response, String acceptEncoding) {
+        if(response.getBody() == null && response.getBodyWriter() == null) return response;
+        if(response.getHeaders().containsKey("Content-Encoding")
+                || !ContentEncoding.isCompressible(response.getHeaders().get("Content-Type"))) return response;
+        //caches must not give a compressed copy to a client that did not ask for it
+        response.header("Vary", "Accept-Encoding");
+        ContentEncoding encoding = ContentEncoding.negotiate(acceptEncoding);
+        if(encoding == null) return response;
+        if(response.getBodyWriter() != null) {
+            response.contentEncoding = encoding;
+        } else {
+            encode(response, encoding);
+        }
+        return response;
+    }
+    /**
+     * Compresses a body held in memory, when it reaches {@link ContentEncoding#MIN_SIZE} and gets smaller.
+     */
+    static void encode(HttpResponse response, ContentEncoding encoding) {
+        if(response.getBody().length < ContentEncoding.MIN_SIZE) return;
+        byte[] encoded = encoding.encode(response.getBody(), ContentEncoding.DYNAMIC_LEVEL);
+        if(encoded.length < response.getBody().length) {
+            response.body = encoded;
+            response.header("Content-Encoding", encoding.token);
+        }
     }
     /**
      * Manages an HTTP request by processing the method, resource, and body,
      * and writing the corresponding response.
-     * @param inputLine the first line of the HTTP request (contains method and resource)
-     * @param body      the body of the request, if present
+     * @param request   the parsed request
      * @param out       the output stream used to send the response back to the client
+     * @param remaining number of requests the connection may still serve, 0 if it will be closed
      * @throws IOException if an error occurs while writing to the output stream
      */
-    private static void manageRequest(String inputLine, String body,OutputStream out) throws IOException {
+    static void manageRequest(HttpRequest request, OutputStream out, int remaining) throws IOException {
         HttpResponse response = new HttpResponse();
         try {
-            String[] dividedUri = inputLine.split(" ");
-            URI requestUri = new URI(dividedUri[1]);
-            String path = requestUri.getPath();
-            String method = dividedUri[0];
-            if(method.equals("POST")){
-                String taskName = "";
-                String taskDescription = "";
-                String[] values = body.split(",");
-                for(String value : values){
-                    String[] pair = value.split(":",2);
-                    String key = pair[0].replace("\"","").replace("{","").replace("}","").replace(" ","").trim();
-                    String val = pair[1].replace("\"","").replace("{","").replace("}","").trim();
-                    if(key.equals("name")) taskName = val;
-                    if(key.equals("description")) taskDescription = val;
-                }
-                if(!taskName.isEmpty() && !taskDescription.isEmpty()) response = saveTask(taskName, taskDescription);
-                else response = new HttpResponse(400,"Missing values, Task Name and Task Description are required");
-
-            }else if(method.equals("GET") && (path.equals("/") || path.endsWith("html") || path.endsWith("js") || path.endsWith("css")
+            String path = request.getPath();
+            String method = request.getMethod();
+            if(method.equals("GET") && (path.equals("/") || path.endsWith("html") || path.endsWith("js") || path.endsWith("css")
                     || path.endsWith("png") || path.endsWith("jpg") || path.endsWith("jpeg"))) {
-                response = getResources(path);
+                response = getResources(request);
             }
-            else if (method.equals("GET")) {
-                    response = invokeService(requestUri);
+            else if (method.equals("GET") || method.equals("POST") || method.equals("PUT") || method.equals("DELETE")) {
+                    response = invokeService(request);
             }else{
                 response = new HttpResponse(405,"Method "+method+" "+path+" not supported");
             }
         }catch (FileNotFoundException e){
             response = new HttpResponse(404,e.getMessage());
+        }catch (BadRequestException e){
+            response = new HttpResponse(e.getStatus(),e.getMessage());
         }catch (Exception e) {
             response = new HttpResponse(500,e.getMessage());
         }finally {
-            //if the response does not have content-type assign automatically text/plain
-            response.getHeaders().putIfAbsent("Content-Type","text/plain");
-            byte[] bodyResponse = response.getBody();
-            //if response does not have body set status No Content
-            if(bodyResponse == null && response.getStatusCode() == 200) response.setStatusCode(204);
-            //Build full response
-            StringBuilder sb = new StringBuilder()
-                    .append("HTTP/1.1 ").append(response.getStatusCode()).append(" ").append(response.getStatusMessage()).append("\r\n");
-            response.getHeaders().forEach((k,v) -> sb.append(k).append(": ").append(v).append("\r\n"));
-            sb.append("\r\n");
-            out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
-            //if response have body include it
-            if(bodyResponse != null) out.write(response.getBody());
-            out.flush();
+            writeResponse(response, out, remaining);
         }
     }
-
+    /**
+     * Completes the response headers and writes the response to the client.
+     * @param response  the response to send
+     * @param out       the output stream used to send the response back to the client
+     * @param remaining number of requests the connection may still serve, 0 if it will be closed
+     * @throws IOException if an error occurs while writing to the output stream
+     */
+    static void writeResponse(HttpResponse response, OutputStream out, int remaining) throws IOException {
+        if(response.getBodyWriter() != null) {
+            writeStreamed(response, out, remaining);
+            return;
+        }
+        if(response.getFileRegion() != null || response.getFileRanges() != null) {
+            writeFile(response, out, remaining);
+            return;
+        }
+        byte[] bodyResponse = response.getBody();
+        //if response does not have body set status No Content
+        if(bodyResponse == null && response.getStatusCode() == 200) response.setStatusCode(204);
+        //the client needs the body length to find where the next response starts on a persistent connection
+        boolean sized = response.getStatusCode() != 204 && response.getStatusCode() != 304;
+        writeHead(response, sized ? (bodyResponse == null ? 0 : bodyResponse.length) : -1, out, remaining);
+        //if response have body include it, a ResponseWriter sends it in the same write as the head
+        if(bodyResponse != null) out.write(bodyResponse);
+        out.flush();
+    }
+    /**
+     * Sends a response whose body is produced by its {@link BodyWriter} while it is written.
+     * A failure before anything was sent is answered with a 500, a failure after the head was
+     * sent can only abort the connection.
+     * @throws IOException if an error occurs while writing, or the body failed after being committed
+     */
+    private static void writeStreamed(HttpResponse response, OutputStream out, int remaining) throws IOException {
+        ChunkedBodyStream body = new ChunkedBodyStream(response, out, remaining);
+        try {
+            try {
+                response.getBodyWriter().writeTo(body);
+            } catch (RuntimeException e) {
+                if(body.isCommitted()) throw new IOException("Response aborted: " + e.getMessage(), e);
+                writeResponse(new HttpResponse(500, e.getMessage()), out, remaining);
+                return;
+            }
+            body.finish();
+        } finally {
+            body.release();
+        }
+    }
+    /**
+     * Sends a response whose body is a file region, or several regions of a file as a
+     * multipart/byteranges body. Connections that support it send the file with
+     * {@link FileChannel#transferTo}, the others copy it through a small buffer.
+     * @throws IOException if an error occurs while writing to the output stream
+     */
+    private static void writeFile(HttpResponse response, OutputStream out, int remaining) throws IOException {
+        FileRegion region = response.getFileRegion();
+        MultipartByteRanges parts = response.getFileRanges();
+        FileChannel file;
+        try {
+            file = FileChannel.open(region != null ? region.path() : parts.file, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            writeResponse(new HttpResponse(404, "File not found"), out, remaining);
+            return;
+        }
+        try (file) {
+            writeHead(response, region != null ? region.count() : parts.contentLength, out, remaining);
+            if (region != null) {
+                transfer(file, region.position(), region.count(), out);
+            } else {
+                for (int i = 0; i < parts.heads.length; i++) {
+                    out.write(parts.heads[i]);
+                    transfer(file, parts.ranges.get(i).first(), parts.ranges.get(i).length(), out);
+                }
+                out.write(parts.tail);
+            }
+        }
+        out.flush();
+    }
+    private static void transfer(FileChannel file, long position, long count, OutputStream out) throws IOException {
+        if (out instanceof FileRegionSink sink) {
+            sink.transferFrom(file, position, count);
+        } else {
+            ResponseWriter.transfer(file, position, count, Channels.newChannel(out));
+        }
+    }
+    /**
+     * Writes the status line and the headers, completing them with the Date, Content-Length and
+     * connection headers. See {@link ResponseHead}.
+     * @param response      the response to send
+     * @param contentLength value of the Content-Length header, negative to send none
+     * @param out           the output stream used to send the response back to the client
+     * @param remaining     number of requests the connection may still serve, 0 if it will be closed
+     * @throws IOException if an error occurs while writing to the output stream
+     */
+    static void writeHead(HttpResponse response, long contentLength, OutputStream out, int remaining) throws IOException {
+        ResponseHead.write(response, contentLength, remaining, out);
+    }
 
     /**
      *Configures the directory for serving static files.
@@ -343,8 +622,10 @@ public class HttpServer implements Runnable {
                 throw new IllegalArgumentException("No se encontró en el classpath: " + base);
             }
             URI uri = url.toURI();
+            StaticFileCache cache;
             if ("jar".equalsIgnoreCase(uri.getScheme())) {
                 dir = "classpath:/" + base;
+                cache = StaticFileCache.forClasspath(base, StaticFileCache.DEFAULT_MAX_BYTES);
             }else {
                 Path configured = Paths.get(uri);
                 if (!Files.exists(configured)) {
@@ -357,7 +638,10 @@ public class HttpServer implements Runnable {
                     throw new IllegalArgumentException("staticfiles: directorio no legible: " + configured);
                 }
                 dir = configured.toAbsolutePath().normalize().toString();
+                cache = StaticFileCache.forDirectory(configured, StaticFileCache.DEFAULT_MAX_BYTES);
             }
+            if (staticCache != null) staticCache.close();
+            staticCache = cache;
             if (!base.startsWith("/")) pathBase = "/" + base;
             else pathBase = base;
         } catch (Exception e) {
@@ -366,97 +650,59 @@ public class HttpServer implements Runnable {
     }
 
     /**
-     * Manage disk files.
+     * Serves a static file from the cache, answering 304 when the client copy is current.
      *
-     * @param path resource of the request
-     * @throws IOException if an error occurs while writing to the output stream
+     * @param request the request of the file
+     * @throws IOException if the file exists but cannot be read
      * @return Response
      */
-    private static HttpResponse getResources(String path) throws IOException {
-        String fullPath = dir;
+    private static HttpResponse getResources(HttpRequest request) throws IOException {
+        String path = request.getPath();
+        String filePath;
         if(path.equals("/")){
-            fullPath += "/" + "pages/index.html";
+            filePath = "/pages/index.html";
         }
         else if(path.endsWith("html")){
-            fullPath += "/" + "pages" + path;
+            filePath = "/pages" + path;
         }else {
-            String pathCompleted = path;
-            if(path.startsWith(pathBase)) pathCompleted = path.substring(pathBase.length());
-            fullPath += pathCompleted;
-        }
-        if(fullPath.endsWith("html") || fullPath.endsWith("css") || fullPath.endsWith("js")){
-            return sendTextFile(fullPath);
+            filePath = path;
+            if(path.startsWith(pathBase)) filePath = path.substring(pathBase.length());
         }
-        return sendImageFile(fullPath);
-    }
-    /**
-     * Read text files (html, css and javascript).
-     *
-     * @param filePath full path of the file
-     * @throws IOException if an error occurs while reading the file
-     * @return File content
-     */
-    private static String readFile(String filePath) throws IOException {
-        StringBuilder content = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                content.append(line).append("\n");
+        StaticResource resource = staticCache.get(filePath);
+        if(resource == null) throw new FileNotFoundException("File not found: " + path);
+        //compressed copies were encoded when the file was read, the request only picks one
+        ContentEncoding encoding = resource.variants.isEmpty() ? null : ContentEncoding.negotiate(request.getHeader("Accept-Encoding"));
+        StaticResource.Variant variant = encoding == null ? null : resource.variants.get(encoding);
+        String etag = variant != null ? variant.etag() : resource.etag;
+        byte[] content = variant != null ? variant.body() : resource.body;
+        long length = content != null ? content.length : resource.length;
+        HttpResponse response = new HttpResponse().contentType(resource.contentType);
+        if(resource.notModified(request, etag)) {
+            response.status(304);
+        } else {
+            List<ByteRange> ranges = resource.rangeApplies(request, etag) ? ByteRange.parse(request.getHeader("Range"), length) : null;
+            if(ranges == null) {
+                if(content != null) response.status(200).body(content);
+                else response.status(200).file(resource.file, 0, length);
+            } else if(ranges.isEmpty()) {
+                response.status(416).header("Content-Range", "bytes */" + length);
+            } else if(ranges.size() == 1) {
+                ByteRange range = ranges.get(0);
+                response.status(206).header("Content-Range", range.contentRange(length));
+                if(content != null) response.body(Arrays.copyOfRange(content, (int) range.first(), (int) range.last() + 1));
+                else response.file(resource.file, range.first(), range.length());
+            } else {
+                MultipartByteRanges parts = new MultipartByteRanges(content == null ? resource.file : null, ranges, resource.contentType, length);
+                response.status(206);
+                if(content != null) response.body(parts.toBytes(content)).contentType(parts.contentType());
+                else response.fileRanges(parts);
             }
         }
-        return content.toString();
-    }
-    /**
-     * Gets the header based on the file extension.
-     * @param path full path of the file
-     * @return content-type header
-     */
-    private static String getHeader(String path){
-        if (path.endsWith(".html") || path.endsWith(".htm")) return "text/html";
-        if (path.endsWith(".css"))  return "text/css";
-        if (path.endsWith(".js"))   return "application/javascript";
-        if (path.endsWith(".png"))  return "image/png";
-        if (path.endsWith(".jpg") || path.endsWith(".jpeg")) return "image/jpeg";
-        return "application/octet-stream";
-    }
-    /**
-     * Read and send the file text (html, css or javascript)
-     * @param fullPath full path of the file
-     * @throws IOException if an error occurs while writing to the output stream
-     * @return Response with the text file
-     */
-    private static HttpResponse sendTextFile(String fullPath)throws IOException{
-        byte[] output = readFile(fullPath).getBytes(StandardCharsets.UTF_8);
-        return new HttpResponse(200,output).contentType(getHeader(fullPath));
-    }
-    /**
-     * Read and send images (png, jpg or jpeg)
-     * @param fullPath full path of the file
-     * @throws IOException if an error occurs while reading the file image
-     * @return Response with the image
-     */
-    private static HttpResponse sendImageFile(String fullPath)throws IOException {
-        Path filePath = Paths.get(fullPath);
-        if (!Files.exists(filePath)) {
-            return new HttpResponse(404,"Image not found");
-        }
-        byte[] fileContent = Files.readAllBytes(filePath);
-        return new HttpResponse(200,fileContent)
-                .contentType(getHeader(fullPath))
-                .header("Content-Length",String.valueOf(fileContent.length));
-    }
-    /**
-     * Saves task in memory
-     * Since POST endpoints are not yet implemented using lambdas
-     * this method handles the task creation directly.
-     *  It uses the singleton to add the task
-     * @param name name of the task
-     * @param description description of the task
-     * @return Response with the created task
-     */
-    private static HttpResponse saveTask(String name, String description){
-        Task newTask = getTaskManager().addTask(name,description);
-        return new HttpResponse(200,newTask).contentType("application/json");
+        if(variant != null) response.header("Content-Encoding", encoding.token);
+        if(!resource.variants.isEmpty()) response.header("Vary", "Accept-Encoding");
+        return response.header("Accept-Ranges", "bytes")
+                .header("ETag", etag)
+                .header("Last-Modified", resource.lastModifiedHeader);
     }
 
 }
@@ -0,0 +1,69 @@
+package edu.eci.arep.microspringboot.httpserver;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A {@code multipart/byteranges} body: several ranges of one representation, each preceded by
+ * its own part headers. The delimiters are computed up front so the body length is known
+ * before any byte of the representation is sent.
+ */
+final class MultipartByteRanges {
+    /** The file the ranges are sent from, null when they are taken from a body in memory. */
+    final Path file;
+    final List<ByteRange> ranges;
+    /** Delimiter and part headers written before each range. */
+    final byte[][] heads;
+    /** Final delimiter. */
+    final byte[] tail;
+    final String boundary;
+    final long contentLength;
+
+    /**
+     * @param file        the file holding the representation, null if it is in memory
+     * @param ranges      the ranges to send, in order
+     * @param contentType content type of the representation
+     * @param total       length of the representation
+     */
+    MultipartByteRanges(Path file, List<ByteRange> ranges, String contentType, long total) {
+        this.file = file;
+        this.ranges = ranges;
+        this.boundary = Long.toHexString(ThreadLocalRandom.current().nextLong()) + Long.toHexString(System.nanoTime());
+        this.heads = new byte[ranges.size()][];
+        long length = 0;
+        for (int i = 0; i < heads.length; i++) {
+            ByteRange range = ranges.get(i);
+            heads[i] = ((i == 0 ? "" : "\r\n") + "--" + boundary + "\r\nContent-Type: " + contentType
+                    + "\r\nContent-Range: " + range.contentRange(total) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+            length += heads[i].length + range.length();
+        }
+        this.tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        this.contentLength = length + tail.length;
+    }
+
+    /**
+     * @return the Content-Type header of the whole body
+     */
+    String contentType() {
+        return "multipart/byteranges; boundary=" + boundary;
+    }
+
+    /**
+     * Assembles the body from a representation held in memory.
+     * @param body the whole representation
+     * @return the multipart body
+     */
+    byte[] toBytes(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) contentLength);
+        for (int i = 0; i < heads.length; i++) {
+            ByteRange range = ranges.get(i);
+            out.writeBytes(heads[i]);
+            out.write(body, (int) range.first(), (int) range.length());
+        }
+        out.writeBytes(tail);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,457 @@
+package edu.eci.arep.microspringboot.httpserver;
+
+import edu.eci.arep.microspringboot.helpers.BufferPool;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static edu.eci.arep.microspringboot.httpserver.HttpServer.BACKLOG;
+import static edu.eci.arep.microspringboot.httpserver.HttpServer.KEEP_ALIVE_TIMEOUT_MS;
+import static edu.eci.arep.microspringboot.httpserver.HttpServer.MAX_KEEP_ALIVE_REQUESTS;
+import static edu.eci.arep.microspringboot.httpserver.HttpServer.READ_TIMEOUT_MS;
+
+/**
+ * Non-blocking front-end of {@link HttpServer}.
+ * The acceptor thread hands every new connection to one of a small set of event loops.
+ * Each event loop reads, frames and writes the requests of its connections, so idle or
+ * slow clients never hold a worker: only complete requests are dispatched to the pool, and a
+ * request the pool rejects is answered with 503 instead of running on the event loop.
+ * Responses reach the event loop one buffer at a time, a worker producing a long body waits
+ * for each buffer to be written before filling the next one.
+ */
+class NioEngine {
+    /** Time a worker waits for the client to take a buffer of its response. */
+    private static final int WRITE_TIMEOUT_MS = 30000;
+    private final int port;
+    private final AtomicBoolean running;
+    private final ExecutorService workers;
+    private final EventLoop[] loops;
+    private volatile Selector acceptSelector;
+
+    /**
+     * @param port      the port number on which the server will listen
+     * @param running   the server state, the engine stops when it becomes false
+     * @param workers   pool that executes the complete requests, throwing {@link RejectedExecutionException} when it is full
+     * @param nLoops    number of event-loop threads
+     */
+    NioEngine(int port, AtomicBoolean running, ExecutorService workers, int nLoops) {
+        this.port = port;
+        this.running = running;
+        this.workers = workers;
+        this.loops = new EventLoop[nLoops];
+    }
+
+    /**
+     * Accepts connections until the server is stopped, distributing them round-robin
+     * over the event loops.
+     * @throws IOException if the server channel cannot be opened
+     */
+    void run() throws IOException {
+        try (ServerSocketChannel server = ServerSocketChannel.open();
+             Selector selector = Selector.open()) {
+            server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            server.bind(new InetSocketAddress(port), BACKLOG);
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+            acceptSelector = selector;
+            for (int i = 0; i < loops.length; i++) {
+                loops[i] = new EventLoop("http-nio-" + (i + 1));
+            }
+            System.out.println("Server listening on port " + port + " (nio)");
+            int next = 0;
+            while (running.get()) {
+                selector.select(1000);
+                selector.selectedKeys().clear();
+                SocketChannel channel;
+                while ((channel = server.accept()) != null) {
+                    channel.configureBlocking(false);
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    loops[next].register(channel);
+                    next = (next + 1) % loops.length;
+                }
+            }
+        } finally {
+            for (EventLoop loop : loops) {
+                if (loop != null) loop.stop();
+            }
+        }
+    }
+
+    /**
+     * Wakes up the acceptor and the event loops so they notice the server was stopped.
+     */
+    void wakeup() {
+        Selector selector = acceptSelector;
+        if (selector != null) selector.wakeup();
+        for (EventLoop loop : loops) {
+            if (loop != null) loop.selector.wakeup();
+        }
+    }
+
+    /**
+     * Selector thread that owns a set of connections.
+     */
+    private final class EventLoop implements Runnable {
+        final Selector selector;
+        final Thread thread;
+        final Queue<SocketChannel> registrations = new ConcurrentLinkedQueue<>();
+        final Queue<Connection> responses = new ConcurrentLinkedQueue<>();
+
+        EventLoop(String name) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, name);
+            thread.start();
+        }
+
+        void register(SocketChannel channel) {
+            registrations.add(channel);
+            selector.wakeup();
+        }
+
+        /**
+         * Called by a worker once the response of the connection is ready to be written.
+         */
+        void respond(Connection connection) {
+            responses.add(connection);
+            selector.wakeup();
+        }
+
+        void stop() {
+            selector.wakeup();
+            try {
+                thread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            long lastSweep = System.currentTimeMillis();
+            try {
+                while (running.get()) {
+                    selector.select(1000);
+                    SocketChannel channel;
+                    while ((channel = registrations.poll()) != null) {
+                        Connection connection = new Connection(channel);
+                        try {
+                            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                        } catch (IOException e) {
+                            //gives the buffers back too
+                            connection.close();
+                        }
+                    }
+                    Connection ready;
+                    while ((ready = responses.poll()) != null) {
+                        write(ready);
+                    }
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        Connection connection = (Connection) key.attachment();
+                        if (!key.isValid()) continue;
+                        if (key.isReadable()) read(connection);
+                        else if (key.isWritable()) write(connection);
+                    }
+                    selector.selectedKeys().clear();
+                    long now = System.currentTimeMillis();
+                    if (now - lastSweep >= 1000) {
+                        closeIdle(now);
+                        lastSweep = now;
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Event loop failed: " + e.getMessage());
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    ((Connection) key.attachment()).close();
+                }
+                try {
+                    selector.close();
+                } catch (IOException ignored) {}
+            }
+        }
+
+        /**
+         * Closes connections that stayed idle longer than the keep-alive timeout, or that
+         * started a request and did not finish sending it within the read timeout.
+         */
+        private void closeIdle(long now) {
+            for (SelectionKey key : selector.keys()) {
+                Connection connection = (Connection) key.attachment();
+                if (connection == null || connection.busy) continue;
+                long timeout = connection.parser.isStarted() ? READ_TIMEOUT_MS : KEEP_ALIVE_TIMEOUT_MS;
+                if (now - connection.lastActivity > timeout) connection.close();
+            }
+        }
+
+        private void read(Connection connection) {
+            try {
+                int n = connection.channel.read(connection.in);
+                if (n < 0) {
+                    connection.close();
+                    return;
+                }
+                connection.lastActivity = System.currentTimeMillis();
+                dispatch(connection);
+            } catch (IOException e) {
+                connection.close();
+            }
+        }
+
+        /**
+         * Feeds the received bytes to the parser and sends the request to the workers once
+         * it is complete. Reading is suspended until its response has been written, so
+         * requests of the same connection are answered in order.
+         */
+        private void dispatch(Connection connection) {
+            HttpRequest request;
+            try {
+                connection.in.flip();
+                boolean complete = connection.parser.parse(connection.in);
+                //pipelined bytes of the next request stay in the buffer
+                connection.in.compact();
+                if (!complete) return;
+                request = connection.parser.toRequest();
+            } catch (BadRequestException e) {
+                reject(connection, new HttpResponse(e.getStatus(), e.getMessage()));
+                return;
+            }
+            connection.parser.reset();
+            connection.served++;
+            boolean keepAlive = request.isKeepAlive() && connection.served < MAX_KEEP_ALIVE_REQUESTS && running.get();
+            int remaining = keepAlive ? MAX_KEEP_ALIVE_REQUESTS - connection.served : 0;
+            connection.busy = true;
+            connection.keepAlive = keepAlive;
+            connection.key.interestOps(0);
+            try {
+                workers.execute(() -> {
+                    ResponseStream out = new ResponseStream(connection, this);
+                    try {
+                        HttpServer.manageRequest(request, out, remaining);
+                    } catch (IOException e) {
+                        connection.keepAlive = false;
+                        //the client stopped reading or the body failed after being committed
+                        if (out.handedOff) {
+                            connection.close();
+                            return;
+                        }
+                    }
+                    out.finish();
+                });
+            } catch (RejectedExecutionException e) {
+                //every worker is busy and the queue is full, or the server is stopping
+                reject(connection, new HttpResponse(503, "Server busy"));
+            }
+        }
+
+        /**
+         * Answers a request without a worker and closes the connection once the response is written.
+         */
+        private void reject(Connection connection, HttpResponse response) {
+            connection.busy = true;
+            connection.keepAlive = false;
+            connection.lastBuffer = true;
+            connection.out = encode(response);
+            write(connection);
+        }
+
+        private void write(Connection connection) {
+            if (!connection.key.isValid()) return;
+            try {
+                connection.channel.write(connection.out);
+                if (connection.out.hasRemaining()) {
+                    connection.key.interestOps(SelectionKey.OP_WRITE);
+                    return;
+                }
+                FileChannel file = connection.file;
+                if (file != null) {
+                    //sendfile: the bytes go from the file system cache to the socket
+                    long n = file.transferTo(connection.filePosition, connection.fileRemaining, connection.channel);
+                    if (n == 0 && connection.filePosition >= file.size()) throw new EOFException("File truncated while being sent");
+                    connection.filePosition += n;
+                    connection.fileRemaining -= n;
+                    if (connection.fileRemaining > 0) {
+                        connection.key.interestOps(SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    connection.file = null;
+                }
+                connection.out = null;
+                if (!connection.lastBuffer) {
+                    //the worker fills the next buffer of the response
+                    connection.key.interestOps(0);
+                    connection.drained.release();
+                    return;
+                }
+                connection.busy = false;
+                connection.lastActivity = System.currentTimeMillis();
+                if (!connection.keepAlive) {
+                    connection.close();
+                    return;
+                }
+                connection.key.interestOps(SelectionKey.OP_READ);
+                if (connection.in.position() > 0) dispatch(connection);
+            } catch (IOException e) {
+                connection.close();
+            }
+        }
+    }
+
+    private static ByteBuffer encode(HttpResponse response) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            HttpServer.writeResponse(response, out, 0);
+        } catch (IOException ignored) {}
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    /**
+     * Stream a worker writes a response into. Each filled buffer is handed to the event loop
+     * and the worker blocks until it has been written, so a response of any size uses the
+     * single buffer of its connection and a client that reads slowly slows down its own worker only.
+     */
+    private static final class ResponseStream extends OutputStream implements FileRegionSink, HeadBuffer {
+        private final Connection connection;
+        private final EventLoop loop;
+        private final ByteBuffer buffer;
+        /** Whether part of the response already left, after which it cannot be replaced. */
+        boolean handedOff;
+
+        ResponseStream(Connection connection, EventLoop loop) {
+            this.connection = connection;
+            this.loop = loop;
+            this.buffer = connection.responseBuffer.clear();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!buffer.hasRemaining()) handOff();
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (!buffer.hasRemaining()) handOff();
+                int n = Math.min(len, buffer.remaining());
+                buffer.put(b, off, n);
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public ByteBuffer reserve(int size) throws IOException {
+            if (size > buffer.capacity()) return null;
+            if (size > buffer.remaining()) handOff();
+            return buffer;
+        }
+
+        @Override
+        public void transferFrom(FileChannel file, long position, long count) throws IOException {
+            //the buffered head leaves first, then the event loop sends the file region
+            connection.filePosition = position;
+            connection.fileRemaining = count;
+            connection.file = file;
+            handOff();
+        }
+
+        private void handOff() throws IOException {
+            handedOff = true;
+            buffer.flip();
+            connection.lastBuffer = false;
+            connection.out = buffer;
+            loop.respond(connection);
+            try {
+                if (!connection.drained.tryAcquire(WRITE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    throw new IOException("Write timed out");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            if (connection.closed) throw new IOException("Connection closed");
+            buffer.clear();
+        }
+
+        /**
+         * Hands the last buffer of the response to the event loop, which then reads the next request.
+         */
+        void finish() {
+            buffer.flip();
+            connection.lastBuffer = true;
+            connection.out = buffer;
+            loop.respond(connection);
+        }
+    }
+
+    private static void closeQuietly(Channel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {}
+    }
+
+    /**
+     * State of a client connection owned by an event loop.
+     */
+    private static final class Connection {
+        final SocketChannel channel;
+        SelectionKey key;
+        final ByteBuffer in = BufferPool.HEAP.acquire(HttpServer.BUFFER_SIZE);
+        /** Buffer the responses are written from, reused by every request since they are answered one at a time. */
+        final ByteBuffer responseBuffer = BufferPool.DIRECT.acquire(HttpServer.BUFFER_SIZE);
+        final HttpRequestParser parser = new HttpRequestParser();
+        volatile ByteBuffer out;
+        /** Whether {@code out} ends the response or the worker is waiting to fill the next buffer. */
+        volatile boolean lastBuffer;
+        final Semaphore drained = new Semaphore(0);
+        /** File region sent after {@code out}, owned by the worker that is waiting on {@code drained}. */
+        volatile FileChannel file;
+        long filePosition;
+        long fileRemaining;
+        volatile boolean closed;
+        volatile boolean keepAlive;
+        boolean busy;
+        int served;
+        long lastActivity = System.currentTimeMillis();
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Closes the channel and gives the buffers back to the pools. The response buffer of a
+         * connection closed in the middle of a response may still be touched by its worker, it
+         * is left to the garbage collector instead.
+         */
+        synchronized void close() {
+            if (closed) return;
+            closed = true;
+            if (key != null) key.cancel();
+            closeQuietly(channel);
+            //wakes up a worker waiting to write the rest of a response
+            drained.release();
+            BufferPool.HEAP.release(in);
+            if (busy) BufferPool.DIRECT.discard(responseBuffer);
+            else BufferPool.DIRECT.release(responseBuffer);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package edu.eci.arep.microspringboot.httpserver;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Converts the text of a request parameter to the type of the handler argument.
+ * A converter is resolved once per handler parameter, as a {@link MethodHandle} taking the
+ * text and returning the exact parameter type, so primitive parameters are never boxed.
+ * Malformed values, and missing values of primitive parameters, are rejected with a
+ * {@link BadRequestException}; missing values of the other types are null.
+ */
+final class ParameterConverters {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final Map<Class<?>, String> CONVERTERS = Map.ofEntries(
+            Map.entry(int.class, "toInt"), Map.entry(Integer.class, "toInteger"),
+            Map.entry(long.class, "toLong"), Map.entry(Long.class, "toLongObject"),
+            Map.entry(double.class, "toDouble"), Map.entry(Double.class, "toDoubleObject"),
+            Map.entry(float.class, "toFloat"), Map.entry(Float.class, "toFloatObject"),
+            Map.entry(short.class, "toShort"), Map.entry(Short.class, "toShortObject"),
+            Map.entry(byte.class, "toByte"), Map.entry(Byte.class, "toByteObject"),
+            Map.entry(boolean.class, "toBoolean"), Map.entry(Boolean.class, "toBooleanObject"));
+
+    private ParameterConverters() {
+    }
+
+    /**
+     * @param type the parameter type
+     * @return true if values of the type can be converted from text
+     */
+    static boolean supports(Class<?> type) {
+        return type == String.class || type.isEnum() || CONVERTERS.containsKey(type);
+    }
+
+    /**
+     * Resolves the converter of a parameter.
+     * @param type the parameter type, one {@link #supports} accepts
+     * @param name the parameter name, for the error messages
+     * @return a handle taking the text, possibly null, and returning the parameter type
+     * @throws IllegalArgumentException if the type is not supported
+     */
+    static MethodHandle forType(Class<?> type, String name) {
+        try {
+            if (type == String.class) return MethodHandles.identity(String.class);
+            if (type.isEnum()) {
+                MethodHandle toEnum = LOOKUP.findStatic(ParameterConverters.class, "toEnum",
+                        MethodType.methodType(Enum.class, Class.class, String.class, String.class));
+                return MethodHandles.insertArguments(toEnum, 0, type, name).asType(MethodType.methodType(type, String.class));
+            }
+            String converter = CONVERTERS.get(type);
+            if (converter == null) throw new IllegalArgumentException("Unsupported parameter type " + type.getName() + " of " + name);
+            MethodHandle handle = LOOKUP.findStatic(ParameterConverters.class, converter,
+                    MethodType.methodType(type, String.class, String.class));
+            return MethodHandles.insertArguments(handle, 0, name);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String required(String name, String value) {
+        if (value == null) throw new BadRequestException("Missing parameter " + name);
+        return value;
+    }
+
+    private static BadRequestException invalid(String name, String value) {
+        return new BadRequestException("Invalid value for parameter " + name + ": " + value);
+    }
+
+    static int toInt(String name, String value) {
+        try {
+            return Integer.parseInt(required(name, value));
+        } catch (NumberFormatException e) {
+            throw invalid(name, value);
+        }
+    }
+
+    static Integer toInteger(String name, String value) {
+        return value == null ? null : toInt(name, value);
+    }
+
+    static long toLong(String name, String value) {
+        try {
+            return Long.parseLong(required(name, value));
+        } catch (NumberFormatException e) {
+            throw invalid(name, value);
+        }
+    }
+
+    static Long toLongObject(String name, String value) {
+        return value == null ? null : toLong(name, value);
+    }
+
+    static double toDouble(String name, String value) {
+        try {
+            return Double.parseDouble(required(name, value));
+        } catch (NumberFormatException e) {
+            throw invalid(name, value);
+        }
+    }
+
+    static Double toDoubleObject(String name, String value) {
+        return value == null ? null : toDouble(name, value);
+    }
+
+    static float toFloat(String name, String value) {
+        try {
+            return Float.parseFloat(required(name, value));
+        } catch (NumberFormatException e) {
+            throw invalid(name, value);
+        }
+    }
+
+    static Float toFloatObject(String name, String value) {
+        return value == null ? null : toFloat(name, value);
+    }
+
+    static short toShort(String name, String value) {
+        try {
+            return Short.parseShort(required(name, value));
+        } catch (NumberFormatException e) {
+            throw invalid(name, value);
+        }
+    }
+
+    static Short toShortObject(String name, String value) {
+        return value == null ? null : toShort(name, value);
+    }
+
+    static byte toByte(String name, String value) {
+        try {
+            return Byte.parseByte(required(name, value));
+        } catch (NumberFormatException e) {
+            throw invalid(name, value);
+        }
+    }
+
+    static Byte toByteObject(String name, String value) {
+        return value == null ? null : toByte(name, value);
+    }
+
+    static boolean toBoolean(String name, String value) {
+        //Boolean.parseBoolean takes any other text as false, a typo must not pass silently
+        if (required(name, value).equalsIgnoreCase("true")) return true;
+        if (value.equalsIgnoreCase("false")) return false;
+        throw invalid(name, value);
+    }
+
+    static Boolean toBooleanObject(String name, String value) {
+        return value == null ? null : toBoolean(name, value);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Enum<?> toEnum(Class type, String name, String value) {
+        if (value == null) return null;
+        for (Object constant : type.getEnumConstants()) {
+            if (((Enum<?>) constant).name().equalsIgnoreCase(value)) return (Enum<?>) constant;
+        }
+        throw new BadRequestException("Invalid value for parameter " + name + ": " + value
+                + ", expected one of " + Arrays.toString(type.getEnumConstants()));
+    }
+}
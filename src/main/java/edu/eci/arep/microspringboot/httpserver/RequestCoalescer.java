@@ -0,0 +1,111 @@
+package edu.eci.arep.microspringboot.httpserver;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent identical GET requests sharing a single call of their handler.
+ * <p>
+ * The first request of a key calls the handler; the ones arriving while it runs wait for it
+ * and each send a copy of its response, the encoded body bytes included. Streamed bodies and
+ * files are never brought into memory to be shared, however large they are: the waiting
+ * requests call the handler again. A request never joins a call started before the route was last invalidated in
+ * {@link ResponseCache}, it could see a state older than the request itself.
+ */
+public final class RequestCoalescer {
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    private static final class Flight {
+        final long version;
+        final CompletableFuture<HttpResponse> result = new CompletableFuture<>();
+        //guarded by this
+        private int waiting;
+        private boolean closed;
+
+        Flight(long version) {
+            this.version = version;
+        }
+
+        /**
+         * @return false if the call already finished and takes no more requests
+         */
+        synchronized boolean join() {
+            if (closed) return false;
+            waiting++;
+            return true;
+        }
+
+        /**
+         * @return number of requests waiting for the result
+         */
+        synchronized int close() {
+            closed = true;
+            return waiting;
+        }
+    }
+
+    /**
+     * Serves a request, calling the handler unless an identical request is already calling it.
+     * @param key     the request key, see {@link Route#cacheKey}
+     * @param version the version of the route, read before the handler is called
+     * @param call    calls the handler and encodes its response
+     * @return the response to send, owned by the caller
+     * @throws Exception the exception of the handler, rethrown to every request that waited for it
+     */
+    HttpResponse execute(String key, long version, Callable<HttpResponse> call) throws Exception {
+        Flight flight = new Flight(version);
+        while (true) {
+            Flight current = flights.putIfAbsent(key, flight);
+            if (current == null) break;
+            if (current.version >= version && current.join()) return await(current, call);
+            //finished or started before an invalidation: this request starts a new call
+            if (flights.replace(key, current, flight)) break;
+        }
+        try {
+            HttpResponse response = call.call();
+            flights.remove(key, flight);
+            if (flight.close() == 0) return response;
+            HttpResponse shared = shareable(response);
+            flight.result.complete(shared);
+            return shared != null ? shared.copy() : response;
+        } catch (Exception | Error e) {
+            flights.remove(key, flight);
+            flight.close();
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private HttpResponse await(Flight flight, Callable<HttpResponse> call) throws Exception {
+        coalesced.increment();
+        HttpResponse shared;
+        try {
+            shared = flight.result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw (Error) e.getCause();
+        }
+        //responses that are not held in memory, like files and streams, are produced again
+        return shared != null ? shared.copy() : call.call();
+    }
+
+    /**
+     * @return the response, or null if its body is a file or a stream, which is written once
+     */
+    private static HttpResponse shareable(HttpResponse response) {
+        if (response.fileRegion != null || response.fileRanges != null || response.bodyWriter != null) return null;
+        return response;
+    }
+
+    /**
+     * @return number of requests answered with the response of an identical request
+     */
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+}
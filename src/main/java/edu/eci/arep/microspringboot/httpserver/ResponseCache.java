@@ -0,0 +1,321 @@
+package edu.eci.arep.microspringboot.httpserver;
+
+import edu.eci.arep.microspringboot.helpers.BufferPool;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Responses of {@link edu.eci.arep.microspringboot.annotations.Cacheable} handlers, with their
+ * body already encoded (and compressed when the client accepts it), by request key.
+ * <p>
+ * The number of responses is bounded and the policy follows W-TinyLFU: a new response enters a
+ * small LRU window, and when it leaves the window it only replaces the least recently used
+ * response of the main area if a {@link FrequencySketch} says its key is requested more often.
+ * A burst of keys requested once therefore cannot flush the popular responses.
+ * <p>
+ * Lookups read a concurrent map without locking; the bookkeeping of an access is skipped when
+ * another thread holds the lock, the sketch and the LRU order only need to be approximate.
+ * Invalidating a path bumps the version of its routes, invalidating a resource (a route with the
+ * values of its path variables) bumps the version of that resource only: responses stored with
+ * an older version, including the ones being produced during the invalidation, are never served
+ * again. Resource versions are kept in a fixed array of stripes, resources sharing a stripe are
+ * invalidated together.
+ * <p>
+ * A streamed body, such as the JSON of an object returned by a handler, is copied while it is
+ * sent, into a buffer borrowed from {@link BufferPool#HEAP}, and kept if it ended within
+ * {@link #MAX_BODY_SIZE} bytes; the response itself keeps streaming.
+ */
+public final class ResponseCache {
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+    /** Bodies larger than this are not cached, a few of them would push out many small ones. */
+    static final int MAX_BODY_SIZE = 64 * 1024;
+    private static final int RESOURCE_STRIPES = 1024;
+    private final int windowMax;
+    private final int mainMax;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final AtomicLongArray resourceVersions = new AtomicLongArray(RESOURCE_STRIPES);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    //guarded by lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Entry> main = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+
+    private record Entry(String key, String pattern, int stripe, long version, long expiresAt,
+                         int status, String[] headers, byte[] body) {
+        HttpResponse toResponse() {
+            HttpResponse response = new HttpResponse().status(status);
+            for (int i = 0; i < headers.length; i += 2) {
+                response.headers.put(headers[i], headers[i + 1]);
+            }
+            //shared by every hit, a response body is never changed once it is set
+            response.body = body;
+            return response;
+        }
+    }
+
+    /**
+     * @param maxEntries number of responses kept, at least 2
+     */
+    public ResponseCache(int maxEntries) {
+        if (maxEntries < 2) throw new IllegalArgumentException("A response cache holds at least 2 responses");
+        windowMax = Math.max(1, maxEntries / 100);
+        mainMax = maxEntries - windowMax;
+        sketch = new FrequencySketch(maxEntries);
+    }
+
+    /**
+     * @param key the request key, see {@link Route#cacheKey}
+     * @return a copy of the cached response, or null if there is none or it expired
+     */
+    HttpResponse get(String key) {
+        Entry entry = entries.get(key);
+        if (lock.tryLock()) {
+            try {
+                sketch.increment(key.hashCode());
+                if (entry != null && window.get(key) == null) main.get(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (entry != null && (entry.expiresAt - System.nanoTime() < 0 || entry.version != version(entry.pattern, entry.stripe))) {
+            remove(entry);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.toResponse();
+    }
+
+    /**
+     * @param pattern  a route pattern
+     * @param resource the {@link Route#resourceKey} of the request
+     * @return the current version of the responses of the resource, to read before the handler is called
+     */
+    long version(String pattern, String resource) {
+        return version(pattern, stripe(resource));
+    }
+
+    //both counters only grow, so their sum changes whenever one of them does
+    private long version(String pattern, int stripe) {
+        return versions.computeIfAbsent(pattern, p -> new AtomicLong()).get() + resourceVersions.get(stripe);
+    }
+
+    private static int stripe(String resource) {
+        int h = resource.hashCode();
+        return (h ^ h >>> 16) & (RESOURCE_STRIPES - 1);
+    }
+
+    /**
+     * Keeps a response produced by a handler. Only complete 200 responses with a body of at most
+     * {@link #MAX_BODY_SIZE} bytes are kept; a streamed body is kept once it has been sent.
+     * @param key      the request key
+     * @param pattern  the route pattern
+     * @param resource the {@link Route#resourceKey} of the request
+     * @param version  the version of the resource read before the handler was called
+     * @param response the response, body already encoded
+     * @param ttlNanos how long the response may be reused
+     */
+    void put(String key, String pattern, String resource, long version, HttpResponse response, long ttlNanos) {
+        if (response.getStatusCode() != 200 || response.fileRegion != null || response.fileRanges != null) return;
+        if (response.bodyWriter != null) {
+            capture(key, pattern, stripe(resource), version, response, ttlNanos);
+            return;
+        }
+        store(key, pattern, stripe(resource), version, response, ttlNanos);
+    }
+
+    /**
+     * Wraps the body writer of a response to keep a copy of the body, encoded like the response, once it is written.
+     */
+    private void capture(String key, String pattern, int stripe, long version, HttpResponse response, long ttlNanos) {
+        BodyWriter writer = response.bodyWriter;
+        ContentEncoding encoding = response.contentEncoding;
+        //taken before the body stream adds its framing headers
+        Map<String, String> headers = new LinkedHashMap<>(response.headers);
+        response.bodyWriter = out -> {
+            ByteBuffer buffer = BufferPool.HEAP.acquire(MAX_BODY_SIZE);
+            try {
+                BodyCopy copy = new BodyCopy(out, buffer);
+                writer.writeTo(copy);
+                if (copy.overflowed || buffer.position() == 0) return;
+                HttpResponse body = new HttpResponse().status(200);
+                body.headers.putAll(headers);
+                body.body = Arrays.copyOf(buffer.array(), buffer.position());
+                if (encoding != null) HttpServer.encode(body, encoding);
+                store(key, pattern, stripe, version, body, ttlNanos);
+            } finally {
+                BufferPool.HEAP.release(buffer);
+            }
+        };
+    }
+
+    private void store(String key, String pattern, int stripe, long version, HttpResponse response, long ttlNanos) {
+        if (response.body == null || response.body.length > MAX_BODY_SIZE) return;
+        //invalidated while the handler was running
+        if (version != version(pattern, stripe)) return;
+        String[] headers = new String[response.headers.size() * 2];
+        int i = 0;
+        for (Map.Entry<String, String> header : response.headers.entrySet()) {
+            headers[i++] = header.getKey();
+            headers[i++] = header.getValue();
+        }
+        Entry entry = new Entry(key, pattern, stripe, version, System.nanoTime() + ttlNanos, 200, headers, response.body);
+        lock.lock();
+        try {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                if (window.containsKey(key)) window.put(key, entry);
+                else main.put(key, entry);
+                return;
+            }
+            window.put(key, entry);
+            if (window.size() > windowMax) admit(evictEldest(window));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stream passing the body to the client and copying it into a buffer, until it no longer fits.
+     */
+    private static final class BodyCopy extends OutputStream {
+        private final OutputStream out;
+        private final ByteBuffer buffer;
+        boolean overflowed;
+
+        BodyCopy(OutputStream out, ByteBuffer buffer) {
+            this.out = out;
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (overflowed) return;
+            if (buffer.hasRemaining()) buffer.put((byte) b);
+            else overflowed = true;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (overflowed) return;
+            if (len <= buffer.remaining()) buffer.put(b, off, len);
+            else overflowed = true;
+        }
+    }
+
+    /**
+     * Moves a response out of the window into the main area, if there is room or its key is
+     * more popular than the one it would replace.
+     */
+    private void admit(Entry candidate) {
+        if (main.size() < mainMax) {
+            main.put(candidate.key, candidate);
+            return;
+        }
+        Entry victim = main.entrySet().iterator().next().getValue();
+        if (sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode())) {
+            main.remove(victim.key);
+            entries.remove(victim.key, victim);
+            main.put(candidate.key, candidate);
+        } else {
+            entries.remove(candidate.key, candidate);
+        }
+    }
+
+    private static Entry evictEldest(LinkedHashMap<String, Entry> area) {
+        Iterator<Entry> eldest = area.values().iterator();
+        Entry entry = eldest.next();
+        eldest.remove();
+        return entry;
+    }
+
+    private void remove(Entry entry) {
+        lock.lock();
+        try {
+            if (entries.remove(entry.key, entry)) {
+                window.remove(entry.key, entry);
+                main.remove(entry.key, entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the responses of every route under a path, e.g. {@code /task} covers {@code /task}
+     * and {@code /task/{id}}. Responses being produced at the same time are not kept.
+     * @param pathPrefix the path, as written in the mappings
+     */
+    public void invalidate(String pathPrefix) {
+        String prefix = pathPrefix.endsWith("/") ? pathPrefix.substring(0, pathPrefix.length() - 1) : pathPrefix;
+        versions.forEach((pattern, version) -> {
+            if (pattern.equals(prefix) || pattern.startsWith(prefix + "/")) version.incrementAndGet();
+        });
+    }
+
+    /**
+     * Drops the responses of one resource, whatever parameters and content coding they were
+     * requested with, e.g. {@code invalidateResource("/task/{id}", "5")} for the task 5.
+     * Responses being produced at the same time are not kept.
+     * @param pattern   the full path pattern of the route, as written in the mappings
+     * @param variables values of its path variables, in path order
+     */
+    public void invalidateResource(String pattern, String... variables) {
+        resourceVersions.incrementAndGet(stripe(Route.resourceKey(pattern, variables)));
+    }
+
+    /**
+     * Drops every response.
+     */
+    public void clear() {
+        versions.values().forEach(AtomicLong::incrementAndGet);
+        lock.lock();
+        try {
+            entries.clear();
+            window.clear();
+            main.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of requests answered from the cache
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of requests to cacheable handlers that had to call the handler
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of responses held, expired ones included until they are requested or replaced
+     */
+    public int size() {
+        return entries.size();
+    }
+}
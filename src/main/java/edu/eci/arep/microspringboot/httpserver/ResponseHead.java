@@ -0,0 +1,201 @@
+package edu.eci.arep.microspringboot.httpserver;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encoder of the status line and the headers of a response.
+ * Status lines, the names and usual values of the headers this server sends, and the
+ * connection headers are encoded once; the Date header is formatted at most once per second
+ * and shared by every response of that second. The head is written straight into the buffer
+ * of the connection when it has one ({@link HeadBuffer}), otherwise into a single array of
+ * its exact size. Content-Length, Connection and Keep-Alive belong to the server, values set
+ * by a handler for them are not sent.
+ */
+final class ResponseHead {
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] SEPARATOR = {':', ' '};
+    private static final byte[] CONTENT_LENGTH = ascii("Content-Length: ");
+    private static final byte[] DEFAULT_CONTENT_TYPE = ascii("Content-Type: text/plain\r\n");
+    private static final byte[] CONNECTION_CLOSE = ascii("Connection: close\r\n");
+    private static final byte[] KEEP_ALIVE = ascii("Connection: keep-alive\r\nKeep-Alive: timeout="
+            + HttpServer.KEEP_ALIVE_TIMEOUT_MS / 1000 + ", max=");
+    private static final int[] STATUS_CODES = {200, 204, 206, 304, 400, 401, 403, 404, 405, 406, 416, 500, 501, 503};
+    private static final String[] STATUS_MESSAGES = new String[600];
+    private static final byte[][] STATUS_LINES = new byte[600][];
+    private static final Map<String, byte[]> NAMES = encoded(": ", "Content-Type", "Content-Encoding", "Content-Range",
+            "Transfer-Encoding", "Vary", "Allow", "Accept-Ranges", "ETag", "Last-Modified", "Cache-Control", "Location");
+    private static final Map<String, byte[]> VALUES = encoded("", "text/plain", "application/json", "application/octet-stream",
+            "text/html", "text/css", "application/javascript", "chunked", "Accept-Encoding", "gzip", "br", "deflate", "bytes");
+    private static volatile DateLine date = new DateLine(Long.MIN_VALUE, null);
+
+    private record DateLine(long second, byte[] bytes) {}
+
+    static {
+        for (int code : STATUS_CODES) {
+            String message = new HttpResponse().status(code).getStatusMessage();
+            STATUS_MESSAGES[code] = message;
+            STATUS_LINES[code] = ascii("HTTP/1.1 " + code + " " + message + "\r\n");
+        }
+    }
+
+    private ResponseHead() {}
+
+    /**
+     * Writes the head of a response.
+     * @param response      the response
+     * @param contentLength value of the Content-Length header, negative to send none
+     * @param remaining     number of requests the connection may still serve, 0 if it will be closed
+     * @param out           the connection stream
+     * @throws IOException if an error occurs while writing to the stream
+     */
+    static void write(HttpResponse response, long contentLength, int remaining, OutputStream out) throws IOException {
+        byte[] status = statusLine(response);
+        byte[] dateLine = response.headers.containsKey("Date") ? null : dateLine();
+        int size = size(response, status, dateLine, contentLength, remaining);
+        if (out instanceof HeadBuffer buffer) {
+            ByteBuffer dst = buffer.reserve(size);
+            if (dst != null) {
+                encode(response, status, dateLine, contentLength, remaining, dst);
+                return;
+            }
+        }
+        ByteBuffer head = ByteBuffer.allocate(size);
+        encode(response, status, dateLine, contentLength, remaining, head);
+        out.write(head.array(), 0, size);
+    }
+
+    private static int size(HttpResponse response, byte[] status, byte[] dateLine, long contentLength, int remaining) {
+        int size = status.length + (dateLine != null ? dateLine.length : 0) + CRLF.length;
+        for (Map.Entry<String, String> header : response.headers.entrySet()) {
+            String name = header.getKey();
+            if (isServerHeader(name)) continue;
+            byte[] encodedName = NAMES.get(name);
+            String value = String.valueOf(header.getValue());
+            byte[] encodedValue = VALUES.get(value);
+            size += encodedName != null ? encodedName.length : length(name) + SEPARATOR.length;
+            size += (encodedValue != null ? encodedValue.length : length(value)) + CRLF.length;
+        }
+        if (!response.headers.containsKey("Content-Type")) size += DEFAULT_CONTENT_TYPE.length;
+        if (contentLength >= 0) size += CONTENT_LENGTH.length + digits(contentLength) + CRLF.length;
+        return size + (remaining > 0 ? KEEP_ALIVE.length + digits(remaining) + CRLF.length : CONNECTION_CLOSE.length);
+    }
+
+    private static void encode(HttpResponse response, byte[] status, byte[] dateLine, long contentLength, int remaining, ByteBuffer dst) {
+        dst.put(status);
+        if (dateLine != null) dst.put(dateLine);
+        for (Map.Entry<String, String> header : response.headers.entrySet()) {
+            String name = header.getKey();
+            if (isServerHeader(name)) continue;
+            byte[] encodedName = NAMES.get(name);
+            if (encodedName != null) {
+                dst.put(encodedName);
+            } else {
+                put(name, dst);
+                dst.put(SEPARATOR);
+            }
+            String value = String.valueOf(header.getValue());
+            byte[] encodedValue = VALUES.get(value);
+            if (encodedValue != null) dst.put(encodedValue);
+            else put(value, dst);
+            dst.put(CRLF);
+        }
+        if (!response.headers.containsKey("Content-Type")) dst.put(DEFAULT_CONTENT_TYPE);
+        if (contentLength >= 0) {
+            dst.put(CONTENT_LENGTH);
+            putDigits(contentLength, dst);
+            dst.put(CRLF);
+        }
+        if (remaining > 0) {
+            dst.put(KEEP_ALIVE);
+            putDigits(remaining, dst);
+            dst.put(CRLF);
+        } else {
+            dst.put(CONNECTION_CLOSE);
+        }
+        dst.put(CRLF);
+    }
+
+    private static boolean isServerHeader(String name) {
+        return name.equals("Content-Length") || name.equals("Connection") || name.equals("Keep-Alive");
+    }
+
+    private static byte[] statusLine(HttpResponse response) {
+        int code = response.getStatusCode();
+        if (code >= 0 && code < STATUS_LINES.length && STATUS_LINES[code] != null
+                && STATUS_MESSAGES[code].equals(response.getStatusMessage())) return STATUS_LINES[code];
+        return ("HTTP/1.1 " + code + " " + response.getStatusMessage() + "\r\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the Date header of the current second, formatted by the first response of that second
+     */
+    static byte[] dateLine() {
+        long second = System.currentTimeMillis() / 1000;
+        DateLine line = date;
+        if (line.second != second) {
+            line = new DateLine(second, ascii("Date: " + StaticResource.HTTP_DATE.format(Instant.ofEpochSecond(second)) + "\r\n"));
+            date = line;
+        }
+        return line.bytes;
+    }
+
+    /**
+     * @return number of bytes of the text in UTF-8
+     */
+    private static int length(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) return s.getBytes(StandardCharsets.UTF_8).length;
+        }
+        return s.length();
+    }
+
+    private static void put(String s, ByteBuffer dst) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                dst.put(s.substring(i).getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            dst.put((byte) c);
+        }
+    }
+
+    private static int digits(long n) {
+        int digits = 1;
+        while (n >= 10) {
+            n /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private static void putDigits(long n, ByteBuffer dst) {
+        int end = dst.position() + digits(n);
+        for (int i = end - 1; i >= dst.position(); i--) {
+            dst.put(i, (byte) ('0' + n % 10));
+            n /= 10;
+        }
+        dst.position(end);
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @return each text with its bytes, followed by the suffix
+     */
+    private static Map<String, byte[]> encoded(String suffix, String... texts) {
+        Map<String, byte[]> map = new HashMap<>();
+        for (String text : texts) {
+            map.put(text, ascii(text + suffix));
+        }
+        return Map.copyOf(map);
+    }
+}
@@ -0,0 +1,111 @@
+package edu.eci.arep.microspringboot.httpserver;
+
+import edu.eci.arep.microspringboot.helpers.BufferPool;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Stream of a blocking connection, writing to its channel through a direct buffer reused by
+ * every response of the connection, borrowed from {@link BufferPool#DIRECT} until the stream
+ * is closed.
+ * The head of a response is encoded straight into the buffer; a body that does not fit after
+ * it leaves together with the buffered bytes in a single gathering write, instead of a write
+ * for the head and another one for the body. File regions are sent with {@code sendfile}.
+ */
+public final class ResponseWriter extends OutputStream implements FileRegionSink, HeadBuffer {
+    /** Largest part of an array handed to the channel at once, the channel copies it into a temporary direct buffer. */
+    static final int MAX_WRITE = 64 * 1024;
+    private final GatheringByteChannel channel;
+    private ByteBuffer buffer = BufferPool.DIRECT.acquire(HttpServer.BUFFER_SIZE);
+    private final ByteBuffer[] gather = new ByteBuffer[2];
+
+    /**
+     * @param channel the channel of the connection, in blocking mode
+     */
+    public ResponseWriter(GatheringByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Writes a whole response and flushes it.
+     * @param response  the response to send
+     * @param remaining number of requests the connection may still serve, 0 if it will be closed
+     * @throws IOException if the connection failed
+     */
+    public void write(HttpResponse response, int remaining) throws IOException {
+        HttpServer.writeResponse(response, this, remaining);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!buffer.hasRemaining()) flush();
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len <= buffer.remaining()) {
+            buffer.put(b, off, len);
+            return;
+        }
+        //the buffered bytes, usually the head, leave with the first part of the array
+        ByteBuffer part = ByteBuffer.wrap(b, off, Math.min(len, MAX_WRITE));
+        buffer.flip();
+        gather[0] = buffer;
+        gather[1] = part;
+        while (part.hasRemaining()) channel.write(gather);
+        buffer.clear();
+        for (int from = MAX_WRITE; from < len; from += MAX_WRITE) {
+            part = ByteBuffer.wrap(b, off + from, Math.min(len - from, MAX_WRITE));
+            while (part.hasRemaining()) channel.write(part);
+        }
+    }
+
+    @Override
+    public ByteBuffer reserve(int size) throws IOException {
+        if (size > buffer.capacity()) return null;
+        if (size > buffer.remaining()) flush();
+        return buffer;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Gives the buffer back to the pool, without flushing it. The channel is closed by its owner.
+     */
+    @Override
+    public void close() {
+        if (buffer == null) return;
+        BufferPool.DIRECT.release(buffer);
+        buffer = null;
+    }
+
+    @Override
+    public void transferFrom(FileChannel file, long position, long count) throws IOException {
+        flush();
+        transfer(file, position, count, channel);
+    }
+
+    /**
+     * Loops over {@link FileChannel#transferTo}, which may send fewer bytes than asked.
+     */
+    static void transfer(FileChannel file, long position, long count, WritableByteChannel target) throws IOException {
+        long end = position + count;
+        while (position < end) {
+            long n = file.transferTo(position, end - position, target);
+            if (n == 0 && position >= file.size()) throw new EOFException("File truncated while being sent");
+            position += n;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package edu.eci.arep.microspringboot.httpserver;
+
+import edu.eci.arep.microspringboot.annotations.Cacheable;
+import edu.eci.arep.microspringboot.annotations.RequestParam;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handler registered in the {@link RouteTable} for a full path pattern.
+ */
+public class Route {
+    private final String pattern;
+    private final Method handler;
+    private final String[] variableNames;
+    private final HandlerInvoker invoker;
+    /** Time to live of the cached responses in nanoseconds, 0 if the handler is not {@link Cacheable}. */
+    private final long cacheTtlNanos;
+    /** Names of the request parameters the handler reads, sorted, the only ones in its cache keys. */
+    private final String[] cacheParameters;
+
+    /**
+     * @param pattern       the full path pattern, base path included
+     * @param handler       the controller method that serves the route
+     * @param variableNames names of the {@code {variable}} segments, in path order
+     */
+    Route(String pattern, Method handler, String[] variableNames) {
+        this.pattern = pattern;
+        this.handler = handler;
+        this.variableNames = variableNames;
+        this.invoker = HandlerInvoker.of(handler);
+        Cacheable cacheable = handler.getAnnotation(Cacheable.class);
+        this.cacheTtlNanos = cacheable != null ? TimeUnit.SECONDS.toNanos(Math.max(1, cacheable.ttlSeconds())) : 0;
+        TreeSet<String> parameters = new TreeSet<>();
+        for (Annotation[] annotations : handler.getParameterAnnotations()) {
+            for (Annotation annotation : annotations) {
+                if (annotation instanceof RequestParam r) parameters.add(r.value());
+            }
+        }
+        this.cacheParameters = parameters.toArray(new String[0]);
+    }
+
+    /**
+     * @return true if the responses of the handler can be cached
+     */
+    public boolean isCacheable() {
+        return cacheTtlNanos > 0;
+    }
+
+    long getCacheTtlNanos() {
+        return cacheTtlNanos;
+    }
+
+    /**
+     * Key of the resource a request reads: the pattern and the path variables.
+     * @param request the request, with its path variables set
+     * @return the key, the start of every {@link #cacheKey} of the request
+     */
+    String resourceKey(HttpRequest request) {
+        //every value is preceded by its length, so no value can pass for two
+        StringBuilder key = new StringBuilder(64).append(pattern);
+        for (String name : variableNames) {
+            append(key, request.getPathVariable(name));
+        }
+        return key.toString();
+    }
+
+    /**
+     * @param pattern   the full path pattern
+     * @param variables values of its path variables, in path order
+     * @return the key of the resource, as {@link #resourceKey(HttpRequest)} builds it for a request
+     */
+    static String resourceKey(String pattern, String... variables) {
+        StringBuilder key = new StringBuilder(64).append(pattern);
+        for (String value : variables) {
+            append(key, value);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Key of a request in the {@link ResponseCache} and the {@link RequestCoalescer}: the resource,
+     * the parameters the handler reads, in a fixed order, and the content coding of the response.
+     * Parameters the handler ignores do not split the cache.
+     * @param resource the {@link #resourceKey} of the request
+     * @param request  the request
+     * @param encoding the content coding negotiated with the client, null for none
+     * @return the key
+     */
+    String cacheKey(String resource, HttpRequest request, ContentEncoding encoding) {
+        StringBuilder key = new StringBuilder(resource.length() + 32).append(resource);
+        for (String name : cacheParameters) {
+            List<String> values = request.getAllValues(name);
+            key.append('\0').append(values.size());
+            for (String value : values) append(key, value);
+        }
+        return key.append('\0').append(encoding == null ? "identity" : encoding.token).toString();
+    }
+
+    private static void append(StringBuilder key, String value) {
+        if (value == null) key.append("\0-");
+        else key.append('\0').append(value.length()).append(':').append(value);
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+    public Method getHandler() {
+        return handler;
+    }
+    public String[] getVariableNames() {
+        return variableNames;
+    }
+    public HandlerInvoker getInvoker() {
+        return invoker;
+    }
+}
@@ -0,0 +1,183 @@
+package edu.eci.arep.microspringboot.httpserver;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Segment trie of the registered handlers, built once when the controllers are loaded.
+ * A lookup walks the request path segment by segment, so it costs O(path length) no matter
+ * how many routes exist, and resolves the controller method and its path variables in a
+ * single pass. Literal segments take precedence over {@code {variable}} segments. Each path
+ * holds one route per HTTP method.
+ */
+public class RouteTable {
+    private final Node root = new Node();
+
+    /**
+     * Result of a successful lookup.
+     * @param route         the matched route
+     * @param pathVariables values of the route variables by name
+     */
+    public record RouteMatch(Route route, Map<String, String> pathVariables) {}
+
+    /**
+     * Registers a GET handler under a controller base path, replacing any GET handler with the same pattern.
+     * @param basePath the controller base path (from {@code @RequestMapping})
+     * @param mapping  the handler path relative to the base path, may contain {@code {variable}} segments
+     * @param handler  the controller method
+     * @throws IllegalArgumentException if the handler cannot be bound, see {@link HandlerInvoker}
+     */
+    public void register(String basePath, String mapping, Method handler) {
+        register("GET", basePath, mapping, handler);
+    }
+
+    /**
+     * Registers a handler under a controller base path, replacing any handler of the same HTTP
+     * method with the same pattern.
+     * @param method   the HTTP method served, such as {@code GET} or {@code POST}
+     * @param basePath the controller base path (from {@code @RequestMapping})
+     * @param mapping  the handler path relative to the base path, may contain {@code {variable}} segments
+     * @param handler  the controller method
+     * @throws IllegalArgumentException if the handler cannot be bound, see {@link HandlerInvoker}
+     */
+    public void register(String method, String basePath, String mapping, Method handler) {
+        List<String> names = new ArrayList<>();
+        Node node = root;
+        for (String segment : segments(basePath)) {
+            node = node.child(segment, names);
+        }
+        node.basePath = true;
+        for (String segment : segments(mapping)) {
+            node = node.child(segment, names);
+        }
+        String pattern = mapping.equals("/") ? basePath : basePath + mapping;
+        node.routes.put(method, new Route(pattern, handler, names.toArray(new String[0])));
+    }
+
+    /**
+     * Finds the GET handler of a request path.
+     * @param path the decoded request path
+     * @return the match, or null if no route serves the path
+     */
+    public RouteMatch match(String path) {
+        return match("GET", path);
+    }
+
+    /**
+     * Finds the handler of a request.
+     * @param method the HTTP method of the request
+     * @param path   the decoded request path
+     * @return the match, or null if no route serves the method on the path
+     */
+    public RouteMatch match(String method, String path) {
+        List<String> values = new ArrayList<>(0);
+        Node node = find(root, path, 0, values, method);
+        if (node == null) return null;
+        Route route = node.routes.get(method);
+        if (values.isEmpty()) return new RouteMatch(route, Collections.emptyMap());
+        Map<String, String> variables = new HashMap<>();
+        String[] names = route.getVariableNames();
+        for (int i = 0; i < names.length; i++) {
+            variables.put(names[i], values.get(i));
+        }
+        return new RouteMatch(route, variables);
+    }
+
+    /**
+     * @param path the decoded request path
+     * @return the HTTP methods some route serves on the path, empty if none does
+     */
+    public Set<String> allowedMethods(String path) {
+        Node node = find(root, path, 0, new ArrayList<>(0), null);
+        return node == null ? Collections.emptySet() : new TreeSet<>(node.routes.keySet());
+    }
+
+    /**
+     * Tells whether the path starts with the base path of some controller, used to tell a
+     * missing controller (404) from a missing handler inside a known controller.
+     * @param path the decoded request path
+     * @return true if the longest literal prefix of the path reaches a registered base path
+     */
+    public boolean hasBasePath(String path) {
+        Node node = root;
+        boolean found = root.basePath;
+        int pos = 0;
+        while ((pos = skipSlashes(path, pos)) < path.length()) {
+            int end = segmentEnd(path, pos);
+            node = node.children.get(path.substring(pos, end));
+            if (node == null) break;
+            found |= node.basePath;
+            pos = end;
+        }
+        return found;
+    }
+
+    /**
+     * @return the node of the path holding a route of the method, or any route if the method is null
+     */
+    private static Node find(Node node, String path, int pos, List<String> values, String method) {
+        pos = skipSlashes(path, pos);
+        if (pos == path.length()) {
+            return (method == null ? !node.routes.isEmpty() : node.routes.containsKey(method)) ? node : null;
+        }
+        int end = segmentEnd(path, pos);
+        String segment = path.substring(pos, end);
+        Node literal = node.children.get(segment);
+        if (literal != null) {
+            Node found = find(literal, path, end, values, method);
+            if (found != null) return found;
+        }
+        if (node.variable != null) {
+            values.add(segment);
+            Node found = find(node.variable, path, end, values, method);
+            if (found != null) return found;
+            values.remove(values.size() - 1);
+        }
+        return null;
+    }
+
+    private static int skipSlashes(String path, int pos) {
+        while (pos < path.length() && path.charAt(pos) == '/') pos++;
+        return pos;
+    }
+
+    private static int segmentEnd(String path, int pos) {
+        int end = path.indexOf('/', pos);
+        return end < 0 ? path.length() : end;
+    }
+
+    private static List<String> segments(String path) {
+        List<String> segments = new ArrayList<>();
+        int pos = 0;
+        while ((pos = skipSlashes(path, pos)) < path.length()) {
+            int end = segmentEnd(path, pos);
+            segments.add(path.substring(pos, end));
+            pos = end;
+        }
+        return segments;
+    }
+
+    private static final class Node {
+        final Map<String, Node> children = new ConcurrentHashMap<>();
+        volatile Node variable;
+        /** Routes ending at this node, by HTTP method. */
+        final Map<String, Route> routes = new ConcurrentHashMap<>();
+        volatile boolean basePath;
+
+        Node child(String segment, List<String> variableNames) {
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                variableNames.add(segment.substring(1, segment.length() - 1));
+                if (variable == null) variable = new Node();
+                return variable;
+            }
+            return children.computeIfAbsent(segment, s -> new Node());
+        }
+    }
+}
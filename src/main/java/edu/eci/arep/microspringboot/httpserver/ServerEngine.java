@@ -0,0 +1,21 @@
+package edu.eci.arep.microspringboot.httpserver;
+
+/**
+ * I/O model used by {@link HttpServer} to accept connections and read requests.
+ */
+public enum ServerEngine {
+    /**
+     * One blocking socket per worker thread, the acceptor hands every connection to the pool.
+     */
+    BLOCKING,
+    /**
+     * Non-blocking channels multiplexed by a few selector event loops, only complete
+     * requests are handed to the worker pool.
+     */
+    NIO,
+    /**
+     * One blocking socket per virtual thread, a semaphore limits how many connections
+     * are served at once instead of a bounded queue of a fixed pool.
+     */
+    VIRTUAL
+}
@@ -0,0 +1,284 @@
+package edu.eci.arep.microspringboot.httpserver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * In-memory cache of the static files, keyed by their path inside the static directory.
+ * Each entry holds the headers computed once: Content-Type, ETag and Last-Modified, with the
+ * bytes of the small files. Files from {@link #ZERO_COPY_THRESHOLD} up are sent from the file
+ * system with transferTo, so they never enter the heap; inside a jar they are extracted once
+ * to a temporary file. The least recently used entries are evicted when the cached bytes
+ * exceed the configured size. Files served from a directory are invalidated by a
+ * {@link WatchService} as soon as they change; files served from the classpath of a jar
+ * cannot change while the server runs. Text files are compressed with gzip and deflate when
+ * they are read, and the files of a directory are all read when the cache is created, so
+ * compressed copies are ready before the first request.
+ */
+class StaticFileCache implements Closeable {
+    /** Default size of the cached bytes. */
+    static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+    /** Files of this size or larger are sent from the file system instead of memory. */
+    static final long ZERO_COPY_THRESHOLD = 128 * 1024;
+    /** Files larger than this are always sent as they are, compressing them would take too long. */
+    static final long PRECOMPRESS_LIMIT = 4L * 1024 * 1024;
+    private final Path root;
+    private final String classpathBase;
+    private final long maxBytes;
+    private final LinkedHashMap<String, StaticResource> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /** Large classpath resources already extracted, kept while the server runs. */
+    private final Map<String, Path> extracted = new ConcurrentHashMap<>();
+    private long size;
+    private WatchService watcher;
+
+    private StaticFileCache(Path root, String classpathBase, long maxBytes) {
+        this.root = root;
+        this.classpathBase = classpathBase;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Creates a cache of the files of a directory, watched for changes.
+     * @param root     the static directory
+     * @param maxBytes size of the cached bytes
+     * @return the cache
+     */
+    static StaticFileCache forDirectory(Path root, long maxBytes) {
+        StaticFileCache cache = new StaticFileCache(root.toAbsolutePath().normalize(), null, maxBytes);
+        try {
+            cache.watch();
+        } catch (IOException e) {
+            //without notifications the cache cannot tell when a file changes, so it keeps nothing
+            System.err.println("Could not watch static files, caching disabled: " + e.getMessage());
+            cache.close();
+            return new StaticFileCache(cache.root, null, 0);
+        }
+        cache.preload();
+        return cache;
+    }
+
+    /**
+     * Creates a cache of classpath resources, used when the static files are inside a jar.
+     * @param base     the classpath folder of the static files, without leading slash
+     * @param maxBytes size of the cached bytes
+     * @return the cache
+     */
+    static StaticFileCache forClasspath(String base, long maxBytes) {
+        return new StaticFileCache(null, base, maxBytes);
+    }
+
+    /**
+     * Finds a static file, reading it on the first request.
+     * @param path path of the file inside the static directory, starting with '/'
+     * @return the file, or null if it does not exist or is outside the static directory
+     * @throws IOException if the file exists but cannot be read
+     */
+    StaticResource get(String path) throws IOException {
+        String key = normalize(path);
+        if (key == null) return null;
+        synchronized (this) {
+            StaticResource cached = entries.get(key);
+            if (cached != null) return cached;
+        }
+        StaticResource resource = root != null ? loadFile(key) : loadResource(key);
+        if (resource == null || resource.cost() > maxBytes) return resource;
+        synchronized (this) {
+            StaticResource previous = entries.put(key, resource);
+            if (previous != null) size -= previous.cost();
+            size += resource.cost();
+            Iterator<StaticResource> eldest = entries.values().iterator();
+            while (size > maxBytes && eldest.hasNext()) {
+                size -= eldest.next().cost();
+                eldest.remove();
+            }
+        }
+        return resource;
+    }
+
+    /**
+     * @return the number of bytes currently cached
+     */
+    synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Removes a file, or every file under a directory, from the cache.
+     * @param key normalized path inside the static directory
+     */
+    synchronized void invalidate(String key) {
+        Iterator<Map.Entry<String, StaticResource>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, StaticResource> entry = it.next();
+            if (entry.getKey().equals(key) || entry.getKey().startsWith(key + "/")) {
+                size -= entry.getValue().cost();
+                it.remove();
+            }
+        }
+    }
+
+    private synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (watcher != null) watcher.close();
+        } catch (IOException ignored) {}
+    }
+
+    /**
+     * Resolves dot segments and rejects paths escaping the static directory.
+     */
+    private static String normalize(String path) {
+        String normalized = Path.of("/").resolve(path.replaceFirst("^/+", "")).normalize().toString().replace('\\', '/');
+        if (path.contains("..") && !normalized.equals(path)) return null;
+        return normalized.equals("/") ? null : normalized;
+    }
+
+    /**
+     * Reads the files of the directory until the cache is full.
+     */
+    private void preload() {
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                if (size() >= maxBytes) break;
+                get("/" + root.relativize(file).toString().replace('\\', '/'));
+            }
+        } catch (IOException | UncheckedIOException e) {
+            //files that cannot be read now are read again on their first request
+            System.err.println("Could not preload static files: " + e.getMessage());
+        }
+    }
+
+    private StaticResource loadFile(String key) throws IOException {
+        Path file = root.resolve(key.substring(1)).normalize();
+        if (!file.startsWith(root) || !Files.isRegularFile(file)) return null;
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        long length = Files.size(file);
+        if (length >= ZERO_COPY_THRESHOLD) {
+            StaticResource resource = new StaticResource(file, length, contentType(key), lastModified);
+            if (shouldPrecompress(resource)) resource.precompress(Files.readAllBytes(file));
+            return resource;
+        }
+        return precompressed(new StaticResource(Files.readAllBytes(file), contentType(key), lastModified));
+    }
+
+    private static boolean shouldPrecompress(StaticResource resource) {
+        return resource.length >= ContentEncoding.MIN_SIZE && resource.length <= PRECOMPRESS_LIMIT
+                && ContentEncoding.isCompressible(resource.contentType);
+    }
+
+    private static StaticResource precompressed(StaticResource resource) {
+        if (shouldPrecompress(resource)) resource.precompress(resource.body);
+        return resource;
+    }
+
+    private StaticResource loadResource(String key) throws IOException {
+        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        URL url = cl.getResource(classpathBase + key);
+        if (url == null || key.endsWith("/")) return null;
+        URLConnection connection = url.openConnection();
+        long lastModified = connection.getLastModified() > 0 ? connection.getLastModified() : System.currentTimeMillis();
+        if (connection.getContentLengthLong() >= ZERO_COPY_THRESHOLD) {
+            Path file = extracted.get(key);
+            if (file == null) {
+                //jar entries are usually compressed and cannot be mapped, a plain copy can use sendfile
+                file = Files.createTempFile("static-", key.substring(key.lastIndexOf('/') + 1));
+                file.toFile().deleteOnExit();
+                try (InputStream in = connection.getInputStream()) {
+                    Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+                Path previous = extracted.putIfAbsent(key, file);
+                if (previous != null) {
+                    Files.deleteIfExists(file);
+                    file = previous;
+                }
+            }
+            StaticResource resource = new StaticResource(file, Files.size(file), contentType(key), lastModified);
+            if (shouldPrecompress(resource)) resource.precompress(Files.readAllBytes(file));
+            return resource;
+        }
+        try (InputStream in = connection.getInputStream()) {
+            return precompressed(new StaticResource(in.readAllBytes(), contentType(key), lastModified));
+        }
+    }
+
+    /**
+     * Gets the content type based on the file extension.
+     * @param path path of the file
+     * @return content-type header
+     */
+    static String contentType(String path) {
+        if (path.endsWith(".html") || path.endsWith(".htm")) return "text/html";
+        if (path.endsWith(".css"))  return "text/css";
+        if (path.endsWith(".js"))   return "application/javascript";
+        if (path.endsWith(".png"))  return "image/png";
+        if (path.endsWith(".jpg") || path.endsWith(".jpeg")) return "image/jpeg";
+        return "application/octet-stream";
+    }
+
+    private void watch() throws IOException {
+        watcher = FileSystems.getDefault().newWatchService();
+        try (Stream<Path> dirs = Files.walk(root)) {
+            for (Path dir : (Iterable<Path>) dirs.filter(Files::isDirectory)::iterator) {
+                register(dir);
+            }
+        }
+        Thread thread = new Thread(this::processEvents, "static-files-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void register(Path dir) throws IOException {
+        dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    private void processEvents() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                Path dir = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        clear();
+                        continue;
+                    }
+                    Path changed = dir.resolve((Path) event.context());
+                    invalidate("/" + root.relativize(changed).toString().replace('\\', '/'));
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                        try {
+                            register(changed);
+                        } catch (IOException e) {
+                            System.err.println("Could not watch " + changed + ": " + e.getMessage());
+                        }
+                    }
+                }
+                key.reset();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            //cache closed
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package edu.eci.arep.microspringboot.httpserver;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.CRC32;
+
+/**
+ * A static file with the response headers computed once when it is read.
+ * Small files keep their bytes in memory, large ones only the path they are sent from.
+ * Text files can also keep compressed copies, encoded once so serving them costs no CPU.
+ */
+final class StaticResource {
+    /** IMF-fixdate, the HTTP date format. */
+    static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US)
+            .withZone(ZoneOffset.UTC);
+    /** The file content, null for files sent from {@link #file}. */
+    final byte[] body;
+    /** The file sent with transferTo, null for files held in memory. */
+    final Path file;
+    final long length;
+    final String contentType;
+    final String etag;
+    /** Modification time truncated to seconds, the precision of the HTTP date. */
+    final long lastModified;
+    final String lastModifiedHeader;
+    /** Compressed copies of the file, only the codings that make it smaller. */
+    final Map<ContentEncoding, Variant> variants = new EnumMap<>(ContentEncoding.class);
+
+    /**
+     * A compressed copy of the file, with its own entity tag as RFC 9110 requires.
+     */
+    record Variant(byte[] body, String etag) {
+    }
+
+    /**
+     * @param body         the file content
+     * @param contentType  the content type of the file
+     * @param lastModified modification time in milliseconds
+     */
+    StaticResource(byte[] body, String contentType, long lastModified) {
+        this(body, null, body.length, contentType, lastModified, crc(body));
+    }
+
+    /**
+     * @param file         the file to send, read once per request by the kernel
+     * @param length       the file size
+     * @param contentType  the content type of the file
+     * @param lastModified modification time in milliseconds
+     */
+    StaticResource(Path file, long length, String contentType, long lastModified) {
+        //hashing a large file on every change is too expensive, its size and date identify it
+        this(null, file, length, contentType, lastModified, lastModified);
+    }
+
+    private StaticResource(byte[] body, Path file, long length, String contentType, long lastModified, long version) {
+        this.body = body;
+        this.file = file;
+        this.length = length;
+        this.contentType = contentType;
+        this.etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(version) + "\"";
+        this.lastModified = lastModified / 1000 * 1000;
+        this.lastModifiedHeader = HTTP_DATE.format(Instant.ofEpochMilli(this.lastModified));
+    }
+
+    private static long crc(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return crc.getValue();
+    }
+
+    /**
+     * Encodes the file with every content coding, keeping the copies smaller than the file.
+     * Must be called before the resource is shared with other threads.
+     * @param content the file content
+     */
+    void precompress(byte[] content) {
+        for (ContentEncoding encoding : ContentEncoding.values()) {
+            byte[] encoded = encoding.encode(content, Deflater.BEST_COMPRESSION);
+            if (encoded.length < content.length) {
+                variants.put(encoding, new Variant(encoded, etag.substring(0, etag.length() - 1) + "-" + encoding.token + "\""));
+            }
+        }
+    }
+
+    /**
+     * @return the heap bytes the resource takes in the cache
+     */
+    long cost() {
+        long cost = body != null ? body.length : 0;
+        for (Variant variant : variants.values()) cost += variant.body().length;
+        return cost;
+    }
+
+    /**
+     * Evaluates the conditional headers of a request. If-None-Match takes precedence over
+     * If-Modified-Since, as RFC 9110 requires.
+     * @param request the request
+     * @param etag    the entity tag of the representation that would be sent
+     * @return true if the client copy is current and a 304 can be sent
+     */
+    boolean notModified(HttpRequest request, String etag) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                //weak comparison: a W/ prefix does not prevent the match
+                if (tag.startsWith("W/")) tag = tag.substring(2);
+                if (tag.equals("*") || tag.equals(etag)) return true;
+            }
+            return false;
+        }
+        String ifModifiedSince = request.getHeader("If-Modified-Since");
+        if (ifModifiedSince != null) {
+            long since = parseDate(ifModifiedSince);
+            return since >= 0 && lastModified <= since;
+        }
+        return false;
+    }
+
+    /**
+     * Evaluates If-Range: a client resuming a download only gets the missing part if its copy
+     * is still current, otherwise it gets the whole file again.
+     * @param request the request
+     * @param etag    the entity tag of the representation that would be sent
+     * @return true if the Range header of the request must be honored
+     */
+    boolean rangeApplies(HttpRequest request, String etag) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) return true;
+        ifRange = ifRange.trim();
+        //strong comparison: a weak tag never matches
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) return ifRange.equals(etag);
+        return parseDate(ifRange) == lastModified;
+    }
+
+    /**
+     * @return the date in milliseconds, or -1 if it is not a valid HTTP date
+     */
+    private static long parseDate(String date) {
+        try {
+            return ZonedDateTime.parse(date.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            //invalid dates are ignored
+            return -1;
+        }
+    }
+}
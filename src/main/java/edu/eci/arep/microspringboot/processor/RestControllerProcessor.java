@@ -0,0 +1,67 @@
+package edu.eci.arep.microspringboot.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Annotation processor writing the index of the {@code @RestController} classes of a compilation
+ * to {@value #INDEX}, one binary class name per line. The server reads the index at startup
+ * instead of scanning the classpath and loading every class to find the controllers.
+ * <p>
+ * The index describes the classes compiled together: Maven recompiles every source of a module
+ * when one changes, so it stays complete.
+ */
+@SupportedAnnotationTypes(RestControllerProcessor.REST_CONTROLLER)
+public class RestControllerProcessor extends AbstractProcessor {
+    /** Classpath resource holding the index, one per compiled module. */
+    public static final String INDEX = "META-INF/microspringboot/controllers";
+    static final String REST_CONTROLLER = "edu.eci.arep.microspringboot.annotations.RestController";
+    private final Set<String> controllers = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                //nested controllers are loaded by their binary name, Outer$Inner
+                controllers.add(processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString());
+            }
+        }
+        if (roundEnv.processingOver() && !controllers.isEmpty()) {
+            writeIndex();
+        }
+        return false;
+    }
+
+    private void writeIndex() {
+        try {
+            FileObject index = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX);
+            try (Writer writer = new OutputStreamWriter(index.openOutputStream(), StandardCharsets.UTF_8)) {
+                for (String controller : controllers) {
+                    writer.write(controller);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            //without index the server scans the classpath, slower but complete
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Could not write " + INDEX + ": " + e.getMessage());
+        }
+    }
+}
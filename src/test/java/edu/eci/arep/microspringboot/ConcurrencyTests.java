@@ -1,18 +1,28 @@
 package edu.eci.arep.microspringboot;
 
+import edu.eci.arep.microspringboot.classes.Task;
 import edu.eci.arep.microspringboot.connection.URLConnection;
+import edu.eci.arep.microspringboot.controllers.SlowController;
 import edu.eci.arep.microspringboot.httpserver.HttpServer;
+import edu.eci.arep.microspringboot.httpserver.ServerEngine;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import static edu.eci.arep.microspringboot.classes.TaskManager.getTaskManager;
 import static org.junit.Assert.*;
 
 public class ConcurrencyTests {
@@ -20,6 +30,8 @@ public class ConcurrencyTests {
     private static final int port = 35003;
     private static final int THREAD_POOL_SIZE = 10;
     private static final int QUEUE_CAPACITY = 50;
+    /** Below the server keep-alive timeout, a blocked worker would only be released after it. */
+    private static final long KEEP_ALIVE_BOUND_MS = 4000;
     private static Thread serverThread;
     static URLConnection urlConnection;
 
@@ -42,6 +54,9 @@ public class ConcurrencyTests {
         }
     }
     private static void waitForServerToStart(int timeoutMs) throws Exception {
+        waitForServerToStart(port, timeoutMs);
+    }
+    private static void waitForServerToStart(int port, int timeoutMs) throws Exception {
         long startTime = System.currentTimeMillis();
         while (System.currentTimeMillis() - startTime < timeoutMs) {
             try (Socket socket = new Socket()) {
@@ -342,6 +357,480 @@ public class ConcurrencyTests {
         assertTrue("Thread pool should handle at least 80% of requests correctly under saturation.",processedRequests.get() >= requestCount * 0.8);
         testExecutor.shutdown();
     }
+    /**
+     * Load test comparing persistent connections against one connection per request.
+     *
+     * Purpose: Verifies that HTTP/1.1 keep-alive lets a client send many requests through
+     * the same socket and measures the throughput gained by skipping the TCP handshake
+     * and the worker hand-off on every request.
+     *
+     * Scenario: 10 client threads send 200 GET requests each, first opening a new socket
+     * for every request ("Connection: close") and then reusing a single socket per thread.
+     *
+     * Success Criteria:
+     * - Every request of both runs returns 200 with the expected body
+     * - Reused connections are only closed by the server when it announces "Connection: close"
+     * - Requests/sec of both runs are reported
+     *
+     * What it proves: Persistent connections work under concurrency and their benefit is measurable
+     */
+    @Test
+    public void testKeepAliveThroughput() throws Exception {
+        int clients = THREAD_POOL_SIZE;
+        int requestsPerClient = 200;
+        String request = "GET /app/greeting?name=KeepAlive HTTP/1.1\r\nHost: localhost";
+
+        double withoutReuse = runLoad(clients, requestsPerClient, () -> {
+            for (int i = 0; i < requestsPerClient; i++) {
+                try (Socket socket = urlConnection.openSocket()) {
+                    String response = urlConnection.sendRawRequest(socket, request + "\r\nConnection: close");
+                    assertTrue(response.startsWith("HTTP/1.1 200"));
+                    assertTrue(response.contains("Connection: close"));
+                }
+            }
+            return null;
+        });
+        double withReuse = runLoad(clients, requestsPerClient, () -> {
+            Socket socket = urlConnection.openSocket();
+            try {
+                for (int i = 0; i < requestsPerClient; i++) {
+                    String response = urlConnection.sendRawRequest(socket, request);
+                    assertTrue(response.startsWith("HTTP/1.1 200"));
+                    assertTrue(response.endsWith("Hello KeepAlive"));
+                    //the server closes the connection once it reaches its per-connection request cap
+                    if (response.contains("Connection: close")) {
+                        socket.close();
+                        socket = urlConnection.openSocket();
+                    }
+                }
+            } finally {
+                socket.close();
+            }
+            return null;
+        });
+        System.out.printf("Keep-alive load test: %.0f req/s without reuse, %.0f req/s with reuse%n", withoutReuse, withReuse);
+    }
+
+    /**
+     * Tests the task store under concurrent POSTs.
+     *
+     * Purpose: Verifies that tasks saved from many worker threads at once are neither lost
+     * nor given the same id.
+     *
+     * Scenario: 10 client threads send 10,000 POST /task requests each over persistent
+     * connections, 100,000 tasks in total, each with a unique name.
+     *
+     * Success Criteria:
+     * - Every request returns 200 with the saved task
+     * - The 100,000 returned ids are distinct
+     * - The store holds exactly 100,000 more tasks, each one with its name and id
+     *
+     * What it proves: Id allocation and task storage are thread safe
+     */
+    @Test
+    public void testConcurrentTaskCreation() throws Exception {
+        int clients = THREAD_POOL_SIZE;
+        int requestsPerClient = 10_000;
+        int before = getTaskManager().getTasks().size();
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        Pattern idPattern = Pattern.compile("\"id\":(\\d+)");
+        AtomicInteger clientIds = new AtomicInteger();
+        double throughput = runLoad(clients, requestsPerClient, () -> {
+            int client = clientIds.getAndIncrement();
+            Socket socket = urlConnection.openSocket();
+            try {
+                for (int i = 0; i < requestsPerClient; i++) {
+                    String response = urlConnection.sendRawRequest(socket,
+                            "POST /task HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json",
+                            "{\"name\":\"stress-" + client + "-" + i + "\",\"description\":\"concurrent save\"}");
+                    assertTrue(response, response.startsWith("HTTP/1.1 200"));
+                    Matcher id = idPattern.matcher(response);
+                    assertTrue(response, id.find());
+                    assertTrue("Duplicated id " + id.group(1), ids.add(Integer.parseInt(id.group(1))));
+                    if (response.contains("Connection: close")) {
+                        socket.close();
+                        socket = urlConnection.openSocket();
+                    }
+                }
+            } finally {
+                socket.close();
+            }
+            return null;
+        });
+        int total = clients * requestsPerClient;
+        assertEquals(total, ids.size());
+        List<Task> tasks = getTaskManager().getTasks();
+        assertEquals("No task should be lost", before + total, tasks.size());
+        Set<String> names = new HashSet<>();
+        for (Task task : tasks) {
+            if (ids.contains(task.getId()) && task.getName().startsWith("stress-")) names.add(task.getName());
+            assertSame(task, getTaskManager().getTask(task.getId()));
+        }
+        assertEquals("Every task should keep its own id", total, names.size());
+        System.out.printf("Task creation stress test: %.0f req/s%n", throughput);
+    }
+
+    /**
+     * Tests a thundering herd on the same slow URL.
+     *
+     * Purpose: Verifies that identical GET requests served at the same time share one call
+     * of the handler, and that each of them still receives the whole response.
+     *
+     * Scenario: 40 concurrent requests to /slow/tasks, a handler blocking 500 ms and
+     * returning 2000 tasks as a JSON body encoded in memory, against the 10 workers of the server.
+     *
+     * Success Criteria:
+     * - Every request returns 200 with the 2000 tasks
+     * - The handler runs about once per round of workers, far fewer times than requests
+     *
+     * What it proves: A burst on an expensive URL costs one computation per wave, not one per client
+     */
+    @Test
+    public void testThunderingHerdIsCoalesced() throws Exception {
+        int requests = 40;
+        int callsBefore = SlowController.calls.get();
+        long coalescedBefore = HttpServer.inFlight.coalescedCount();
+        ExecutorService clients = Executors.newFixedThreadPool(requests);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                futures.add(clients.submit(() -> {
+                    start.await();
+                    HttpURLConnection connection = urlConnection.createGetConnection("/slow/tasks?ms=500&count=2000");
+                    assertEquals(200, connection.getResponseCode());
+                    String response = urlConnection.readResponse(connection);
+                    connection.disconnect();
+                    return response;
+                }));
+            }
+            long begin = System.currentTimeMillis();
+            start.countDown();
+            for (Future<String> future : futures) {
+                String response = future.get(30, TimeUnit.SECONDS);
+                assertTrue(response.contains("\"name\":\"Slow task 0\""));
+                assertTrue(response.contains("\"name\":\"Slow task 1999\""));
+            }
+            long elapsed = System.currentTimeMillis() - begin;
+            int calls = SlowController.calls.get() - callsBefore;
+            long coalesced = HttpServer.inFlight.coalescedCount() - coalescedBefore;
+            System.out.println("Thundering herd: " + requests + " requests, " + calls + " handler calls, "
+                    + coalesced + " coalesced, " + elapsed + " ms");
+            assertTrue("Identical requests should share the handler call, it ran " + calls + " times", calls <= requests / 4);
+            assertEquals(requests - calls, coalesced);
+        } finally {
+            clients.shutdown();
+        }
+    }
+
+    /**
+     * Tests identical requests on a slow URL whose response is streamed.
+     *
+     * Purpose: Verifies that a streamed body is never copied into memory to be shared with the
+     * requests waiting for the same call.
+     *
+     * Scenario: 8 concurrent requests to /slow/streamed, a handler blocking 300 ms and
+     * returning 2000 tasks as a streamed JSON body.
+     *
+     * Success Criteria:
+     * - Every request returns 200 with the 2000 tasks
+     * - The handler runs once per request
+     *
+     * What it proves: Waiting for a streamed response costs a call of the handler, not a copy of the body
+     */
+    @Test
+    public void testStreamedResponsesAreNotShared() throws Exception {
+        int requests = 8;
+        int callsBefore = SlowController.calls.get();
+        ExecutorService clients = Executors.newFixedThreadPool(requests);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                futures.add(clients.submit(() -> {
+                    start.await();
+                    HttpURLConnection connection = urlConnection.createGetConnection("/slow/streamed?ms=300&count=2000");
+                    assertEquals(200, connection.getResponseCode());
+                    String response = urlConnection.readResponse(connection);
+                    connection.disconnect();
+                    return response;
+                }));
+            }
+            start.countDown();
+            for (Future<String> future : futures) {
+                String response = future.get(30, TimeUnit.SECONDS);
+                assertTrue(response.contains("\"name\":\"Slow task 1999\""));
+            }
+            assertEquals(requests, SlowController.calls.get() - callsBefore);
+        } finally {
+            clients.shutdown();
+        }
+    }
+
+    /**
+     * Runs the same client loop in several threads and returns the requests per second achieved.
+     */
+    private static double runLoad(int clients, int requestsPerClient, Callable<Void> client) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        List<Future<Void>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            futures.add(executor.submit(client));
+        }
+        for (Future<Void> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+        return clients * requestsPerClient / (elapsed / 1_000_000_000.0);
+    }
+
+    /**
+     * Tests the NIO engine with thousands of idle connections.
+     *
+     * Purpose: Verifies that connections which do not send anything are parked in the
+     * event loops instead of pinning a worker thread, which is what happens with the
+     * blocking engine until the read timeout expires.
+     *
+     * Scenario: 2000 connections are opened and left idle against an NIO server with only
+     * 4 workers, then 50 requests are sent through new connections, and finally every idle
+     * connection sends its own request.
+     *
+     * Success Criteria:
+     * - The 50 new requests complete while the idle connections are still open
+     * - Every idle connection is answered afterwards
+     *
+     * What it proves: Idle clients cost a registered channel, not a worker thread
+     */
+    @Test
+    public void testNioEngineWithIdleConnections() throws Exception {
+        int nioPort = 35005;
+        int idleCount = 2000;
+        HttpServer nioServer = new HttpServer(nioPort, 4, QUEUE_CAPACITY, "static", "edu.eci.arep", ServerEngine.NIO);
+        Thread nioThread = nioServer.startAsync();
+        URLConnection nioConnection = new URLConnection(nioPort);
+        List<Socket> idle = new ArrayList<>();
+        try {
+            waitForServerToStart(nioPort, 10000);
+            for (int i = 0; i < idleCount; i++) {
+                idle.add(nioConnection.openSocket());
+            }
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < 50; i++) {
+                try (Socket socket = nioConnection.openSocket()) {
+                    String response = nioConnection.sendRawRequest(socket, "GET /app/greeting?name=Nio" + i + " HTTP/1.1\r\nHost: localhost");
+                    assertTrue(response.endsWith("Hello Nio" + i));
+                }
+            }
+            assertTrue("Idle connections should not delay new requests", System.currentTimeMillis() - start < KEEP_ALIVE_BOUND_MS);
+            for (Socket socket : idle) {
+                String response = nioConnection.sendRawRequest(socket, "GET /app/void HTTP/1.1\r\nHost: localhost");
+                assertTrue(response.endsWith("Hello World!"));
+            }
+        } finally {
+            for (Socket socket : idle) {
+                socket.close();
+            }
+            nioServer.stop();
+            nioThread.join();
+        }
+    }
+
+    /**
+     * Tests a streamed response through the NIO engine.
+     *
+     * Purpose: Verifies that a worker hands a long response to its event loop one buffer at
+     * a time, waiting for each buffer to be written, instead of building it in memory.
+     *
+     * Scenario: A list of a million tasks is requested from an NIO server with a single
+     * worker while another client keeps sending requests through the same server.
+     *
+     * Success Criteria:
+     * - The response is chunked and contains every task, with a 192 MB test heap
+     * - The other client is answered while the list is being written
+     *
+     * What it proves: Long responses use constant memory and do not block the event loop
+     */
+    @Test
+    public void testNioEngineStreamsLargeResponse() throws Exception {
+        int nioPort = 35007;
+        HttpServer nioServer = new HttpServer(nioPort, 2, QUEUE_CAPACITY, "static", "edu.eci.arep", ServerEngine.NIO);
+        Thread nioThread = nioServer.startAsync();
+        URLConnection nioConnection = new URLConnection(nioPort);
+        waitForServerToStart(nioPort, 10000);
+        try (Socket socket = nioConnection.openSocket()) {
+            socket.setSoTimeout(60000);
+            socket.getOutputStream().write("GET /stream/tasks?count=1000000 HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            BufferedInputStream in = new BufferedInputStream(socket.getInputStream());
+            HttpServerTests.TaskCounter counter = new HttpServerTests.TaskCounter();
+            //the list is not read yet: its worker waits for the client while the other request is served
+            try (Socket other = nioConnection.openSocket()) {
+                String response = nioConnection.sendRawRequest(other, "GET /app/greeting?name=Concurrent HTTP/1.1\r\nHost: localhost");
+                assertTrue(response.endsWith("Hello Concurrent"));
+            }
+            String head = nioConnection.readChunkedResponse(in, counter);
+            assertTrue("Should be chunked", head.contains("Transfer-Encoding: chunked"));
+            assertEquals("Should contain every task", 1_000_000, counter.objects);
+            assertEquals("Should be a complete JSON array", ']', counter.last);
+        } finally {
+            nioServer.stop();
+            nioThread.join();
+        }
+    }
+
+    /**
+     * Tests a large static file through the NIO engine.
+     *
+     * Purpose: Verifies that the event loop sends a file region with transferTo after the
+     * head written by the worker, without the worker reading the file.
+     *
+     * Scenario: A 3 MB static file is requested from an NIO server.
+     *
+     * Success Criteria:
+     * - The response has the file length and the exact file bytes
+     *
+     * What it proves: Zero-copy responses work on non-blocking connections
+     */
+    @Test
+    public void testNioEngineSendsLargeFile() throws Exception {
+        int nioPort = 35008;
+        HttpServer nioServer = new HttpServer(nioPort, 2, QUEUE_CAPACITY, "static", "edu.eci.arep", ServerEngine.NIO);
+        Thread nioThread = nioServer.startAsync();
+        try {
+            waitForServerToStart(nioPort, 10000);
+            HttpServerTests.assertLargeFileServed(new URLConnection(nioPort));
+        } finally {
+            nioServer.stop();
+            nioThread.join();
+        }
+    }
+
+    /**
+     * Tests byte ranges of a large static file through the NIO engine.
+     *
+     * Purpose: Verifies that the part headers written by the worker and the file regions sent
+     * by the event loop reach the client in order.
+     *
+     * Scenario: A single range and a multipart range request for a 512 KB file on an NIO server.
+     *
+     * Success Criteria:
+     * - Each response has status 206 and exactly the requested bytes and part headers
+     *
+     * What it proves: Partial content keeps using transferTo on non-blocking connections
+     */
+    @Test
+    public void testNioEngineSendsByteRanges() throws Exception {
+        int nioPort = 35009;
+        HttpServer nioServer = new HttpServer(nioPort, 2, QUEUE_CAPACITY, "static", "edu.eci.arep", ServerEngine.NIO);
+        Thread nioThread = nioServer.startAsync();
+        try {
+            waitForServerToStart(nioPort, 10000);
+            HttpServerTests.assertRangesServed(new URLConnection(nioPort));
+        } finally {
+            nioServer.stop();
+            nioThread.join();
+        }
+    }
 
+    /**
+     * Tests the NIO engine when every worker is busy and its queue is full.
+     *
+     * Purpose: Verifies that a request the pool rejects is answered by the event loop with 503
+     * instead of running its handler there, where a response larger than one buffer would wait
+     * for the event loop itself to write it.
+     *
+     * Scenario: An NIO server with one worker and a queue of one receives two requests blocking
+     * 2 seconds, then a request for a body larger than 8 KB.
+     *
+     * Success Criteria:
+     * - The third request is answered 503 at once
+     * - Both slow requests still return 200
+     * - Once the worker is free the large body is served whole
+     *
+     * What it proves: Handlers never run on an event loop, a full pool costs a 503 and not a stalled loop
+     */
+    @Test
+    public void testNioEngineRejectsWhenPoolIsFull() throws Exception {
+        int nioPort = 35010;
+        HttpServer nioServer = new HttpServer(nioPort, 1, 1, "static", "edu.eci.arep", ServerEngine.NIO);
+        Thread nioThread = nioServer.startAsync();
+        URLConnection nioConnection = new URLConnection(nioPort);
+        waitForServerToStart(nioPort, 10000);
+        try (Socket first = nioConnection.openSocket(); Socket second = nioConnection.openSocket()) {
+            //one request runs on the worker, the other waits in the queue
+            first.getOutputStream().write("GET /slow?ms=2000&id=first HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            Thread.sleep(300);
+            second.getOutputStream().write("GET /slow?ms=2000&id=second HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            Thread.sleep(300);
+            try (Socket rejected = nioConnection.openSocket()) {
+                long begin = System.currentTimeMillis();
+                String response = nioConnection.sendRawRequest(rejected, "GET /slow/tasks?ms=0&count=2000 HTTP/1.1\r\nHost: localhost");
+                assertTrue(response, response.startsWith("HTTP/1.1 503"));
+                assertTrue("Should not wait for the workers", System.currentTimeMillis() - begin < 1000);
+            }
+            first.setSoTimeout(10000);
+            second.setSoTimeout(10000);
+            assertTrue(nioConnection.readRawResponse(first).startsWith("HTTP/1.1 200"));
+            assertTrue(nioConnection.readRawResponse(second).startsWith("HTTP/1.1 200"));
+            try (Socket large = nioConnection.openSocket()) {
+                String response = nioConnection.sendRawRequest(large, "GET /slow/tasks?ms=0&count=2000 HTTP/1.1\r\nHost: localhost");
+                assertTrue(response.startsWith("HTTP/1.1 200"));
+                assertTrue(response.contains("\"name\":\"Slow task 1999\""));
+            }
+        } finally {
+            nioServer.stop();
+            nioThread.join();
+        }
+    }
 
+    /**
+     * Tests the virtual-thread engine with blocking handlers.
+     *
+     * Purpose: Verifies that a burst of slow requests runs concurrently on virtual threads
+     * instead of queueing behind a small pool, and that the admission limit holds the
+     * connections above it until a permit is released.
+     *
+     * Scenario: 60 concurrent requests to /slow with distinct ids, each blocking 300 ms, against a server
+     * whose admission limit is 40 connections.
+     *
+     * Success Criteria:
+     * - Every request returns 200
+     * - The burst completes in about two rounds of the handler delay, far below the
+     *   18 seconds a single worker would need
+     *
+     * What it proves: Blocking handlers scale with virtual threads and admission is bounded
+     */
+    @Test
+    public void testVirtualThreadEngineWithSlowHandlers() throws Exception {
+        int virtualPort = 35006;
+        int requests = 60;
+        HttpServer virtualServer = new HttpServer(virtualPort, 1, 40, "static", "edu.eci.arep", ServerEngine.VIRTUAL);
+        Thread virtualThread = virtualServer.startAsync();
+        URLConnection virtualConnection = new URLConnection(virtualPort);
+        ExecutorService clients = Executors.newFixedThreadPool(requests);
+        try {
+            waitForServerToStart(virtualPort, 10000);
+            List<Future<Integer>> futures = new ArrayList<>();
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < requests; i++) {
+                int id = i;
+                futures.add(clients.submit(() -> {
+                    HttpURLConnection connection = virtualConnection.createGetConnection("/slow?ms=300&id=" + id);
+                    int code = connection.getResponseCode();
+                    connection.disconnect();
+                    return code;
+                }));
+            }
+            for (Future<Integer> future : futures) {
+                assertEquals(200, (int) future.get(30, TimeUnit.SECONDS));
+            }
+            long elapsed = System.currentTimeMillis() - start;
+            System.out.println("Virtual threads: " + requests + " slow requests served in " + elapsed + " ms");
+            assertTrue("Slow requests should run concurrently, took " + elapsed + " ms", elapsed < 5000);
+        } finally {
+            clients.shutdown();
+            virtualServer.stop();
+            virtualThread.join();
+        }
+    }
 }
@@ -5,6 +5,7 @@ import edu.eci.arep.microspringboot.annotations.RequestMapping;
 import edu.eci.arep.microspringboot.annotations.RestController;
 import edu.eci.arep.microspringboot.connection.URLConnection;
 import edu.eci.arep.microspringboot.examples.GreetingController;
+import edu.eci.arep.microspringboot.helpers.ClassesConverter;
 import edu.eci.arep.microspringboot.httpserver.HttpServer;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -15,7 +16,12 @@ import java.lang.reflect.Method;
 import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
+import static edu.eci.arep.microspringboot.classes.TaskManager.getTaskManager;
 import static edu.eci.arep.microspringboot.httpserver.HttpServer.staticfiles;
 import static org.junit.Assert.*;
 
@@ -26,6 +32,7 @@ public class ControllerTests {
     static HttpServer server;
     @BeforeClass
     public static void setUp() throws Exception {
+        MicroSpringBoot.invalidateCachedTasks();
         urlConnection = new URLConnection(port);
         server = new HttpServer(
                 port,
@@ -174,5 +181,137 @@ public class ControllerTests {
         GetMapping mapping = greetingMethod.getAnnotation(GetMapping.class);
         assertEquals("Should map to /greeting", "/greeting", mapping.value());
     }
-
+    /*
+     *The index written at compile time and the class file scan find exactly the controllers
+     *that loading every class finds
+     */
+    @Test
+    public void testControllerIndexMatchesScan() throws Exception {
+        Set<Class<?>> indexed = ClassesConverter.findIndexedClasses("edu.eci.arep.microspringboot");
+        assertNotNull("The controller index should be on the classpath", indexed);
+        Set<Class<?>> scanned = ClassesConverter.findClasses("edu.eci.arep.microspringboot").stream()
+                .filter(c -> c.isAnnotationPresent(RestController.class)).collect(Collectors.toSet());
+        assertEquals(scanned, indexed);
+        assertEquals(scanned, ClassesConverter.findAnnotatedClasses("edu.eci.arep.microspringboot", RestController.class));
+        assertTrue(indexed.contains(GreetingController.class));
+        for (Class<?> c : ClassesConverter.findIndexedClasses("edu.eci.arep.microspringboot.examples")) {
+            assertEquals("edu.eci.arep.microspringboot.examples", c.getPackageName());
+        }
+    }
+    /*
+     *Parameters are converted to the handler types: numbers, booleans, enums and repeated keys as lists
+     */
+    @Test
+    public void testTypedParameters() throws Exception {
+        HttpURLConnection getConnection = urlConnection.createGetConnection("/binding/typed/42?ratio=2.5&flag=TRUE&color=green&limit=7&tag=a&tag=b");
+        assertEquals("42 2.5 true GREEN 7 [a, b]", urlConnection.readResponse(getConnection).trim());
+        getConnection.disconnect();
+        getConnection = urlConnection.createGetConnection("/binding/typed/1");
+        assertEquals("1 0.5 false RED null []", urlConnection.readResponse(getConnection).trim());
+        getConnection.disconnect();
+        getConnection = urlConnection.createGetConnection("/v1/calculate/maths?operation=*&a=6&b=7");
+        assertEquals("Result: 42", urlConnection.readResponse(getConnection).trim());
+        getConnection.disconnect();
+    }
+    /*
+     *Malformed or missing values are answered with 400 instead of 500
+     */
+    @Test
+    public void testMalformedParametersAreBadRequests() throws Exception {
+        String[] paths = {"/v1/calculate/maths?a=x", "/v1/calculate/maths/square?number=1.5", "/binding/typed/abc",
+                "/binding/typed/1?flag=yes", "/binding/typed/1?color=BLUE", "/binding/required"};
+        for (String path : paths) {
+            HttpURLConnection getConnection = urlConnection.createGetConnection(path);
+            assertEquals(path, 400, getConnection.getResponseCode());
+            getConnection.disconnect();
+        }
+        HttpURLConnection getConnection = urlConnection.createGetConnection("/binding/required?count=3");
+        assertEquals("count 3", urlConnection.readResponse(getConnection).trim());
+        getConnection.disconnect();
+    }
+    /*
+     *A cacheable handler is called once per distinct request: parameters it does not read share
+     *the cached response, other values of its parameters do not
+     */
+    @Test
+    public void testResponseCache() throws Exception {
+        long hits = HttpServer.responses.hitCount();
+        long misses = HttpServer.responses.missCount();
+        String[] paths = {"/app/greeting?name=Cached", "/app/greeting?name=Cached", "/app/greeting?utm=x&name=Cached", "/app/greeting?name=Other"};
+        String[] bodies = {"Hello Cached", "Hello Cached", "Hello Cached", "Hello Other"};
+        for (int i = 0; i < paths.length; i++) {
+            HttpURLConnection getConnection = urlConnection.createGetConnection(paths[i]);
+            assertEquals(200, getConnection.getResponseCode());
+            assertEquals(bodies[i], urlConnection.readResponse(getConnection));
+            getConnection.disconnect();
+        }
+        assertEquals(2, HttpServer.responses.hitCount() - hits);
+        assertEquals(2, HttpServer.responses.missCount() - misses);
+    }
+    /*
+     *Changing a task drops its cached GET /task/{id} response, the next GET sees the change
+     */
+    @Test
+    public void testCachedTaskIsInvalidated() throws Exception {
+        HttpURLConnection post = urlConnection.createPostConnection("/task", "{\"name\":\"Cached task\",\"description\":\"before\"}");
+        Matcher id = Pattern.compile("\"id\":(\\d+)").matcher(urlConnection.readResponse(post));
+        post.disconnect();
+        assertTrue(id.find());
+        String path = "/task/" + id.group(1);
+        long hits = HttpServer.responses.hitCount();
+        for (int i = 0; i < 2; i++) {
+            HttpURLConnection getConnection = urlConnection.createGetConnection(path);
+            assertTrue(urlConnection.readResponse(getConnection).contains("before"));
+            getConnection.disconnect();
+        }
+        assertEquals(1, HttpServer.responses.hitCount() - hits);
+        getTaskManager().updateTask(Integer.parseInt(id.group(1)), "Cached task", "after");
+        HttpURLConnection getConnection = urlConnection.createGetConnection(path);
+        assertTrue(urlConnection.readResponse(getConnection).contains("after"));
+        getConnection.disconnect();
+    }
+    /*
+     *Changing a task keeps the cached responses of the other tasks
+     */
+    @Test
+    public void testOtherCachedTasksAreKept() throws Exception {
+        String[] paths = new String[2];
+        for (int i = 0; i < paths.length; i++) {
+            HttpURLConnection post = urlConnection.createPostConnection("/task", "{\"name\":\"Kept task\",\"description\":\"d\"}");
+            Matcher id = Pattern.compile("\"id\":(\\d+)").matcher(urlConnection.readResponse(post));
+            post.disconnect();
+            assertTrue(id.find());
+            paths[i] = "/task/" + id.group(1);
+            HttpURLConnection getConnection = urlConnection.createGetConnection(paths[i]);
+            assertEquals(200, getConnection.getResponseCode());
+            getConnection.disconnect();
+        }
+        getTaskManager().updateTask(Integer.parseInt(paths[0].substring("/task/".length())), "Kept task", "changed");
+        long hits = HttpServer.responses.hitCount();
+        HttpURLConnection getConnection = urlConnection.createGetConnection(paths[1]);
+        assertEquals(200, getConnection.getResponseCode());
+        getConnection.disconnect();
+        assertEquals(1, HttpServer.responses.hitCount() - hits);
+        getConnection = urlConnection.createGetConnection(paths[0]);
+        assertTrue(urlConnection.readResponse(getConnection).contains("changed"));
+        getConnection.disconnect();
+    }
+    /*
+     *A cacheable handler returning an object, whose JSON is streamed, is cached too, and the cached
+     *response has the same body
+     */
+    @Test
+    public void testStreamedResponseIsCached() throws Exception {
+        long hits = HttpServer.responses.hitCount();
+        String[] bodies = new String[2];
+        for (int i = 0; i < bodies.length; i++) {
+            HttpURLConnection getConnection = urlConnection.createGetConnection("/report/streamed?key=7");
+            assertEquals(200, getConnection.getResponseCode());
+            bodies[i] = urlConnection.readResponse(getConnection);
+            getConnection.disconnect();
+        }
+        assertEquals(1, HttpServer.responses.hitCount() - hits);
+        assertEquals(bodies[0], bodies[1]);
+        assertTrue(bodies[1].contains("Report 7 line 99"));
+    }
 }
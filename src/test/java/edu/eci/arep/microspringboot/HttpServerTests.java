@@ -1,11 +1,31 @@
 package edu.eci.arep.microspringboot;
 import edu.eci.arep.microspringboot.annotations.RequestMapping;
 import edu.eci.arep.microspringboot.examples.TaskController;
+import edu.eci.arep.microspringboot.helpers.BufferPool;
+import edu.eci.arep.microspringboot.httpserver.HttpResponse;
 import edu.eci.arep.microspringboot.httpserver.HttpServer;
+import edu.eci.arep.microspringboot.httpserver.ResponseWriter;
 import org.junit.*;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 import edu.eci.arep.microspringboot.connection.URLConnection;
 import static org.junit.Assert.*;
@@ -17,6 +37,7 @@ public class HttpServerTests {
     static HttpServer server;
     @BeforeClass
     public static void setUp() throws Exception {
+        MicroSpringBoot.invalidateCachedTasks();
         urlConnection = new URLConnection(port);
         server = new HttpServer(
                 port,
@@ -103,6 +124,185 @@ public class HttpServerTests {
         assertEquals("Should return 404 Not Found",404, responseCode);
         getConnection.disconnect();
     }
+    /*
+     *Static files carry ETag and Last-Modified, a client sending them back receives 304 without body
+     */
+    @Test
+    public void testStaticFileRevalidation() throws Exception {
+        HttpURLConnection first = urlConnection.createGetConnection("/static/styles/style.css");
+        assertEquals(200, first.getResponseCode());
+        String etag = first.getHeaderField("ETag");
+        String lastModified = first.getHeaderField("Last-Modified");
+        first.disconnect();
+        assertNotNull("Should send an ETag", etag);
+        assertNotNull("Should send Last-Modified", lastModified);
+
+        HttpURLConnection byTag = urlConnection.createGetConnection("/static/styles/style.css");
+        byTag.setRequestProperty("If-None-Match", etag);
+        assertEquals("Should return 304 Not Modified", 304, byTag.getResponseCode());
+        byTag.disconnect();
+
+        HttpURLConnection byDate = urlConnection.createGetConnection("/static/styles/style.css");
+        byDate.setRequestProperty("If-Modified-Since", lastModified);
+        assertEquals("Should return 304 Not Modified", 304, byDate.getResponseCode());
+        byDate.disconnect();
+
+        HttpURLConnection otherTag = urlConnection.createGetConnection("/static/styles/style.css");
+        otherTag.setRequestProperty("If-None-Match", "\"other\"");
+        otherTag.setRequestProperty("If-Modified-Since", lastModified);
+        assertEquals("If-None-Match takes precedence over If-Modified-Since", 200, otherTag.getResponseCode());
+        otherTag.disconnect();
+    }
+    /*
+     *Large static files are sent from the file system with transferTo, byte for byte
+     */
+    @Test
+    public void testLargeStaticFile() throws Exception {
+        assertLargeFileServed(urlConnection);
+    }
+
+    /**
+     * Writes a random file above the zero-copy threshold into the static directory and checks
+     * that the server returns it unchanged.
+     */
+    static void assertLargeFileServed(URLConnection connection) throws Exception {
+        Path file = Paths.get(HttpServerTests.class.getClassLoader().getResource("static/images").toURI())
+                .resolve("large-test-" + connection.hashCode() + ".png");
+        byte[] content = new byte[3 * 1024 * 1024 + 17];
+        new Random(42).nextBytes(content);
+        try {
+            Files.write(file, content);
+            HttpURLConnection getConnection = connection.createGetConnection("/images/" + file.getFileName());
+            assertEquals("Should return 200 OK", 200, getConnection.getResponseCode());
+            assertEquals(String.valueOf(content.length), getConnection.getHeaderField("Content-Length"));
+            assertEquals("image/png", getConnection.getHeaderField("Content-Type"));
+            try (InputStream in = getConnection.getInputStream()) {
+                assertArrayEquals("Should send the file unchanged", content, in.readAllBytes());
+            }
+            getConnection.disconnect();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    /*
+     *Ranges of a small static file are cut from the cached bytes, If-Range falls back to the whole file
+     */
+    @Test
+    public void testRangeRequests() throws Exception {
+        byte[] original = Files.readAllBytes(Paths.get(getClass().getClassLoader().getResource("static/styles/style.css").toURI()));
+        HttpURLConnection first = urlConnection.createGetConnection("/static/styles/style.css");
+        first.setRequestProperty("Range", "bytes=0-9");
+        assertEquals("Should return 206 Partial Content", 206, first.getResponseCode());
+        assertEquals("bytes", first.getHeaderField("Accept-Ranges"));
+        assertEquals("bytes 0-9/" + original.length, first.getHeaderField("Content-Range"));
+        String etag = first.getHeaderField("ETag");
+        try (InputStream in = first.getInputStream()) {
+            assertArrayEquals(Arrays.copyOfRange(original, 0, 10), in.readAllBytes());
+        }
+        first.disconnect();
+
+        HttpURLConnection resume = urlConnection.createGetConnection("/static/styles/style.css");
+        resume.setRequestProperty("Range", "bytes=10-");
+        resume.setRequestProperty("If-Range", etag);
+        assertEquals(206, resume.getResponseCode());
+        try (InputStream in = resume.getInputStream()) {
+            assertArrayEquals(Arrays.copyOfRange(original, 10, original.length), in.readAllBytes());
+        }
+        resume.disconnect();
+
+        HttpURLConnection changed = urlConnection.createGetConnection("/static/styles/style.css");
+        changed.setRequestProperty("Range", "bytes=10-");
+        changed.setRequestProperty("If-Range", "\"other\"");
+        assertEquals("A changed file is sent whole", 200, changed.getResponseCode());
+        assertEquals(String.valueOf(original.length), changed.getHeaderField("Content-Length"));
+        changed.disconnect();
+
+        HttpURLConnection outside = urlConnection.createGetConnection("/static/styles/style.css");
+        outside.setRequestProperty("Range", "bytes=" + original.length + "-");
+        assertEquals("Should return 416 Range Not Satisfiable", 416, outside.getResponseCode());
+        assertEquals("bytes */" + original.length, outside.getHeaderField("Content-Range"));
+        outside.disconnect();
+    }
+    /*
+     *Ranges of a large static file are sent from the file system, several ranges as multipart/byteranges
+     */
+    @Test
+    public void testRangeRequestsOnLargeFile() throws Exception {
+        assertRangesServed(urlConnection);
+    }
+
+    /**
+     * Writes a random file above the zero-copy threshold into the static directory and checks
+     * a single range, a suffix range and a multipart response with overlapping ranges.
+     */
+    static void assertRangesServed(URLConnection connection) throws Exception {
+        Path file = Paths.get(HttpServerTests.class.getClassLoader().getResource("static/images").toURI())
+                .resolve("ranges-test-" + connection.hashCode() + ".png");
+        byte[] content = new byte[512 * 1024 + 3];
+        new Random(7).nextBytes(content);
+        int length = content.length;
+        try {
+            Files.write(file, content);
+            String path = "/images/" + file.getFileName();
+            HttpURLConnection single = connection.createGetConnection(path);
+            single.setRequestProperty("Range", "bytes=-1000");
+            assertEquals(206, single.getResponseCode());
+            assertEquals("bytes " + (length - 1000) + "-" + (length - 1) + "/" + length, single.getHeaderField("Content-Range"));
+            try (InputStream in = single.getInputStream()) {
+                assertArrayEquals(Arrays.copyOfRange(content, length - 1000, length), in.readAllBytes());
+            }
+            single.disconnect();
+
+            HttpURLConnection multi = connection.createGetConnection(path);
+            //the last two ranges overlap and are sent as one part
+            multi.setRequestProperty("Range", "bytes=0-99, 300000-300099, 300050-300199");
+            assertEquals(206, multi.getResponseCode());
+            String contentType = multi.getHeaderField("Content-Type");
+            assertTrue(contentType, contentType.startsWith("multipart/byteranges; boundary="));
+            String boundary = contentType.substring(contentType.indexOf('=') + 1);
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            expected.writeBytes(("--" + boundary + "\r\nContent-Type: image/png\r\nContent-Range: bytes 0-99/" + length + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            expected.write(content, 0, 100);
+            expected.writeBytes(("\r\n--" + boundary + "\r\nContent-Type: image/png\r\nContent-Range: bytes 300000-300199/" + length + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            expected.write(content, 300000, 200);
+            expected.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+            assertEquals(String.valueOf(expected.size()), multi.getHeaderField("Content-Length"));
+            try (InputStream in = multi.getInputStream()) {
+                assertArrayEquals(expected.toByteArray(), in.readAllBytes());
+            }
+            multi.disconnect();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    /*
+     *A cached static file is served again from disk once it changes
+     */
+    @Test
+    public void testStaticFileCacheInvalidation() throws Exception {
+        Path file = Paths.get(getClass().getClassLoader().getResource("static/styles").toURI()).resolve("cache-test.css");
+        try {
+            Files.writeString(file, "body { color: red; }");
+            HttpURLConnection before = urlConnection.createGetConnection("/static/styles/cache-test.css");
+            assertEquals("body { color: red; }", urlConnection.readResponse(before).trim());
+            before.disconnect();
+
+            Files.writeString(file, "body { color: blue; }");
+            String body = "";
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!body.equals("body { color: blue; }") && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+                HttpURLConnection after = urlConnection.createGetConnection("/static/styles/cache-test.css");
+                body = urlConnection.readResponse(after).trim();
+                after.disconnect();
+            }
+            assertEquals("Should serve the modified file", "body { color: blue; }", body);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
 
     /*
      *Testing if TaskController has the RequestMapping annotation and the correct path /task
@@ -126,7 +326,7 @@ public class HttpServerTests {
     @Test
     public void testGetTasks() throws Exception {
         String jsonPayload = "{\"name\":\"Get Test Task\",\"description\":\"For GET test\"}";
-        HttpURLConnection postConnection = urlConnection.createPostConnection("/task/saveTask", jsonPayload);
+        HttpURLConnection postConnection = urlConnection.createPostConnection("/task", jsonPayload);
         postConnection.getResponseCode(); // Ejecutar POST
         postConnection.disconnect();
 
@@ -142,6 +342,59 @@ public class HttpServerTests {
         assertEquals("Should return application/json",responseHeader,"application/json");
         getConnection.disconnect();
     }
+    /*
+     *With limit the tasks come one page at a time, following nextCursor until it is null
+     */
+    @Test
+    public void testTaskPagination() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            HttpURLConnection post = urlConnection.createPostConnection("/task", "{\"name\":\"Paged task " + i + "\",\"description\":\"page\"}");
+            assertEquals(200, post.getResponseCode());
+            post.disconnect();
+        }
+        HttpURLConnection first = urlConnection.createGetConnection("/task?name=paged%20task&limit=2");
+        assertEquals(200, first.getResponseCode());
+        assertEquals("application/json", first.getHeaderField("Content-Type"));
+        String page = urlConnection.readResponse(first);
+        first.disconnect();
+        Matcher names = Pattern.compile("Paged task (\\d)").matcher(page);
+        assertTrue(page, names.find());
+        assertEquals("0", names.group(1));
+        assertTrue(page, names.find());
+        assertEquals("1", names.group(1));
+        assertFalse(page, names.find());
+        Matcher cursor = Pattern.compile("\"nextCursor\":\"(\\d+)\"").matcher(page);
+        assertTrue(page, cursor.find());
+
+        HttpURLConnection last = urlConnection.createGetConnection("/task?name=paged%20task&limit=10&cursor=" + cursor.group(1));
+        assertEquals(200, last.getResponseCode());
+        page = urlConnection.readResponse(last);
+        last.disconnect();
+        assertTrue(page, page.startsWith("{\"items\":[{"));
+        assertTrue("The last page has no next cursor", page.endsWith("\"nextCursor\":null}"));
+        names = Pattern.compile("Paged task (\\d)").matcher(page);
+        StringBuilder found = new StringBuilder();
+        while (names.find()) found.append(names.group(1));
+        assertEquals("234", found.toString());
+
+        HttpURLConnection all = urlConnection.createGetConnection("/task?limit=1");
+        assertEquals(200, all.getResponseCode());
+        assertTrue(urlConnection.readResponse(all).contains("\"nextCursor\":\""));
+        all.disconnect();
+
+        HttpURLConnection invalid = urlConnection.createGetConnection("/task?limit=0");
+        assertEquals("Should return 400 Bad Request", 400, invalid.getResponseCode());
+        invalid.disconnect();
+        invalid = urlConnection.createGetConnection("/task?cursor=abc");
+        assertEquals("Should return 400 Bad Request", 400, invalid.getResponseCode());
+        invalid.disconnect();
+        invalid = urlConnection.createGetConnection("/task?limit=99999999999");
+        assertEquals("Should return 400 Bad Request", 400, invalid.getResponseCode());
+        invalid.disconnect();
+        invalid = urlConnection.createGetConnection("/task?cursor=-1");
+        assertEquals("Should return 400 Bad Request", 400, invalid.getResponseCode());
+        invalid.disconnect();
+    }
     /*
      *Get tasks by filter name successfully
      *
@@ -149,7 +402,7 @@ public class HttpServerTests {
     @Test
     public void testGetTasksByName() throws Exception {
         String jsonPayload = "{\"name\":\"Task GET\",\"description\":\"For GET test\"}";
-        HttpURLConnection postConnection = urlConnection.createPostConnection("/task/save", jsonPayload);
+        HttpURLConnection postConnection = urlConnection.createPostConnection("/task", jsonPayload);
         postConnection.getResponseCode();
         postConnection.disconnect();
 
@@ -163,6 +416,217 @@ public class HttpServerTests {
         assertEquals("Response should contain one task", 1, inner.length);
         getConnection.disconnect();
     }
+    /*
+     *Get a task by its id through the path variable /task/{id}
+     */
+    @Test
+    public void testGetTaskById() throws Exception {
+        String jsonPayload = "{\"name\":\"Path variable task\",\"description\":\"For GET by id test\"}";
+        HttpURLConnection postConnection = urlConnection.createPostConnection("/task", jsonPayload);
+        String created = urlConnection.readResponse(postConnection);
+        postConnection.disconnect();
+        Matcher matcher = Pattern.compile("\"id\"\\s*:\\s*(\\d+)").matcher(created);
+        assertTrue("Created task should have an id", matcher.find());
+
+        HttpURLConnection getConnection = urlConnection.createGetConnection("/task/" + matcher.group(1));
+        assertEquals("Should return 200 OK", 200, getConnection.getResponseCode());
+        assertTrue("Should return the created task", urlConnection.readResponse(getConnection).contains("Path variable task"));
+        assertEquals("Should return application/json", "application/json", getConnection.getHeaderField("Content-Type"));
+        getConnection.disconnect();
+    }
+    /*
+     *A list of a million tasks is streamed with chunked transfer encoding: the tests run with a
+     *192 MB heap, far less than the serialized list held as a String and then as bytes.
+     *The connection stays usable after the last chunk.
+     */
+    @Test
+    public void testStreamedMillionTasks() throws Exception {
+        try (Socket socket = urlConnection.openSocket()) {
+            socket.setSoTimeout(60000);
+            OutputStream out = socket.getOutputStream();
+            out.write("GET /stream/tasks?count=1000000 HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            TaskCounter counter = new TaskCounter();
+            String head = urlConnection.readChunkedResponse(new BufferedInputStream(socket.getInputStream()), counter);
+            assertTrue("Should be chunked", head.contains("Transfer-Encoding: chunked"));
+            assertTrue("Should be JSON", head.contains("Content-Type: application/json"));
+            assertEquals("Should contain every task", 1_000_000, counter.objects);
+            assertEquals("Should be a complete JSON array", ']', counter.last);
+
+            String response = urlConnection.sendRawRequest(socket, "GET /app/greeting?name=Stream HTTP/1.1\r\nHost: localhost");
+            assertTrue(response.endsWith("Hello Stream"));
+        }
+    }
+
+    /**
+     * Counts the JSON objects of a body without keeping it.
+     */
+    static class TaskCounter extends OutputStream {
+        int objects;
+        int last;
+        @Override
+        public void write(int b) {
+            if (b == '{') objects++;
+            last = b;
+        }
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) write(b[i]);
+        }
+    }
+    /*
+     *Streamed JSON is compressed with the coding the client prefers, a short body is sent as it is
+     */
+    @Test
+    public void testCompressedStreamedTasks() throws Exception {
+        try (Socket socket = urlConnection.openSocket()) {
+            socket.setSoTimeout(60000);
+            BufferedInputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET /stream/tasks?count=100000 HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Accept-Encoding: deflate;q=0.5, gzip\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+            String head = urlConnection.readChunkedResponse(in, gzip);
+            assertTrue("Should be gzip", head.contains("Content-Encoding: gzip"));
+            assertTrue("Should vary by encoding", head.contains("Vary: Accept-Encoding"));
+            TaskCounter counter = new TaskCounter();
+            new GZIPInputStream(new ByteArrayInputStream(gzip.toByteArray())).transferTo(counter);
+            assertEquals("Should contain every task", 100_000, counter.objects);
+            assertEquals("Should be a complete JSON array", ']', counter.last);
+
+            out.write(("GET /stream/tasks?count=5000 HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Accept-Encoding: gzip;q=0, deflate\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            ByteArrayOutputStream deflate = new ByteArrayOutputStream();
+            head = urlConnection.readChunkedResponse(in, deflate);
+            assertTrue("Should be deflate", head.contains("Content-Encoding: deflate"));
+            counter = new TaskCounter();
+            new InflaterInputStream(new ByteArrayInputStream(deflate.toByteArray())).transferTo(counter);
+            assertEquals("Should contain every task", 5000, counter.objects);
+
+            String response = urlConnection.sendRawRequest(socket, "GET /stream/tasks?count=1 HTTP/1.1\r\nHost: localhost\r\nAccept-Encoding: gzip");
+            assertFalse("Short bodies are not compressed", response.contains("Content-Encoding"));
+            assertTrue(response.endsWith("}]"));
+        }
+    }
+    /*
+     *Static text files are served from their compressed copy, with its own ETag
+     */
+    @Test
+    public void testPrecompressedStaticFile() throws Exception {
+        byte[] original = Files.readAllBytes(Paths.get(getClass().getClassLoader().getResource("static/styles/style.css").toURI()));
+        HttpURLConnection gzip = urlConnection.createGetConnection("/static/styles/style.css");
+        gzip.setRequestProperty("Accept-Encoding", "gzip, deflate, br");
+        assertEquals(200, gzip.getResponseCode());
+        assertEquals("gzip", gzip.getHeaderField("Content-Encoding"));
+        assertEquals("Accept-Encoding", gzip.getHeaderField("Vary"));
+        assertTrue("Should be smaller than the file", Integer.parseInt(gzip.getHeaderField("Content-Length")) < original.length);
+        String etag = gzip.getHeaderField("ETag");
+        try (InputStream in = new GZIPInputStream(gzip.getInputStream())) {
+            assertArrayEquals(original, in.readAllBytes());
+        }
+        gzip.disconnect();
+
+        HttpURLConnection revalidate = urlConnection.createGetConnection("/static/styles/style.css");
+        revalidate.setRequestProperty("Accept-Encoding", "gzip");
+        revalidate.setRequestProperty("If-None-Match", etag);
+        assertEquals("Should return 304 Not Modified", 304, revalidate.getResponseCode());
+        revalidate.disconnect();
+
+        HttpURLConnection identity = urlConnection.createGetConnection("/static/styles/style.css");
+        assertEquals(200, identity.getResponseCode());
+        assertNull("Should not be encoded", identity.getHeaderField("Content-Encoding"));
+        assertNotEquals("Each representation has its own ETag", etag, identity.getHeaderField("ETag"));
+        try (InputStream in = identity.getInputStream()) {
+            assertArrayEquals(original, in.readAllBytes());
+        }
+        identity.disconnect();
+    }
+    /*
+     *Unknown task ids are answered with 404
+     */
+    @Test
+    public void testGetTaskByIdNotFound() throws Exception {
+        HttpURLConnection getConnection = urlConnection.createGetConnection("/task/999999");
+        assertEquals("Should return 404 Not Found", 404, getConnection.getResponseCode());
+        getConnection.disconnect();
+    }
+    /*
+     *A description with commas, colons and quotes is saved as it was sent, a task without name is rejected
+     */
+    @Test
+    public void testPostTaskBody() throws Exception {
+        HttpURLConnection post = urlConnection.createPostConnection("/task", "{\"description\":\"eggs, milk: \\\"fresh\\\"\",\"name\":\"Shopping, weekly\"}");
+        assertEquals(200, post.getResponseCode());
+        assertEquals("application/json", post.getHeaderField("Content-Type"));
+        String created = urlConnection.readResponse(post);
+        post.disconnect();
+        assertTrue(created, created.contains("\"name\":\"Shopping, weekly\",\"description\":\"eggs, milk: \\\"fresh\\\"\""));
+
+        HttpURLConnection missing = urlConnection.createPostConnection("/task", "{\"description\":\"no name\"}");
+        assertEquals("Should return 400 Bad Request", 400, missing.getResponseCode());
+        missing.disconnect();
+        HttpURLConnection malformed = urlConnection.createPostConnection("/task", "{\"name\":\"a\",");
+        assertEquals("Should return 400 Bad Request", 400, malformed.getResponseCode());
+        malformed.disconnect();
+    }
+    /*
+     *PUT replaces a task and DELETE removes it, both through the path variable /task/{id}
+     */
+    @Test
+    public void testUpdateAndDeleteTask() throws Exception {
+        HttpURLConnection post = urlConnection.createPostConnection("/task", "{\"name\":\"Draft\",\"description\":\"first\"}");
+        Matcher matcher = Pattern.compile("\"id\":(\\d+)").matcher(urlConnection.readResponse(post));
+        post.disconnect();
+        assertTrue(matcher.find());
+        String id = matcher.group(1);
+
+        HttpURLConnection put = urlConnection.createConnection("/task/" + id, "PUT");
+        put.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream out = put.getOutputStream()) {
+            out.write("{\"name\":\"Final\",\"description\":\"second\"}".getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(200, put.getResponseCode());
+        put.disconnect();
+        HttpURLConnection get = urlConnection.createGetConnection("/task/" + id);
+        String task = urlConnection.readResponse(get);
+        get.disconnect();
+        assertTrue(task, task.contains("\"name\":\"Final\",\"description\":\"second\""));
+
+        HttpURLConnection delete = urlConnection.createConnection("/task/" + id, "DELETE");
+        assertEquals("Should return 204 No Content", 204, delete.getResponseCode());
+        delete.disconnect();
+        get = urlConnection.createGetConnection("/task/" + id);
+        assertEquals("Should return 404 Not Found", 404, get.getResponseCode());
+        get.disconnect();
+        delete = urlConnection.createConnection("/task/" + id, "DELETE");
+        assertEquals("Should return 404 Not Found", 404, delete.getResponseCode());
+        delete.disconnect();
+    }
+    /*
+     *A method no handler of the path serves returns 405 with the methods it does serve
+     */
+    @Test
+    public void testAllowedMethods() throws Exception {
+        HttpURLConnection connection = urlConnection.createConnection("/task/1", "POST");
+        assertEquals("Should return 405 Method Not Allowed", 405, connection.getResponseCode());
+        assertEquals("DELETE, GET, PUT", connection.getHeaderField("Allow"));
+        connection.disconnect();
+    }
+    /*
+     *A path outside every controller returns 404, a missing service inside a controller returns 405
+     */
+    @Test
+    public void testRouteNotFound() throws Exception {
+        HttpURLConnection unknownBase = urlConnection.createGetConnection("/unknown/service");
+        assertEquals("Should return 404 Not Found", 404, unknownBase.getResponseCode());
+        unknownBase.disconnect();
+
+        HttpURLConnection unknownService = urlConnection.createGetConnection("/app/unknown");
+        assertEquals("Should return 405 Method Not Allowed", 405, unknownService.getResponseCode());
+        unknownService.disconnect();
+    }
 
 
     /*
@@ -178,6 +642,231 @@ public class HttpServerTests {
         connection.disconnect();
     }
 
+    /*
+     *Several requests through the same socket, the last one asks the server to close the connection
+     */
+    @Test
+    public void testPersistentConnection() throws Exception {
+        try (Socket socket = urlConnection.openSocket()) {
+            String first = urlConnection.sendRawRequest(socket, "GET /app/greeting?name=First HTTP/1.1\r\nHost: localhost");
+            assertTrue(first.contains("Connection: keep-alive"));
+            assertTrue(first.endsWith("Hello First"));
+            String second = urlConnection.sendRawRequest(socket, "GET /app/greeting?name=Second HTTP/1.1\r\nHost: localhost\r\nConnection: close");
+            assertTrue(second.contains("Connection: close"));
+            assertTrue(second.endsWith("Hello Second"));
+            assertEquals("Server should close the connection", -1, socket.getInputStream().read());
+        }
+    }
 
-
+    /*
+     *Head completed by the server: Date of the current second, Content-Length and connection headers
+     */
+    @Test
+    public void testResponseHead() throws Exception {
+        try (Socket socket = urlConnection.openSocket()) {
+            String response = urlConnection.sendRawRequest(socket, "GET /app/greeting?name=Head HTTP/1.1\r\nHost: localhost");
+            assertTrue(response, response.startsWith("HTTP/1.1 200 OK\r\nDate: "));
+            assertTrue(response, Pattern.compile("\r\nDate: \\w{3}, \\d{2} \\w{3} \\d{4} \\d{2}:\\d{2}:\\d{2} GMT\r\n").matcher(response).find());
+            assertTrue(response, response.contains("\r\nContent-Length: 10\r\n"));
+            assertTrue(response, response.contains("\r\nConnection: keep-alive\r\nKeep-Alive: timeout=5, max=99\r\n\r\nHello Head"));
+        }
+    }
+    /*
+     *A body that does not fit in the connection buffer leaves with the head in a single write
+     */
+    @Test
+    public void testResponseWriterGathersHeadAndBody() throws Exception {
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        int[] writes = {0};
+        GatheringByteChannel channel = new GatheringByteChannel() {
+            @Override
+            public long write(ByteBuffer[] srcs, int offset, int length) {
+                writes[0]++;
+                long n = 0;
+                for (int i = offset; i < offset + length; i++) n += write0(srcs[i]);
+                return n;
+            }
+            @Override
+            public long write(ByteBuffer[] srcs) {
+                return write(srcs, 0, srcs.length);
+            }
+            @Override
+            public int write(ByteBuffer src) {
+                writes[0]++;
+                return write0(src);
+            }
+            private int write0(ByteBuffer src) {
+                int n = src.remaining();
+                byte[] bytes = new byte[n];
+                src.get(bytes);
+                sent.writeBytes(bytes);
+                return n;
+            }
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+            @Override
+            public void close() {}
+        };
+        byte[] body = new byte[20_000];
+        Arrays.fill(body, (byte) 'x');
+        try (ResponseWriter writer = new ResponseWriter(channel)) {
+            writer.write(new HttpResponse(200, body), 0);
+        }
+        assertEquals("Head and body should leave in one write", 1, writes[0]);
+        String response = sent.toString(StandardCharsets.ISO_8859_1);
+        assertTrue(response.startsWith("HTTP/1.1 200 OK\r\n"));
+        assertTrue(response.contains("\r\nContent-Type: application/octet-stream\r\nContent-Length: 20000\r\nConnection: close\r\n\r\n"));
+        assertTrue(response.endsWith("\r\n\r\n" + new String(body, StandardCharsets.ISO_8859_1)));
+    }
+    /*
+     *Body with multi-byte characters, Content-Length counts bytes and the connection stays in sync
+     */
+    @Test
+    public void testMultiByteBody() throws Exception {
+        try (Socket socket = urlConnection.openSocket()) {
+            String response = urlConnection.sendRawRequest(socket, "POST /task HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json",
+                    "{\"name\":\"Tarea año\",\"description\":\"Revisión rápida ✓\"}");
+            assertTrue(response.startsWith("HTTP/1.1 200"));
+            assertTrue(response.contains("\"description\":\"Revisión rápida ✓\""));
+            String next = urlConnection.sendRawRequest(socket, "GET /app/greeting?name=After HTTP/1.1\r\nHost: localhost");
+            assertTrue(next.endsWith("Hello After"));
+        }
+    }
+    /*
+     *Request that arrives in several pieces
+     */
+    @Test
+    public void testRequestSplitAcrossReads() throws Exception {
+        try (Socket socket = urlConnection.openSocket()) {
+            OutputStream out = socket.getOutputStream();
+            for (String part : new String[]{"GET /app/gree", "ting?name=Split HTTP/1.1\r\nHo", "st: localhost\r\n", "\r\n"}) {
+                out.write(part.getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                Thread.sleep(20);
+            }
+            assertTrue(urlConnection.readRawResponse(socket).endsWith("Hello Split"));
+        }
+    }
+    /*
+     *Body larger than the initial body array, arriving in several pieces
+     */
+    @Test
+    public void testLargeBodySplitAcrossReads() throws Exception {
+        String description = "x".repeat(40_000);
+        byte[] body = ("{\"name\":\"Large body\",\"description\":\"" + description + "\"}").getBytes(StandardCharsets.UTF_8);
+        try (Socket socket = urlConnection.openSocket()) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /task HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\nContent-Length: " + body.length
+                    + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            for (int from = 0; from < body.length; from += 15_000) {
+                out.write(body, from, Math.min(15_000, body.length - from));
+                out.flush();
+                Thread.sleep(20);
+            }
+            String response = urlConnection.readRawResponse(socket);
+            assertTrue(response.startsWith("HTTP/1.1 200"));
+            assertTrue(response.contains("\"description\":\"" + description + "\""));
+        }
+    }
+    /*
+     *Malformed request line, should return 400 Bad Request
+     */
+    @Test
+    public void testMalformedRequest() throws Exception {
+        try (Socket socket = urlConnection.openSocket()) {
+            String response = urlConnection.sendRawRequest(socket, "NONSENSE\r\nHost: localhost");
+            assertTrue(response.startsWith("HTTP/1.1 400"));
+        }
+    }
+    /*
+     *A chunked body or different Content-Length values are refused and the connection is closed,
+     *the body is never read as the next request
+     */
+    @Test
+    public void testUnsupportedBodyFraming() throws Exception {
+        String[] requests = {
+                "POST /task HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n"
+                        + "3c\r\nGET /app/greeting?name=Smuggled HTTP/1.1\r\nHost: localhost\r\n\r\n\r\n0\r\n\r\n",
+                "POST /task HTTP/1.1\r\nHost: localhost\r\nContent-Length: 2\r\nContent-Length: 5\r\n\r\n{}"
+        };
+        String[] statuses = {"HTTP/1.1 501", "HTTP/1.1 400"};
+        for (int i = 0; i < requests.length; i++) {
+            try (Socket socket = urlConnection.openSocket()) {
+                socket.getOutputStream().write(requests[i].getBytes(StandardCharsets.US_ASCII));
+                String response = urlConnection.readRawResponse(socket);
+                assertTrue(response, response.startsWith(statuses[i]));
+                assertTrue(response.contains("Connection: close"));
+                assertEquals("Should be closed", -1, socket.getInputStream().read());
+            }
+        }
+        //the same value twice frames the body like a single header
+        try (Socket socket = urlConnection.openSocket()) {
+            String response = urlConnection.sendRawRequest(socket, "GET /app/greeting?name=Twice HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Content-Length: 0\r\nContent-Length: 0");
+            assertTrue(response.endsWith("Hello Twice"));
+        }
+    }
+    /*
+     *Buffers are handed out by size class and reused once released, larger ones are not pooled
+     */
+    @Test
+    public void testBufferPoolReusesBuffers() {
+        //no connection borrows 64 KB buffers, so the released one is the next one handed out
+        ByteBuffer first = BufferPool.HEAP.acquire(40_000);
+        assertEquals(64 * 1024, first.capacity());
+        byte[] array = first.array();
+        BufferPool.HEAP.release(first);
+        ByteBuffer second = BufferPool.HEAP.acquire(50_000);
+        assertSame("Released buffer should be reused", array, second.array());
+        assertEquals(0, second.position());
+        BufferPool.HEAP.release(second);
+        ByteBuffer direct = BufferPool.DIRECT.acquire(100);
+        assertTrue(direct.isDirect());
+        assertEquals(4096, direct.capacity());
+        BufferPool.DIRECT.release(direct);
+        ByteBuffer large = BufferPool.HEAP.acquire(100_000);
+        assertEquals(100_000, large.capacity());
+        BufferPool.HEAP.release(large);
+    }
+    /*
+     *With leak detection on, buffers released twice or garbage collected without being released are reported
+     */
+    @Test
+    public void testBufferPoolDetectsLeaks() throws Exception {
+        Assume.assumeTrue(BufferPool.isLeakDetectionEnabled());
+        ByteBuffer buffer = BufferPool.HEAP.acquire(1000);
+        BufferPool.HEAP.release(buffer);
+        assertThrows(IllegalStateException.class, () -> BufferPool.HEAP.release(buffer));
+        assertThrows(IllegalStateException.class, () -> BufferPool.HEAP.release(ByteBuffer.allocate(4096)));
+        long leaks = leaksAfterGc(BufferPool.HEAP);
+        BufferPool.HEAP.acquire(1000);
+        assertEquals("Dropped buffer should be reported", leaks + 1, leaksAfterGc(BufferPool.HEAP));
+    }
+    /*
+     *Connections and responses, streamed or failed, give every buffer they borrow back to the pools
+     */
+    @Test
+    public void testServerReleasesBuffers() throws Exception {
+        Assume.assumeTrue(BufferPool.isLeakDetectionEnabled());
+        long heapLeaks = leaksAfterGc(BufferPool.HEAP);
+        long directLeaks = leaksAfterGc(BufferPool.DIRECT);
+        for (String request : new String[]{"GET /stream/tasks?count=2000 HTTP/1.1", "GET /app/greeting?name=Pool HTTP/1.1", "NONSENSE"}) {
+            try (Socket socket = urlConnection.openSocket()) {
+                socket.getOutputStream().write((request + "\r\nHost: localhost\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                assertTrue(socket.getInputStream().readAllBytes().length > 0);
+            }
+        }
+        assertEquals(heapLeaks, leaksAfterGc(BufferPool.HEAP));
+        assertEquals(directLeaks, leaksAfterGc(BufferPool.DIRECT));
+    }
+    private static long leaksAfterGc(BufferPool pool) throws InterruptedException {
+        for (int i = 0; i < 20; i++) {
+            System.gc();
+            //collected buffers are queued by the reference handler thread
+            Thread.sleep(25);
+        }
+        return pool.leakCount();
+    }
 }
@@ -0,0 +1,110 @@
+package edu.eci.arep.microspringboot;
+
+import edu.eci.arep.microspringboot.classes.Task;
+import edu.eci.arep.microspringboot.helpers.JsonReader;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static edu.eci.arep.microspringboot.helpers.JsonConverter.fromJson;
+import static edu.eci.arep.microspringboot.helpers.JsonConverter.parserFor;
+import static edu.eci.arep.microspringboot.helpers.JsonConverter.toJson;
+import static org.junit.Assert.*;
+
+public class JsonConverterTests {
+    /*
+     *Objects are serialized field by field, in declaration order
+     */
+    @Test
+    public void testObject() {
+        assertEquals("{\"id\":7,\"name\":\"Task\",\"description\":\"Desc\"}", toJson(new Task("Task", "Desc", 7)));
+    }
+    /*
+     *Null values, booleans and null fields are valid JSON
+     */
+    @Test
+    public void testNullAndBooleans() {
+        assertEquals("null", toJson(null));
+        assertEquals("true", toJson(true));
+        assertEquals("{\"id\":1,\"name\":null,\"description\":\"d\"}", toJson(new Task(null, "d", 1)));
+    }
+    /*
+     *Maps, arrays, sets and nested collections are supported
+     */
+    @Test
+    public void testCollections() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("ids", new int[]{1, 2});
+        map.put("names", new String[]{"a", null});
+        map.put("nested", List.of(List.of(1.5), new TreeSet<>(Set.of(false))));
+        map.put("empty", Map.of());
+        assertEquals("{\"ids\":[1,2],\"names\":[\"a\",null],\"nested\":[[1.5],[false]],\"empty\":{}}", toJson(map));
+    }
+    /*
+     *Quotes, control characters and non ASCII text are escaped and encoded correctly
+     */
+    @Test
+    public void testStringEscaping() {
+        assertEquals("\"a\\\"b\\\\c\\n\\u0001ñ€😀\"", toJson("a\"b\\c\n\u0001ñ€😀"));
+    }
+    /*
+     *A body is read straight into a class, whatever the order of the members; commas, braces and
+     *escapes inside strings are part of the value and unknown members are ignored
+     */
+    @Test
+    public void testReadObject() {
+        Task task = fromJson("{ \"description\" : \"milk, eggs: {2}\\n\\\"fresh\\\" \\u00f1\", \"extra\": [1, {\"a\": null}], \"name\":\"Shop\", \"id\": 4 }", Task.class);
+        assertEquals("Shop", task.getName());
+        assertEquals("milk, eggs: {2}\n\"fresh\" ñ", task.getDescription());
+        assertEquals(4, task.getId());
+        assertEquals(toJson(task), toJson(fromJson(toJson(task), Task.class)));
+    }
+    record Item(String name, int quantity, double price, boolean available, List<String> tags) {}
+    /*
+     *Records, generic collections, maps and numbers are read with their declared types
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReadTypes() throws Exception {
+        Item item = fromJson("{\"name\":\"pen\",\"quantity\":3,\"price\":1.5e1,\"tags\":[\"a\",\"b\"]}", Item.class);
+        assertEquals(new Item("pen", 3, 15.0, false, List.of("a", "b")), item);
+        List<Item> items = (List<Item>) parserFor(Items.class.getDeclaredField("items").getGenericType())
+                .apply("[{\"name\":\"a\"},null]".getBytes(StandardCharsets.UTF_8));
+        assertEquals(Arrays.asList(new Item("a", 0, 0, false, null), null), items);
+        Map<String, Object> map = fromJson("{\"n\":-9223372036854775808,\"d\":0.25,\"l\":[true,null]}", Map.class);
+        assertEquals(Long.MIN_VALUE, map.get("n"));
+        assertEquals(0.25, map.get("d"));
+        assertEquals(Arrays.asList(true, null), map.get("l"));
+        assertArrayEquals(new int[]{1, -2}, fromJson("[1,-2]", int[].class));
+    }
+    static class Items {
+        List<Item> items;
+    }
+    /*
+     *Malformed JSON, values of the wrong type and text after the value are rejected
+     */
+    @Test
+    public void testReadInvalid() {
+        for (String json : new String[]{"{\"name\":\"a\"", "{\"name\" \"a\"}", "{\"id\":1.5}", "{\"id\":99999999999}",
+                "{\"name\":\"a\"} x", "{\"name\":\"\\q\"}", "{\"id\":tru}", "", "[".repeat(1000)}) {
+            assertThrows(json, IllegalArgumentException.class, () -> fromJson(json, Task.class));
+        }
+        assertThrows(IllegalArgumentException.class, () -> new JsonReader("[01x]".getBytes(StandardCharsets.UTF_8)).readValue());
+    }
+    /*
+     *An object must be closed with '}' and an array with ']', whatever reads them
+     */
+    @Test
+    public void testReadMismatchedClosers() {
+        for (String json : new String[]{"[1,2}", "{\"a\":1]", "{\"a\":[1}}", "[{\"a\":1]]", "[[]}"}) {
+            assertThrows(json, IllegalArgumentException.class, () -> new JsonReader(json.getBytes(StandardCharsets.UTF_8)).readValue());
+        }
+        for (String json : new String[]{"{\"name\":\"a\",\"id\":1]", "{\"name\":\"a\",\"extra\":[1}}"}) {
+            assertThrows(json, IllegalArgumentException.class, () -> fromJson(json, Task.class));
+        }
+        for (String json : new String[]{"{\"items\":[{\"name\":\"a\"}}}", "{\"items\":[{\"name\":\"a\"]]}"}) {
+            assertThrows(json, IllegalArgumentException.class, () -> fromJson(json, Items.class));
+        }
+    }
+}
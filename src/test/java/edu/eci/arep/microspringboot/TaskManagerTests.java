@@ -0,0 +1,278 @@
+package edu.eci.arep.microspringboot;
+
+import edu.eci.arep.microspringboot.classes.Page;
+import edu.eci.arep.microspringboot.classes.Task;
+import edu.eci.arep.microspringboot.classes.TaskManager;
+import edu.eci.arep.microspringboot.classes.TaskStorage;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class TaskManagerTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<Integer> ids(List<Task> tasks) {
+        return tasks.stream().map(Task::getId).toList();
+    }
+    /*
+     *Name search ignores case and returns the matches ordered by id
+     */
+    @Test
+    public void testSearchByName() {
+        TaskManager manager = new TaskManager();
+        manager.addTask("Write REPORT", "d");
+        manager.addTask("Review code", "d");
+        manager.addTask("report bug", "d");
+        manager.addTask("Deploy", "d");
+        assertEquals(List.of(1, 3), ids(manager.getTasksByName("Report")));
+        assertEquals(List.of(2), ids(manager.getTasksByName("view co")));
+        assertEquals(List.of(), ids(manager.getTasksByName("reports")));
+        assertEquals(List.of(), ids(manager.getTasksByName("xyz")));
+    }
+    /*
+     *Queries shorter than a trigram still find every match
+     */
+    @Test
+    public void testShortQueries() {
+        TaskManager manager = new TaskManager();
+        manager.addTask("Write report", "d");
+        manager.addTask("Deploy", "d");
+        manager.addTask("Review", "d");
+        assertEquals(List.of(1, 2, 3), ids(manager.getTasksByName("")));
+        assertEquals(List.of(1, 3), ids(manager.getTasksByName("r")));
+        assertEquals(List.of(2), ids(manager.getTasksByName("LO")));
+    }
+    /*
+     *The index returns the same tasks as a scan of every name
+     */
+    @Test
+    public void testSearchMatchesScan() {
+        TaskManager manager = new TaskManager();
+        String[] words = {"alpha", "Beta", "gamma", "DELTA", "aaaa", "ñandú"};
+        for (int i = 0; i < 2000; i++) {
+            manager.addTask(words[i % words.length] + " " + words[(i / 7) % words.length] + " " + i, "d");
+        }
+        for (String query : new String[]{"ta g", "aaa", "A 1", "ÑAN", "99", "delta delta", "mma", "a"}) {
+            String lower = query.toLowerCase();
+            List<Integer> expected = ids(manager.getTasks().stream().filter(t -> t.getName().toLowerCase().contains(lower)).toList());
+            assertEquals(query, expected, ids(manager.getTasksByName(query)));
+        }
+    }
+    /*
+     *Renamed and deleted tasks are no longer found, also after the index is rebuilt
+     */
+    @Test
+    public void testSearchAfterUpdatesAndDeletes() {
+        TaskManager manager = new TaskManager();
+        for (int i = 0; i < 100; i++) manager.addTask("draft " + i, "d");
+        //enough changes to rebuild the index several times
+        for (int round = 0; round < 50; round++) {
+            for (int id = 1; id <= 100; id++) manager.updateTask(id, (round % 2 == 0 ? "final " : "draft ") + id, "d");
+        }
+        for (int id = 1; id <= 100; id += 2) manager.deleteTask(id);
+        assertEquals(List.of(), ids(manager.getTasksByName("final")));
+        List<Task> drafts = manager.getTasksByName("draft");
+        assertEquals(50, drafts.size());
+        assertTrue(drafts.stream().allMatch(task -> task.getId() % 2 == 0));
+        assertEquals(List.of(42), ids(manager.getTasksByName("draft 42")));
+        assertEquals(List.of(), ids(manager.getTasksByName("draft 43")));
+    }
+    /*
+     *Pages follow the id order and the last one has no next cursor
+     */
+    @Test
+    public void testPages() {
+        TaskManager manager = new TaskManager();
+        for (int i = 1; i <= 5; i++) {
+            manager.addTask(i % 2 == 0 ? "even " + i : "odd " + i, "d");
+        }
+        Page<Task> first = Page.of(manager.getTasksAfter(0), 2, task -> String.valueOf(task.getId()));
+        assertEquals(List.of(1, 2), ids(first.getItems()));
+        assertEquals("2", first.getNextCursor());
+        Page<Task> last = Page.of(manager.getTasksAfter(4), 2, task -> String.valueOf(task.getId()));
+        assertEquals(List.of(5), ids(last.getItems()));
+        assertNull(last.getNextCursor());
+        assertEquals(List.of(3, 5), ids(manager.getTasksByName("odd", 1)));
+        assertEquals(List.of(), ids(manager.getTasksByName("even", 4)));
+    }
+    /*
+     *Tasks saved with a task log are loaded back, with their ids, after a restart
+     */
+    @Test
+    public void testTasksSurviveRestart() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        TaskManager first = new TaskManager();
+        first.open(dir);
+        first.addTask("Write report", "monday");
+        first.addTask("Deploy", null);
+        first.close();
+        TaskManager second = new TaskManager();
+        second.open(dir);
+        assertEquals(List.of(1, 2), ids(second.getTasks()));
+        assertEquals("monday", second.getTask(1).getDescription());
+        assertNull(second.getTask(2).getDescription());
+        assertEquals(List.of(1), ids(second.getTasksByName("report")));
+        assertEquals(3, second.addTask("Review", "d").getId());
+        second.close();
+    }
+    /*
+     *Updates and deletions are written to the task log and replayed after a restart; the
+     *name search follows the new names and never returns a deleted task
+     */
+    @Test
+    public void testUpdateAndDeleteSurviveRestart() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        TaskManager first = new TaskManager();
+        first.open(dir);
+        first.addTask("Write report", "monday");
+        first.addTask("Deploy", "friday");
+        assertEquals("Write summary", first.updateTask(1, "Write summary", "tuesday").getName());
+        assertTrue(first.deleteTask(2));
+        assertFalse(first.deleteTask(2));
+        assertNull(first.updateTask(2, "Deploy", "again"));
+        assertEquals(List.of(), ids(first.getTasksByName("report")));
+        assertEquals(List.of(1), ids(first.getTasksByName("summary")));
+        first.close();
+        for (TaskStorage storage : TaskStorage.values()) {
+            TaskManager second = new TaskManager(storage);
+            second.open(dir);
+            assertEquals(List.of(1), ids(second.getTasks()));
+            assertEquals("tuesday", second.getTask(1).getDescription());
+            assertEquals(List.of(), ids(second.getTasksByName("deploy")));
+            second.close();
+        }
+    }
+    /*
+     *A process stopped without closing the log keeps the tasks of the snapshot and of the log
+     *written after it, and a frame cut while it was written is dropped
+     */
+    @Test
+    public void testReplayAfterCrash() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        TaskManager first = new TaskManager();
+        first.open(dir);
+        first.addTask("one", "d");
+        first.close();
+        TaskManager crashed = new TaskManager();
+        crashed.open(dir, false);
+        crashed.addTask("two", "d");
+        crashed.addTask("three", "d");
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path log : (Iterable<Path>) files.filter(f -> f.toString().endsWith(".log"))::iterator) {
+                Files.write(log, new byte[]{0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+            }
+        }
+        TaskManager restarted = new TaskManager();
+        restarted.open(dir);
+        assertEquals(List.of(1, 2, 3), ids(restarted.getTasks()));
+        assertEquals(4, restarted.addTask("four", "d").getId());
+        restarted.close();
+        TaskManager last = new TaskManager();
+        last.open(dir);
+        assertEquals(List.of(1, 2, 3, 4), ids(last.getTasks()));
+        last.close();
+    }
+    /*
+     *A corrupt frame length is treated as a torn tail, without reading that many bytes
+     */
+    @Test
+    public void testReplayIgnoresCorruptLength() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        TaskManager crashed = new TaskManager();
+        crashed.open(dir, false);
+        crashed.addTask("one", "d");
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path log : (Iterable<Path>) files.filter(f -> f.toString().endsWith(".log"))::iterator) {
+                //a length of almost 2 GB, larger than the heap of the tests
+                Files.write(log, new byte[]{0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xf0, 0, 0, 0, 0, 1, 2, 3}, StandardOpenOption.APPEND);
+            }
+        }
+        TaskManager restarted = new TaskManager();
+        restarted.open(dir);
+        assertEquals(List.of(1), ids(restarted.getTasks()));
+        assertEquals(2, restarted.addTask("two", "d").getId());
+        restarted.close();
+    }
+    /*
+     *Tasks saved concurrently with group commit are all on disk
+     */
+    @Test
+    public void testConcurrentGroupCommit() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        TaskManager manager = new TaskManager();
+        manager.open(dir);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 200; i++) manager.addTask("task " + i, "d");
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) thread.join();
+        //the first manager is never closed, as in a crash: the tasks are read from the log, not from a snapshot
+        TaskManager restarted = new TaskManager();
+        restarted.open(dir);
+        assertEquals(1600, restarted.getTasks().size());
+        assertEquals(1600, restarted.getTasks().get(1599).getId());
+        assertEquals(8, restarted.getTasksByName("task 17").stream().filter(task -> task.getName().equals("task 17")).count());
+        restarted.close();
+    }
+    /*
+     *Tasks stored off the heap are read, paged and searched like the tasks on the heap
+     */
+    @Test
+    public void testOffHeapStorage() {
+        TaskManager heap = new TaskManager(TaskStorage.HEAP);
+        TaskManager offHeap = new TaskManager(TaskStorage.OFF_HEAP);
+        String[] words = {"alpha", "Beta", "gamma", "DELTA", "ñandú", ""};
+        for (int i = 0; i < 3000; i++) {
+            String name = i % 500 == 7 ? null : words[i % words.length] + " " + words[(i / 7) % words.length] + " " + i;
+            String description = i % 3 == 0 ? null : "description " + i;
+            heap.addTask(name, description);
+            offHeap.addTask(name, description);
+        }
+        for (Task expected : heap.getTasks()) {
+            Task actual = offHeap.getTask(expected.getId());
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getDescription(), actual.getDescription());
+        }
+        assertNull(offHeap.getTask(0));
+        assertNull(offHeap.getTask(3001));
+        assertEquals(ids(heap.getTasks()), ids(offHeap.getTasks()));
+        assertEquals(2990, offHeap.getTasksAfter(10).size());
+        for (String query : new String[]{"ta g", "ÑAN", "99", "a", "", "missing"}) {
+            assertEquals(query, ids(heap.getTasksByName(query)), ids(offHeap.getTasksByName(query)));
+        }
+        assertEquals(ids(heap.getTasksByName("beta", 1500)), ids(offHeap.getTasksByName("beta", 1500)));
+    }
+    /*
+     *Tasks stored off the heap are also kept by the task log
+     */
+    @Test
+    public void testOffHeapStorageRestart() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        TaskManager first = new TaskManager(TaskStorage.OFF_HEAP);
+        first.open(dir);
+        first.addTask("Write report", "monday");
+        first.addTask("Deploy", null);
+        first.close();
+        TaskManager second = new TaskManager(TaskStorage.OFF_HEAP);
+        second.open(dir);
+        assertEquals(List.of(1, 2), ids(second.getTasks()));
+        assertEquals("monday", second.getTask(1).getDescription());
+        assertEquals(List.of(2), ids(second.getTasksByName("PLO")));
+        second.close();
+    }
+}
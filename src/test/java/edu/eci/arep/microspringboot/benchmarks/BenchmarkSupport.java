@@ -0,0 +1,116 @@
+package edu.eci.arep.microspringboot.benchmarks;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Arrays;
+
+/**
+ * Helpers shared by the benchmarks that start a real server.
+ */
+final class BenchmarkSupport {
+    private BenchmarkSupport() {}
+
+    static void waitForServer(int port) throws Exception {
+        long startTime = System.currentTimeMillis();
+        while (System.currentTimeMillis() - startTime < 10000) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress("localhost", port), 1000);
+                return;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        throw new IllegalStateException("Server failed to start on port " + port);
+    }
+
+    /**
+     * Opens {@code connections} sockets at once, sends the request through each of them
+     * and reads every response until the server closes the connection.
+     * @return the number of response bytes received
+     */
+    static int burst(int port, int connections, byte[] request) throws IOException {
+        byte[][] requests = new byte[connections][];
+        Arrays.fill(requests, request);
+        return burst(port, requests);
+    }
+
+    /**
+     * Like {@link #burst(int, int, byte[])}, with a request of its own for each connection.
+     */
+    static int burst(int port, byte[][] requests) throws IOException {
+        Socket[] sockets = new Socket[requests.length];
+        try {
+            for (int i = 0; i < requests.length; i++) {
+                sockets[i] = new Socket();
+                sockets[i].connect(new InetSocketAddress("localhost", port));
+                sockets[i].setSoTimeout(60000);
+                sockets[i].getOutputStream().write(requests[i]);
+            }
+            int bytes = 0;
+            for (Socket socket : sockets) {
+                bytes += drain(socket.getInputStream());
+            }
+            return bytes;
+        } finally {
+            for (Socket socket : sockets) {
+                if (socket != null) socket.close();
+            }
+        }
+    }
+
+    /**
+     * Reads one response from a persistent connection, delimited by its Content-Length or by
+     * the last chunk, without decoding the body.
+     * @param in buffered stream of the socket
+     * @return the number of bytes the response took on the wire, head included
+     */
+    static int readResponse(InputStream in) throws IOException {
+        int[] total = {0};
+        long contentLength = 0;
+        boolean chunked = false;
+        String line;
+        while (!(line = readLine(in, total)).isEmpty()) {
+            String lower = line.toLowerCase();
+            if (lower.startsWith("content-length:")) contentLength = Long.parseLong(line.substring(15).trim());
+            if (lower.startsWith("transfer-encoding:") && lower.contains("chunked")) chunked = true;
+        }
+        if (!chunked) {
+            total[0] += skip(in, contentLength);
+            return total[0];
+        }
+        long size;
+        while ((size = Long.parseLong(readLine(in, total).trim(), 16)) > 0) {
+            total[0] += skip(in, size);
+            readLine(in, total);
+        }
+        readLine(in, total);
+        return total[0];
+    }
+
+    private static String readLine(InputStream in, int[] total) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b == -1) throw new EOFException("Connection closed by server");
+            if (b != '\r') line.append((char) b);
+            total[0]++;
+        }
+        total[0]++;
+        return line.toString();
+    }
+
+    private static int skip(InputStream in, long count) throws IOException {
+        in.skipNBytes(count);
+        return (int) count;
+    }
+
+    private static int drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[1024];
+        int total = 0, n;
+        while ((n = in.read(buffer)) != -1) total += n;
+        return total;
+    }
+}
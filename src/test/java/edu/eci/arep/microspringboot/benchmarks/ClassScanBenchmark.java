@@ -0,0 +1,121 @@
+package edu.eci.arep.microspringboot.benchmarks;
+
+import edu.eci.arep.microspringboot.annotations.RestController;
+import edu.eci.arep.microspringboot.helpers.ClassesConverter;
+import org.openjdk.jmh.annotations.*;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Controller discovery without index on a synthetic classpath of thousands of classes spread
+ * over packages, one in a hundred annotated {@code @RestController}, as a directory and as a jar.
+ * {@code loadEveryClass} is the previous sequential scan that loads every class and checks its
+ * annotations; {@code readClassFiles} checks the class file bytes in parallel and only loads
+ * the controllers. Each shot uses a new class loader, as a server starting.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class ClassScanBenchmark {
+    private static final String PACKAGE = "synthetic";
+    private static final int PACKAGES = 40;
+
+    @Param({"5000"})
+    public int classes;
+
+    @Param({"directory", "jar"})
+    public String layout;
+
+    private Path root;
+    private URL classpath;
+    private ClassLoader previous;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        root = Files.createTempDirectory("class-scan-bench");
+        Path sources = Files.createDirectories(root.resolve("src"));
+        Path output = Files.createDirectories(root.resolve("classes"));
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < classes; i++) {
+            String pkg = PACKAGE + ".p" + (i % PACKAGES);
+            Path file = sources.resolve(pkg.replace('.', '/')).resolve("C" + i + ".java");
+            Files.createDirectories(file.getParent());
+            String annotation = i % 100 == 0 ? "@edu.eci.arep.microspringboot.annotations.RestController\n" : "@Deprecated\n";
+            Files.writeString(file, "package " + pkg + ";\n" + annotation + "public class C" + i + " {\n"
+                    + "    private String name = \"c" + i + "\";\n"
+                    + "    public String getName() { return name + " + i + "; }\n"
+                    + "    public int size(int x) { return x * " + i + "; }\n}\n");
+            files.add(file.toString());
+        }
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        List<String> args = new ArrayList<>(List.of("-proc:none", "-d", output.toString(), "-cp", System.getProperty("java.class.path")));
+        args.addAll(files);
+        if (javac.run(null, null, null, args.toArray(new String[0])) != 0) throw new IllegalStateException("Could not compile");
+        if (layout.equals("directory")) {
+            classpath = output.toUri().toURL();
+            return;
+        }
+        Path jar = root.resolve("synthetic.jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar));
+             Stream<Path> compiled = Files.walk(output)) {
+            for (Path file : (Iterable<Path>) compiled::iterator) {
+                String name = output.relativize(file).toString().replace('\\', '/');
+                if (name.isEmpty()) continue;
+                out.putNextEntry(new JarEntry(Files.isDirectory(file) ? name + "/" : name));
+                if (!Files.isDirectory(file)) out.write(Files.readAllBytes(file));
+                out.closeEntry();
+            }
+        }
+        classpath = jar.toUri().toURL();
+    }
+
+    @Setup(Level.Iteration)
+    public void newClassLoader() {
+        previous = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(new URLClassLoader(new URL[]{classpath}, getClass().getClassLoader()));
+    }
+
+    @TearDown(Level.Iteration)
+    public void restoreClassLoader() throws IOException {
+        ((URLClassLoader) Thread.currentThread().getContextClassLoader()).close();
+        Thread.currentThread().setContextClassLoader(previous);
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public Set<Class<?>> loadEveryClass() throws Exception {
+        return ClassesConverter.findClasses(PACKAGE).stream()
+                .filter(c -> c.isAnnotationPresent(RestController.class)).collect(Collectors.toSet());
+    }
+
+    @Benchmark
+    public Set<Class<?>> readClassFiles() throws Exception {
+        return ClassesConverter.findAnnotatedClasses(PACKAGE, RestController.class);
+    }
+}
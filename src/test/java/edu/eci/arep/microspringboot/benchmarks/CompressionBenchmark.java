@@ -0,0 +1,89 @@
+package edu.eci.arep.microspringboot.benchmarks;
+
+import edu.eci.arep.microspringboot.classes.TaskManager;
+import edu.eci.arep.microspringboot.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a {@code GET /task} with each content coding, over a persistent connection.
+ * The time per operation is the server work of one request, serialization and compression
+ * included; the bytes the response took on the wire are printed at the end of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+    private static final int PORT = 35102;
+    /** The server closes a persistent connection after this many requests. */
+    private static final int REQUESTS_PER_CONNECTION = 100;
+
+    @Param({"identity", "gzip", "deflate"})
+    public String encoding;
+
+    @Param({"10", "1000"})
+    public int tasks;
+
+    private HttpServer server;
+    private Thread serverThread;
+    private Socket socket;
+    private OutputStream out;
+    private InputStream in;
+    private byte[] request;
+    private int wireBytes;
+    private int served;
+
+    @Setup(Level.Trial)
+    public void startServer() throws Exception {
+        TaskManager manager = TaskManager.getTaskManager();
+        for (int id = manager.getTasks().size(); id < tasks; id++) {
+            manager.addTask("Task " + id, "Review the pull request number " + id + " before the release");
+        }
+        server = new HttpServer(PORT, 8, 200, "static", "edu.eci.arep.microspringboot");
+        serverThread = server.startAsync();
+        BenchmarkSupport.waitForServer(PORT);
+        request = ("GET /task HTTP/1.1\r\nHost: localhost\r\nAccept-Encoding: " + encoding + "\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+        connect();
+    }
+
+    private void connect() throws IOException {
+        if (socket != null) socket.close();
+        socket = new Socket("localhost", PORT);
+        socket.setSoTimeout(60000);
+        out = socket.getOutputStream();
+        in = new BufferedInputStream(socket.getInputStream());
+        served = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() throws Exception {
+        System.out.println();
+        System.out.println("Bytes on wire per request (" + encoding + ", " + tasks + " tasks): " + wireBytes);
+        socket.close();
+        server.stop();
+        serverThread.join();
+    }
+
+    @Benchmark
+    public int request() throws IOException {
+        if (served++ == REQUESTS_PER_CONNECTION) {
+            connect();
+            served = 1;
+        }
+        out.write(request);
+        out.flush();
+        wireBytes = BenchmarkSupport.readResponse(in);
+        return wireBytes;
+    }
+}
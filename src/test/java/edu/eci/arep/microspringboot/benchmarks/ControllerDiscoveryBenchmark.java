@@ -0,0 +1,35 @@
+package edu.eci.arep.microspringboot.benchmarks;
+
+import edu.eci.arep.microspringboot.helpers.ClassesConverter;
+import edu.eci.arep.microspringboot.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold cost of finding and registering the controllers when a server starts: the index written
+ * at compile time against the classpath scan, which loads every class of the package. Each
+ * measurement runs once in a new JVM, as in a real startup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class ControllerDiscoveryBenchmark {
+    @Param({"index", "scan"})
+    public String discovery;
+
+    @Benchmark
+    public Set<Class<?>> discover() throws Exception {
+        Set<Class<?>> classes = discovery.equals("index")
+                ? ClassesConverter.findIndexedClasses("edu.eci.arep.microspringboot")
+                : ClassesConverter.findClasses("edu.eci.arep.microspringboot");
+        for (Class<?> c : classes) {
+            HttpServer.loadServices(c);
+        }
+        return classes;
+    }
+}
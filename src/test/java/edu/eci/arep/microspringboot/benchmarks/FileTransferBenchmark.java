@@ -0,0 +1,87 @@
+package edu.eci.arep.microspringboot.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sending a static file to a socket: {@link FileChannel#transferTo}, used by the server for
+ * large static files, against reading the file into a heap array and writing it to the socket
+ * stream, as {@code sendImageFile} and {@code manageRequest} did. A local reader drains the
+ * connection. The {@code gc} profiler of the benchmark profile reports the bytes allocated per
+ * operation in {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileTransferBenchmark {
+    @Param({"1", "50"})
+    public int sizeMb;
+
+    private Path file;
+    private ServerSocketChannel server;
+    private SocketChannel client;
+    private OutputStream clientStream;
+    private Thread reader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("transfer-", ".bin");
+        byte[] block = new byte[1024 * 1024];
+        new Random(7).nextBytes(block);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (int i = 0; i < sizeMb; i++) out.write(block);
+        }
+        server = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+        client = SocketChannel.open(server.getLocalAddress());
+        clientStream = client.socket().getOutputStream();
+        SocketChannel accepted = server.accept();
+        reader = new Thread(() -> {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+            try (accepted) {
+                while (accepted.read(buffer) >= 0) buffer.clear();
+            } catch (IOException ignored) {}
+        }, "benchmark-reader");
+        reader.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        client.close();
+        reader.join();
+        server.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long transferTo() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size(), position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, client);
+            }
+            return position;
+        }
+    }
+
+    @Benchmark
+    public long heapCopy() throws IOException {
+        byte[] content = Files.readAllBytes(file);
+        clientStream.write(content);
+        return content.length;
+    }
+}
@@ -0,0 +1,107 @@
+package edu.eci.arep.microspringboot.benchmarks;
+
+import edu.eci.arep.microspringboot.annotations.RequestParam;
+import edu.eci.arep.microspringboot.examples.CalculatorController;
+import edu.eci.arep.microspringboot.examples.GreetingController;
+import edu.eci.arep.microspringboot.httpserver.HandlerInvoker;
+import edu.eci.arep.microspringboot.httpserver.HttpRequest;
+import edu.eci.arep.microspringboot.httpserver.RouteTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatch of {@code GreetingController.params}, a handler with three {@code @RequestParam}
+ * arguments: the {@link HandlerInvoker} bound at startup against the previous per-request
+ * annotation scan followed by {@link Method#invoke}. {@code typedInvoker} dispatches
+ * {@code CalculatorController.calculate}, whose numbers are bound as {@code int} by converters
+ * resolved at startup, against {@code stringParams}, the same dispatch of the previous handler
+ * taking {@code String} arguments and parsing them itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HandlerInvokerBenchmark {
+    private Method method;
+    private HandlerInvoker invoker;
+    private HttpRequest request;
+    private HandlerInvoker typedInvoker;
+    private HandlerInvoker stringInvoker;
+    private HttpRequest calculation;
+
+    @Setup
+    public void setUp() throws Exception {
+        method = GreetingController.class.getMethod("params", String.class, String.class, String.class);
+        RouteTable routes = new RouteTable();
+        routes.register("/app", "/params", method);
+        invoker = routes.match("/app/params").route().getInvoker();
+        request = new HttpRequest(new URI("/app/params?name=Bench&age=30"));
+        routes.register("/v1/calculate/maths", "", CalculatorController.class.getMethod("calculate", String.class, int.class, int.class));
+        typedInvoker = routes.match("/v1/calculate/maths").route().getInvoker();
+        routes.register("/legacy", "", HandlerInvokerBenchmark.class.getMethod("legacyCalculate", String.class, String.class, String.class));
+        stringInvoker = routes.match("/legacy").route().getInvoker();
+        calculation = new HttpRequest(new URI("/v1/calculate/maths?operation=-&a=1234&b=567"));
+    }
+
+    /**
+     * Copy of {@code CalculatorController.calculate} before its parameters were typed.
+     */
+    public static String legacyCalculate(@RequestParam(value = "operation", defaultValue = "+") String operation, @RequestParam(value = "a", defaultValue = "1") String a, @RequestParam(value = "b", defaultValue = "1") String b){
+        int numbera = Integer.parseInt(a);
+        int numberb = Integer.parseInt(b);
+        String result = "Result: ";
+        return switch (operation) {
+            case "+" -> result + (numbera + numberb);
+            case "-" -> result + (numbera - numberb);
+            case "*" -> result + (numbera * numberb);
+            default -> result + (numberb > 0 ? numbera / numberb : "Cannot divide");
+        };
+    }
+
+    @Benchmark
+    public Object typedInvoker() throws Exception {
+        return typedInvoker.invoke(calculation);
+    }
+
+    @Benchmark
+    public Object stringParams() throws Exception {
+        return stringInvoker.invoke(calculation);
+    }
+
+    @Benchmark
+    public Object invoker() throws Exception {
+        return invoker.invoke(request);
+    }
+
+    /**
+     * Copy of {@code HttpRequest.getParamValues} and the reflective call of {@code invokeService},
+     * as they were before the invokers.
+     */
+    @Benchmark
+    public Object reflective() throws InvocationTargetException, IllegalAccessException {
+        Annotation[][] annotations = method.getParameterAnnotations();
+        String[] argsValues = new String[annotations.length];
+        for (int i = 0; i < annotations.length; i++) {
+            RequestParam requestParam = null;
+            for (Annotation annotation : annotations[i]) {
+                if (annotation instanceof RequestParam r) {
+                    requestParam = r;
+                    break;
+                }
+            }
+            if (requestParam != null) {
+                String value = request.getValues(requestParam.value());
+                if (value != null) argsValues[i] = value;
+                else argsValues[i] = requestParam.defaultValue();
+            }
+        }
+        return method.invoke(null, (Object[]) (argsValues.length > 0 ? argsValues : null));
+    }
+}
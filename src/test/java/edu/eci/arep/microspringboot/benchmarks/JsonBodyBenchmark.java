@@ -0,0 +1,60 @@
+package edu.eci.arep.microspringboot.benchmarks;
+
+import edu.eci.arep.microspringboot.classes.Task;
+import edu.eci.arep.microspringboot.helpers.JsonConverter;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Reading a task from a POST body: the {@link JsonConverter} parser built once for
+ * {@link Task} against the previous {@code split}/{@code replace} code of
+ * {@code HttpServer.manageRequest}. The description has {@code size} characters, free of commas
+ * and colons so the previous code still gets it right.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBodyBenchmark {
+    @Param({"40", "4096", "65536"})
+    public int size;
+
+    private byte[] body;
+    private Function<byte[], Object> parser;
+
+    @Setup
+    public void setUp() {
+        String description = "Read a JSON body in a single pass ".repeat(size / 34 + 1).substring(0, size);
+        body = ("{\"name\":\"Benchmark task\",\"description\":\"" + description + "\"}").getBytes(StandardCharsets.UTF_8);
+        parser = JsonConverter.parserFor(Task.class);
+    }
+
+    @Benchmark
+    public Task parser() {
+        return (Task) parser.apply(body);
+    }
+
+    /**
+     * Copy of the body handling of {@code manageRequest} before POST handlers were routed.
+     */
+    @Benchmark
+    public Task legacySplit() {
+        String text = new String(body, StandardCharsets.UTF_8);
+        String taskName = "";
+        String taskDescription = "";
+        String[] values = text.split(",");
+        for (String value : values) {
+            String[] pair = value.split(":", 2);
+            String key = pair[0].replace("\"", "").replace("{", "").replace("}", "").replace(" ", "").trim();
+            String val = pair[1].replace("\"", "").replace("{", "").replace("}", "").trim();
+            if (key.equals("name")) taskName = val;
+            if (key.equals("description")) taskDescription = val;
+        }
+        return new Task(taskName, taskDescription, 0);
+    }
+}
@@ -0,0 +1,102 @@
+package edu.eci.arep.microspringboot.benchmarks;
+
+import edu.eci.arep.microspringboot.classes.Task;
+import edu.eci.arep.microspringboot.helpers.JsonConverter;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of a {@code List<Task>} response body into UTF-8 JSON: the compiled per-class
+ * serializers of {@link JsonConverter} against the previous reflective String-building converter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    private List<Task> tasks;
+
+    @Setup
+    public void setUp() {
+        tasks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            tasks.add(new Task("Task " + i, "Description of the task number " + i, i));
+        }
+    }
+
+    @Benchmark
+    public byte[] compiled() {
+        return JsonConverter.toJsonBytes(tasks);
+    }
+
+    @Benchmark
+    public byte[] legacy() {
+        return LegacyJsonConverter.toJson(tasks).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Copy of {@code JsonConverter} as it was before the compiled serializers.
+     */
+    static class LegacyJsonConverter {
+        static String toJson(Object obj) {
+            if (obj instanceof String) return quote((String) obj);
+            if (obj instanceof Number) return obj.toString();
+            if (obj instanceof List<?>) {
+                return arrayToJson(obj);
+            }
+            return objectToJson(obj);
+        }
+
+        private static String arrayToJson(Object array) {
+            StringBuilder sb = new StringBuilder("[");
+            List<?> list = (List<?>) array;
+            for (int i = 0; i < list.size(); i++) {
+                Object item = list.get(i);
+                sb.append(toJson(item));
+                if (i < list.size() - 1) sb.append(",");
+            }
+            sb.append("]");
+            return sb.toString();
+        }
+
+        private static String objectToJson(Object obj) {
+            StringBuilder sb = new StringBuilder("{");
+            Field[] fields = obj.getClass().getDeclaredFields();
+            boolean first = true;
+            for (Field field : fields) {
+                if (java.lang.reflect.Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                try {
+                    field.setAccessible(true);
+                    Object value = field.get(obj);
+                    if (!first) sb.append(",");
+                    sb.append("\"").append(field.getName()).append("\":");
+                    sb.append(toJson(value));
+                    first = false;
+                } catch (IllegalAccessException e) {}
+            }
+            sb.append("}");
+            return sb.toString();
+        }
+
+        private static String quote(String s) {
+            return "\"" + s
+                    .replace("\\", "\\\\")
+                    .replace("\"", "\\\"")
+                    .replace("\n", "\\n")
+                    .replace("\r", "\\r")
+                    .replace("\t", "\\t") + "\"";
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package edu.eci.arep.microspringboot.benchmarks;
+
+import edu.eci.arep.microspringboot.classes.Page;
+import edu.eci.arep.microspringboot.classes.Task;
+import edu.eci.arep.microspringboot.classes.TaskManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static edu.eci.arep.microspringboot.helpers.JsonConverter.toJsonBytes;
+
+/**
+ * Cost of the body of {@code GET /task}: the first page of 100 tasks against the whole list,
+ * both serialized to JSON, as the store grows. The body sizes are printed at the start of
+ * each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class PaginationBenchmark {
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"10000", "100000", "1000000"})
+    public int tasks;
+
+    private TaskManager manager;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        manager = new TaskManager();
+        for (int i = 0; i < tasks; i++) {
+            manager.addTask("Task " + i, "Review the pull request number " + i);
+        }
+        System.out.println();
+        System.out.println("Body bytes (" + tasks + " tasks): first page " + firstPage().length + ", full list " + fullList().length);
+    }
+
+    @Benchmark
+    public byte[] firstPage() {
+        return toJsonBytes(Page.of(manager.getTasksAfter(0), PAGE_SIZE, (Task task) -> String.valueOf(task.getId())));
+    }
+
+    @Benchmark
+    public byte[] fullList() {
+        return toJsonBytes(manager.getTasks());
+    }
+}
@@ -0,0 +1,74 @@
+package edu.eci.arep.microspringboot.benchmarks;
+
+import edu.eci.arep.microspringboot.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memory allocated by the server for each request, read from {@code gc.alloc.rate.norm}
+ * (run with {@code -prof gc}, which counts the allocations of every thread of the JVM, the
+ * server's and the client's). Each {@code /stream/tasks} request is a JSON body written
+ * through {@code JsonConverter.writeJson} on a persistent connection; each greeting request
+ * opens its own connection, so it pays for the buffers of the connection too.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestAllocationBenchmark {
+    private static final int PORT = 35104;
+    private static final byte[] JSON_REQUEST = ("GET /stream/tasks?count=100 HTTP/1.1\r\nHost: localhost\r\n\r\n")
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] GREETING_REQUEST = ("GET /app/greeting?name=Bench HTTP/1.1\r\nHost: localhost\r\n"
+            + "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+
+    private HttpServer server;
+    private Thread serverThread;
+    private Socket socket;
+    private OutputStream out;
+    private InputStream in;
+    private int requests;
+
+    @Setup(Level.Trial)
+    public void startServer() throws Exception {
+        server = new HttpServer(PORT, 4, 100, "static", "edu.eci.arep.microspringboot");
+        serverThread = server.startAsync();
+        BenchmarkSupport.waitForServer(PORT);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() throws Exception {
+        if (socket != null) socket.close();
+        server.stop();
+        serverThread.join();
+    }
+
+    @Benchmark
+    public int jsonOnPersistentConnection() throws IOException {
+        //the server closes a connection after its last allowed request
+        if (socket == null || requests++ % 50 == 0) {
+            if (socket != null) socket.close();
+            socket = new Socket();
+            socket.connect(new InetSocketAddress("localhost", PORT));
+            out = socket.getOutputStream();
+            in = new BufferedInputStream(socket.getInputStream());
+        }
+        out.write(JSON_REQUEST);
+        return BenchmarkSupport.readResponse(in);
+    }
+
+    @Benchmark
+    public int greetingPerConnection() throws IOException {
+        return BenchmarkSupport.burst(PORT, 1, GREETING_REQUEST);
+    }
+}
@@ -0,0 +1,106 @@
+package edu.eci.arep.microspringboot.benchmarks;
+
+import edu.eci.arep.microspringboot.httpserver.HttpRequest;
+import edu.eci.arep.microspringboot.httpserver.HttpRequestParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse throughput of the byte-level {@link HttpRequestParser} against the previous
+ * {@code BufferedReader} code path of {@code HttpServer.runServer}, on a browser-like GET
+ * and on a POST with a JSON body.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestParserBenchmark {
+    private static final String GET = "GET /task?name=Task%20GET HTTP/1.1\r\n"
+            + "Host: localhost:35000\r\n"
+            + "User-Agent: Mozilla/5.0 (X11; Linux x86_64; rv:128.0) Gecko/20100101 Firefox/128.0\r\n"
+            + "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8\r\n"
+            + "Accept-Language: es-CO,es;q=0.8,en-US;q=0.5,en;q=0.3\r\n"
+            + "Accept-Encoding: gzip, deflate, br\r\n"
+            + "Connection: keep-alive\r\n"
+            + "Referer: http://localhost:35000/\r\n"
+            + "Sec-Fetch-Dest: empty\r\n"
+            + "Sec-Fetch-Mode: cors\r\n"
+            + "Sec-Fetch-Site: same-origin\r\n"
+            + "\r\n";
+    private static final String POST_BODY = "{\"name\":\"Benchmark task\",\"description\":\"Parse a JSON body of a typical size\"}";
+    private static final String POST = "POST /task HTTP/1.1\r\n"
+            + "Host: localhost:35000\r\n"
+            + "Content-Type: application/json\r\n"
+            + "Content-Length: " + POST_BODY.length() + "\r\n"
+            + "Connection: keep-alive\r\n"
+            + "\r\n" + POST_BODY;
+
+    @Param({"GET", "POST"})
+    public String request;
+
+    private byte[] bytes;
+    private ByteBuffer buffer;
+    private HttpRequestParser parser;
+
+    @Setup
+    public void setUp() {
+        bytes = (request.equals("GET") ? GET : POST).getBytes(StandardCharsets.US_ASCII);
+        buffer = ByteBuffer.allocate(8192);
+        parser = new HttpRequestParser();
+    }
+
+    @Benchmark
+    public HttpRequest byteParser() {
+        buffer.clear();
+        buffer.put(bytes).flip();
+        parser.parse(buffer);
+        HttpRequest parsed = parser.toRequest();
+        parser.reset();
+        return parsed;
+    }
+
+    /**
+     * Copy of the request reading loop that {@code runServer} used before the byte parser,
+     * followed by the request line split and URI parsing done in {@code manageRequest}.
+     */
+    @Benchmark
+    public HttpRequest legacyReader(Blackhole blackhole) throws IOException, URISyntaxException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(bytes)));
+        String inputLine, firstLine = "";
+        boolean isFirstLine = true;
+        int contentLength = 0;
+        while ((inputLine = in.readLine()) != null) {
+            if (isFirstLine) {
+                isFirstLine = false;
+                firstLine = inputLine;
+            }
+            if (inputLine.toLowerCase().startsWith("content-length:")) {
+                contentLength = Integer.parseInt(inputLine.split(":")[1].trim());
+            }
+            if (inputLine.isEmpty() || inputLine.trim().isEmpty()) {
+                break;
+            }
+        }
+        String body = "";
+        if (contentLength > 0) {
+            char[] bodyChars = new char[contentLength];
+            in.read(bodyChars, 0, contentLength);
+            body = new String(bodyChars);
+        }
+        blackhole.consume(body);
+        String[] dividedUri = firstLine.split(" ");
+        return new HttpRequest(new URI(dividedUri[1]));
+    }
+}
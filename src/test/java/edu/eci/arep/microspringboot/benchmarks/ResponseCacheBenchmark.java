@@ -0,0 +1,100 @@
+package edu.eci.arep.microspringboot.benchmarks;
+
+import edu.eci.arep.microspringboot.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the {@code /report} test handler with and without the response cache, over a
+ * persistent connection. The keys follow a Zipf distribution (exponent 0.99) over 100,000
+ * keys, ten times the entries the cache holds, so most requests go to a few keys and the
+ * rest is a long tail the admission policy keeps out of the cache. The hit ratio is printed
+ * at the end of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseCacheBenchmark {
+    private static final int PORT = 35103;
+    private static final int KEYS = 100_000;
+    private static final double EXPONENT = 0.99;
+    /** The server closes a persistent connection after this many requests. */
+    private static final int REQUESTS_PER_CONNECTION = 100;
+
+    @Param({"/report", "/report/uncached"})
+    public String path;
+
+    private HttpServer server;
+    private Thread serverThread;
+    private Socket socket;
+    private OutputStream out;
+    private InputStream in;
+    private int served;
+    private double[] cumulative;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private long hits;
+    private long misses;
+
+    @Setup(Level.Trial)
+    public void startServer() throws Exception {
+        cumulative = new double[KEYS];
+        double sum = 0;
+        for (int k = 0; k < KEYS; k++) {
+            sum += 1 / Math.pow(k + 1, EXPONENT);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < KEYS; k++) cumulative[k] /= sum;
+        server = new HttpServer(PORT, 8, 200, "static", "edu.eci.arep.microspringboot");
+        serverThread = server.startAsync();
+        BenchmarkSupport.waitForServer(PORT);
+        hits = HttpServer.responses.hitCount();
+        misses = HttpServer.responses.missCount();
+        connect();
+    }
+
+    private void connect() throws IOException {
+        if (socket != null) socket.close();
+        socket = new Socket("localhost", PORT);
+        socket.setSoTimeout(60000);
+        out = socket.getOutputStream();
+        in = new BufferedInputStream(socket.getInputStream());
+        served = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() throws Exception {
+        long h = HttpServer.responses.hitCount() - hits;
+        long m = HttpServer.responses.missCount() - misses;
+        System.out.println();
+        if (h + m > 0) System.out.printf("Hit ratio (%s): %.1f%% of %d requests%n", path, 100.0 * h / (h + m), h + m);
+        HttpServer.responses.clear();
+        socket.close();
+        server.stop();
+        serverThread.join();
+    }
+
+    @Benchmark
+    public int request() throws IOException {
+        if (served++ == REQUESTS_PER_CONNECTION) {
+            connect();
+            served = 1;
+        }
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        int key = index >= 0 ? index : Math.min(-index - 1, KEYS - 1);
+        out.write(("GET " + path + "?key=" + key + " HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        return BenchmarkSupport.readResponse(in);
+    }
+}
@@ -0,0 +1,122 @@
+package edu.eci.arep.microspringboot.benchmarks;
+
+import edu.eci.arep.microspringboot.httpserver.HttpResponse;
+import edu.eci.arep.microspringboot.httpserver.ResponseWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing a JSON response of {@code size} bytes to a connection: the {@link ResponseWriter}
+ * with its pre-encoded head against the previous {@code writeHead} code, which built the head
+ * in a {@code StringBuilder} and wrote it through a {@code BufferedOutputStream}. The channel
+ * discards the bytes and counts the writes, each one a system call on a real socket; the
+ * writes per response are printed at the end of each trial.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseWriterBenchmark {
+    @Param({"64", "20000"})
+    public int size;
+
+    private byte[] body;
+    private CountingChannel channel;
+    private ResponseWriter writer;
+    private OutputStream legacyOut;
+    private long responses;
+
+    /**
+     * Channel that discards what it is given, counting the calls.
+     */
+    static final class CountingChannel implements GatheringByteChannel {
+        long writes;
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            writes++;
+            long n = 0;
+            for (int i = offset; i < offset + length; i++) {
+                n += srcs[i].remaining();
+                srcs[i].position(srcs[i].limit());
+            }
+            return n;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs) {
+            return write(srcs, 0, srcs.length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            writes++;
+            int n = src.remaining();
+            src.position(src.limit());
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {}
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        body = ("[" + "{\"name\":\"Task\",\"id\":1},".repeat(size / 23 + 1)).substring(0, size - 1).concat("]")
+                .getBytes(StandardCharsets.UTF_8);
+        channel = new CountingChannel();
+        writer = new ResponseWriter(channel);
+        legacyOut = new BufferedOutputStream(Channels.newOutputStream(channel), 8192);
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+        writer.close();
+        System.out.printf("%n%d-byte body: %.2f writes per response%n", size, (double) channel.writes / responses);
+    }
+
+    private HttpResponse response() {
+        responses++;
+        return new HttpResponse(200, body).contentType("application/json").header("Vary", "Accept-Encoding");
+    }
+
+    @Benchmark
+    public void responseWriter() throws IOException {
+        writer.write(response(), 99);
+    }
+
+    /**
+     * Copy of {@code writeResponse} and {@code writeHead} before the head was pre-encoded.
+     */
+    @Benchmark
+    public void legacyStringHead() throws IOException {
+        HttpResponse response = response();
+        response.getHeaders().putIfAbsent("Content-Type", "text/plain");
+        byte[] bodyResponse = response.getBody();
+        response.header("Content-Length", String.valueOf(bodyResponse.length));
+        response.header("Connection", "keep-alive");
+        response.header("Keep-Alive", "timeout=" + 5000 / 1000 + ", max=" + 99);
+        StringBuilder sb = new StringBuilder()
+                .append("HTTP/1.1 ").append(response.getStatusCode()).append(" ").append(response.getStatusMessage()).append("\r\n");
+        response.getHeaders().forEach((k, v) -> sb.append(k).append(": ").append(v).append("\r\n"));
+        sb.append("\r\n");
+        legacyOut.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        legacyOut.write(bodyResponse);
+        legacyOut.flush();
+    }
+}
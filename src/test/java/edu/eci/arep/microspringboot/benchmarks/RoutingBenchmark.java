@@ -0,0 +1,81 @@
+package edu.eci.arep.microspringboot.benchmarks;
+
+import edu.eci.arep.microspringboot.httpserver.RouteTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Route resolution with hundreds of registered {@code @GetMapping} handlers: the segment trie of
+ * {@link RouteTable} against the previous base-path stream scan followed by a second map lookup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoutingBenchmark {
+    private static final int HANDLERS_PER_CONTROLLER = 10;
+
+    @Param({"50", "200"})
+    public int controllers;
+
+    private RouteTable routes;
+    private Map<String, Map<String, Method>> services;
+    private String[] paths;
+    private int next;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        Method handler = RoutingBenchmark.class.getMethod("handler");
+        routes = new RouteTable();
+        services = new HashMap<>();
+        paths = new String[controllers];
+        for (int c = 0; c < controllers; c++) {
+            String basePath = "/api/v1/resource" + c;
+            Map<String, Method> methods = new HashMap<>();
+            for (int h = 0; h < HANDLERS_PER_CONTROLLER; h++) {
+                routes.register(basePath, "/action" + h, handler);
+                methods.put("/action" + h, handler);
+            }
+            services.put(basePath, methods);
+            paths[c] = basePath + "/action" + (c % HANDLERS_PER_CONTROLLER);
+        }
+    }
+
+    public static String handler() {
+        return "";
+    }
+
+    @Benchmark
+    public Object trie() {
+        return routes.match(nextPath());
+    }
+
+    /**
+     * Copy of {@code HttpRequest.getBasePath} and {@code getSourcePath} followed by the lookups
+     * of {@code invokeService}, as they were before the route table.
+     */
+    @Benchmark
+    public Object legacyScan() {
+        String fullPath = nextPath();
+        Set<String> keys = services.keySet();
+        Optional<String> path = keys.stream().filter(x -> fullPath.startsWith(x)).findFirst();
+        if (path.isEmpty()) return null;
+        String basePath = path.get();
+        String resourcePath = fullPath.substring(basePath.length());
+        return services.get(basePath).get(resourcePath.isEmpty() ? "/" : resourcePath);
+    }
+
+    private String nextPath() {
+        String path = paths[next];
+        next = next + 1 == paths.length ? 0 : next + 1;
+        return path;
+    }
+}
@@ -0,0 +1,53 @@
+package edu.eci.arep.microspringboot.benchmarks;
+
+import edu.eci.arep.microspringboot.httpserver.HttpServer;
+import edu.eci.arep.microspringboot.httpserver.ServerEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the server engines under bursts of concurrent connections.
+ * Every operation opens {@code connections} sockets, sends one request through each of them
+ * and waits for all the responses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class ServerEngineBenchmark {
+    private static final int PORT = 35100;
+    private static final byte[] REQUEST = ("GET /app/greeting?name=Bench HTTP/1.1\r\nHost: localhost\r\n"
+            + "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+
+    @Param({"BLOCKING", "NIO"})
+    public ServerEngine engine;
+
+    @Param({"100", "2000"})
+    public int connections;
+
+    private HttpServer server;
+    private Thread serverThread;
+
+    @Setup(Level.Trial)
+    public void startServer() throws Exception {
+        server = new HttpServer(PORT, 8, 200, "static", "edu.eci.arep.microspringboot", engine);
+        serverThread = server.startAsync();
+        BenchmarkSupport.waitForServer(PORT);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() throws InterruptedException {
+        server.stop();
+        serverThread.join();
+    }
+
+    @Benchmark
+    public int burst() throws IOException {
+        return BenchmarkSupport.burst(PORT, connections, REQUEST);
+    }
+}
@@ -0,0 +1,63 @@
+package edu.eci.arep.microspringboot.benchmarks;
+
+import edu.eci.arep.microspringboot.httpserver.HttpServer;
+import edu.eci.arep.microspringboot.httpserver.ServerEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the platform thread pool against virtual threads when handlers block,
+ * using the {@code /slow} test controller. Both servers admit the same number of
+ * connections: the pool runs 8 of them and queues the rest, the virtual engine
+ * runs all of them at once. Each connection sends its own {@code id}, so the requests are
+ * not coalesced into one call of the handler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class SlowHandlerBenchmark {
+    private static final int PORT = 35101;
+    private static final int CAPACITY = 1000;
+
+    @Param({"BLOCKING", "VIRTUAL"})
+    public ServerEngine engine;
+
+    @Param({"50"})
+    public int delayMs;
+
+    @Param({"200"})
+    public int connections;
+
+    private HttpServer server;
+    private Thread serverThread;
+    private byte[][] requests;
+
+    @Setup(Level.Trial)
+    public void startServer() throws Exception {
+        server = new HttpServer(PORT, 8, CAPACITY, "static", "edu.eci.arep.microspringboot", engine);
+        serverThread = server.startAsync();
+        BenchmarkSupport.waitForServer(PORT);
+        requests = new byte[connections][];
+        for (int i = 0; i < connections; i++) {
+            requests[i] = ("GET /slow?ms=" + delayMs + "&id=" + i + " HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() throws InterruptedException {
+        server.stop();
+        serverThread.join();
+    }
+
+    @Benchmark
+    public int burst() throws IOException {
+        return BenchmarkSupport.burst(PORT, requests);
+    }
+}
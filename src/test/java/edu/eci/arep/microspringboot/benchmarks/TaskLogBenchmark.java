@@ -0,0 +1,61 @@
+package edu.eci.arep.microspringboot.benchmarks;
+
+import edu.eci.arep.microspringboot.classes.Task;
+import edu.eci.arep.microspringboot.classes.TaskManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Throughput of {@code TaskManager.addTask} with a task log, from 16 concurrent writers as the
+ * worker threads saving tasks: group commit, where the writers waiting for the disk share one
+ * fsync, against an fsync per task. {@code memory} is the manager without a log, the bound.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class TaskLogBenchmark {
+    @Param({"group", "per-record", "memory"})
+    public String sync;
+
+    private Path directory;
+    private TaskManager manager;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException {
+        manager = new TaskManager();
+        if (sync.equals("memory")) return;
+        directory = Files.createTempDirectory("task-log-bench");
+        manager.open(directory, sync.equals("group"));
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        manager.close();
+        if (directory == null) return;
+        try (Stream<Path> stream = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) stream::iterator) {
+                System.out.println("\n" + file.getFileName() + ": " + Files.size(file) + " bytes");
+            }
+        }
+        try (Stream<Path> stream = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) stream.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public Task addTask() {
+        return manager.addTask("Review pull request", "Check the task log before merging");
+    }
+}
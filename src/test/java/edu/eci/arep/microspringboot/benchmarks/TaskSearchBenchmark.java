@@ -0,0 +1,56 @@
+package edu.eci.arep.microspringboot.benchmarks;
+
+import edu.eci.arep.microspringboot.classes.Task;
+import edu.eci.arep.microspringboot.classes.TaskManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Latency of {@code TaskManager.getTasksByName} with the trigram index against the previous
+ * stream filter, which case-folded every name on every call. Queries: a selective one matching
+ * a handful of tasks, a broad one matching a fifth of them, and one matching none.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class TaskSearchBenchmark {
+    private static final String[] WORDS = {"Review", "Deploy", "Report", "Refactor", "Test"};
+
+    @Param({"10000", "100000", "1000000"})
+    public int tasks;
+
+    @Param({"item 4242", "report", "missing"})
+    public String query;
+
+    private TaskManager manager;
+    private List<Task> list;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        manager = new TaskManager();
+        for (int i = 0; i < tasks; i++) {
+            manager.addTask(WORDS[i % WORDS.length] + " item " + i, "Task number " + i);
+        }
+        list = new ArrayList<>(manager.getTasks());
+    }
+
+    @Benchmark
+    public List<Task> index() {
+        return manager.getTasksByName(query);
+    }
+
+    /**
+     * Copy of the filter {@code getTasksByName} used before the index.
+     */
+    @Benchmark
+    public List<Task> legacyFilter() {
+        return list.stream().filter(x -> x.getName().toLowerCase().contains(query.toLowerCase())).collect(Collectors.toList());
+    }
+}
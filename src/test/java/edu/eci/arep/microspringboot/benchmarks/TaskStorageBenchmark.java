@@ -0,0 +1,63 @@
+package edu.eci.arep.microspringboot.benchmarks;
+
+import edu.eci.arep.microspringboot.classes.Page;
+import edu.eci.arep.microspringboot.classes.Task;
+import edu.eci.arep.microspringboot.classes.TaskManager;
+import edu.eci.arep.microspringboot.classes.TaskStorage;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of holding millions of tasks on the heap against off-heap records. {@code fullGc} is the
+ * pause of a full collection with the tasks alive, which has to trace every task object on the
+ * heap; the used heap after it is printed when the tasks are loaded. {@code getTask} and
+ * {@code firstPage} show the price of decoding the tasks on every read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-XX:+UseG1GC"})
+public class TaskStorageBenchmark {
+    @Param({"HEAP", "OFF_HEAP"})
+    public TaskStorage storage;
+
+    @Param({"5000000"})
+    public int tasks;
+
+    private TaskManager manager;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        manager = new TaskManager(storage);
+        for (int i = 0; i < tasks; i++) {
+            manager.addTask("Review item " + i, "Task number " + i + " of the backlog");
+        }
+        System.gc();
+        long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        System.out.printf("%nUsed heap after a full GC with %d tasks: %d MB%n", tasks, used >> 20);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public void fullGc() {
+        System.gc();
+    }
+
+    @Benchmark
+    public Task getTask() {
+        return manager.getTask(ThreadLocalRandom.current().nextInt(1, tasks + 1));
+    }
+
+    @Benchmark
+    public Page<Task> firstPage() {
+        return Page.of(manager.getTasksAfter(0), 100, task -> String.valueOf(task.getId()));
+    }
+}
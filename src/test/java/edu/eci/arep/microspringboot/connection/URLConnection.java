@@ -2,7 +2,9 @@ package edu.eci.arep.microspringboot.connection;
 
 import java.io.*;
 import java.net.HttpURLConnection;
+import java.net.Socket;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 
 public class URLConnection {
     int port;
@@ -53,4 +55,97 @@ public class URLConnection {
         }
         return response.toString();
     }
+
+    public Socket openSocket() throws IOException {
+        Socket socket = new Socket("localhost", port);
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    /**
+     * Sends a raw HTTP request through the socket and reads exactly one response,
+     * using the Content-Length header to know where the body ends.
+     * @param socket an open connection to the server
+     * @param requestHead request line and headers, without the final empty line
+     * @return the response status line, headers and body
+     */
+    public String sendRawRequest(Socket socket, String requestHead) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write((requestHead + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        return readRawResponse(socket);
+    }
+
+    /**
+     * Sends a raw HTTP request with a UTF-8 body, Content-Length is added in bytes.
+     */
+    public String sendRawRequest(Socket socket, String requestHead, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        request.writeBytes((requestHead + "\r\nContent-Length: " + bytes.length + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        request.writeBytes(bytes);
+        //one write: a body sent in a second small segment waits for the delayed ACK of the first
+        OutputStream out = socket.getOutputStream();
+        out.write(request.toByteArray());
+        out.flush();
+        return readRawResponse(socket);
+    }
+
+    /**
+     * Reads exactly one response, using the Content-Length header to know where the body ends.
+     */
+    public String readRawResponse(Socket socket) throws IOException {
+        InputStream in = socket.getInputStream();
+        StringBuilder head = new StringBuilder();
+        int contentLength = 0;
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            head.append(line).append("\r\n");
+            if (line.toLowerCase().startsWith("content-length:")) {
+                contentLength = Integer.parseInt(line.substring(15).trim());
+            }
+        }
+        if (line == null) throw new EOFException("Connection closed by server");
+        byte[] body = in.readNBytes(contentLength);
+        return head.append("\r\n").append(new String(body, StandardCharsets.UTF_8)).toString();
+    }
+
+    /**
+     * Reads one response sent with chunked transfer encoding, passing the decoded body to the sink
+     * instead of keeping it.
+     * @param in   buffered stream of the socket
+     * @param body receives the body bytes
+     * @return the response head
+     */
+    public String readChunkedResponse(InputStream in, OutputStream body) throws IOException {
+        StringBuilder head = new StringBuilder();
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            head.append(line).append("\r\n");
+        }
+        if (line == null) throw new EOFException("Connection closed by server");
+        byte[] buffer = new byte[8192];
+        int size;
+        while ((size = Integer.parseInt(readLine(in).trim(), 16)) > 0) {
+            while (size > 0) {
+                int n = in.read(buffer, 0, Math.min(size, buffer.length));
+                if (n < 0) throw new EOFException("Connection closed inside a chunk");
+                body.write(buffer, 0, n);
+                size -= n;
+            }
+            readLine(in);
+        }
+        readLine(in);
+        return head.toString();
+    }
+
+    private String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') return line.toString(StandardCharsets.UTF_8).replace("\r", "");
+            line.write(b);
+        }
+        return line.size() == 0 ? null : line.toString(StandardCharsets.UTF_8);
+    }
 }
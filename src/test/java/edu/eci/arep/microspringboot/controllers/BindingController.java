@@ -0,0 +1,33 @@
+package edu.eci.arep.microspringboot.controllers;
+
+import edu.eci.arep.microspringboot.annotations.GetMapping;
+import edu.eci.arep.microspringboot.annotations.PathVariable;
+import edu.eci.arep.microspringboot.annotations.RequestMapping;
+import edu.eci.arep.microspringboot.annotations.RequestParam;
+import edu.eci.arep.microspringboot.annotations.RestController;
+
+import java.util.List;
+
+/**
+ * Test controller with parameters of every type the dispatcher converts.
+ */
+@RestController
+@RequestMapping("/binding")
+public class BindingController {
+    public enum Color { RED, GREEN }
+
+    @GetMapping("/typed/{id}")
+    public static String typed(@PathVariable("id") long id,
+                               @RequestParam(value = "ratio", defaultValue = "0.5") double ratio,
+                               @RequestParam(value = "flag", defaultValue = "false") boolean flag,
+                               @RequestParam(value = "color", defaultValue = "RED") Color color,
+                               @RequestParam("limit") Integer limit,
+                               @RequestParam("tag") List<String> tags) {
+        return id + " " + ratio + " " + flag + " " + color + " " + limit + " " + tags;
+    }
+
+    @GetMapping("/required")
+    public static String required(@RequestParam("count") int count) {
+        return "count " + count;
+    }
+}
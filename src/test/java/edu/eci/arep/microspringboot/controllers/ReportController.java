@@ -0,0 +1,51 @@
+package edu.eci.arep.microspringboot.controllers;
+
+import edu.eci.arep.microspringboot.annotations.Cacheable;
+import edu.eci.arep.microspringboot.annotations.GetMapping;
+import edu.eci.arep.microspringboot.annotations.RequestMapping;
+import edu.eci.arep.microspringboot.annotations.RequestParam;
+import edu.eci.arep.microspringboot.annotations.RestController;
+import edu.eci.arep.microspringboot.classes.Task;
+import edu.eci.arep.microspringboot.httpserver.HttpResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test controller serving the same report with and without {@link Cacheable}, a pure function
+ * of its parameter that takes some work to build and encode, and once more as a list of tasks,
+ * which the server streams as JSON.
+ */
+@RestController
+@RequestMapping("/report")
+public class ReportController {
+
+    @Cacheable
+    @GetMapping
+    public static HttpResponse cached(@RequestParam(value = "key", defaultValue = "0") int key) {
+        return report(key);
+    }
+
+    @GetMapping("/uncached")
+    public static HttpResponse uncached(@RequestParam(value = "key", defaultValue = "0") int key) {
+        return report(key);
+    }
+
+    @Cacheable
+    @GetMapping("/streamed")
+    public static List<Task> streamed(@RequestParam(value = "key", defaultValue = "0") int key) {
+        return lines(key);
+    }
+
+    private static HttpResponse report(int key) {
+        return new HttpResponse(200, lines(key));
+    }
+
+    private static List<Task> lines(int key) {
+        List<Task> lines = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            lines.add(new Task("Report " + key + " line " + i, "Total " + Integer.toHexString(key * 31 + i), i));
+        }
+        return lines;
+    }
+}
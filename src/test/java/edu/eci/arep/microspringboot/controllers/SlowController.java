@@ -0,0 +1,60 @@
+package edu.eci.arep.microspringboot.controllers;
+
+import edu.eci.arep.microspringboot.annotations.GetMapping;
+import edu.eci.arep.microspringboot.annotations.RequestMapping;
+import edu.eci.arep.microspringboot.annotations.RequestParam;
+import edu.eci.arep.microspringboot.annotations.RestController;
+import edu.eci.arep.microspringboot.classes.Task;
+import edu.eci.arep.microspringboot.httpserver.HttpResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test controller whose handler blocks, like a controller waiting on a database or a remote service.
+ * Identical requests served at the same time share one call, requests that must each block
+ * send a different {@code id}.
+ */
+@RestController
+@RequestMapping("/slow")
+public class SlowController {
+    /** Number of times the handlers ran. */
+    public static final AtomicInteger calls = new AtomicInteger();
+
+    @GetMapping
+    public static String sleep(@RequestParam(value = "ms", defaultValue = "100") long ms,
+                               @RequestParam(value = "id", defaultValue = "") String id) throws InterruptedException {
+        calls.incrementAndGet();
+        Thread.sleep(ms);
+        return "Slept " + ms;
+    }
+
+    /**
+     * Slow query returning a list, encoded in memory.
+     */
+    @GetMapping("/tasks")
+    public static HttpResponse tasks(@RequestParam(value = "ms", defaultValue = "100") long ms,
+                                     @RequestParam(value = "count", defaultValue = "1000") int count) throws InterruptedException {
+        return new HttpResponse(200, query(ms, count));
+    }
+
+    /**
+     * The same query, sent as a streamed JSON body.
+     */
+    @GetMapping("/streamed")
+    public static List<Task> streamed(@RequestParam(value = "ms", defaultValue = "100") long ms,
+                                      @RequestParam(value = "count", defaultValue = "1000") int count) throws InterruptedException {
+        return query(ms, count);
+    }
+
+    private static List<Task> query(long ms, int count) throws InterruptedException {
+        calls.incrementAndGet();
+        Thread.sleep(ms);
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tasks.add(new Task("Slow task " + i, "Found after " + ms + " ms", i));
+        }
+        return tasks;
+    }
+}
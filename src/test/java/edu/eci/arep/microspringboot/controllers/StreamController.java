@@ -0,0 +1,34 @@
+package edu.eci.arep.microspringboot.controllers;
+
+import edu.eci.arep.microspringboot.annotations.GetMapping;
+import edu.eci.arep.microspringboot.annotations.RequestMapping;
+import edu.eci.arep.microspringboot.annotations.RequestParam;
+import edu.eci.arep.microspringboot.annotations.RestController;
+import edu.eci.arep.microspringboot.classes.Task;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Test controller returning lists too large to be held in memory as text.
+ * The tasks are created while the list is iterated, so the handler itself uses no memory.
+ */
+@RestController
+@RequestMapping("/stream")
+public class StreamController {
+
+    @GetMapping("/tasks")
+    public static List<Task> tasks(@RequestParam(value = "count", defaultValue = "1000") int size) {
+        return new AbstractList<>() {
+            @Override
+            public Task get(int index) {
+                return new Task("Streamed task " + index, "Generated while the response is written", index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}